@@ -0,0 +1,86 @@
+package com.udacity.benchmarks;
+
+import com.udacity.image.service.CoalescingImageServiceImpl;
+import com.udacity.image.service.FakeLabelDetectionClient;
+import com.udacity.image.service.ImagePreprocessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test for remote image analysis against FakeLabelDetectionClient (40 ms base latency, up to 20 ms
+ * jitter, a 10x slow call in every hundred), so it runs offline. Sixteen threads play cameras that show
+ * one of a few scenes. "direct" sends every frame on its own call, like AwsImageServiceImpl; "coalescing"
+ * goes through CoalescingImageServiceImpl. Sample-time mode reports throughput and the latency
+ * percentiles, including p99. Call counts are printed at the end of each trial.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class CoalescingImageServiceBenchmark {
+
+    private static final int SCENES = 4;
+
+    @Param({"8", "32"})
+    public int maxConcurrency;
+
+    private FakeLabelDetectionClient client;
+    private CoalescingImageServiceImpl coalescing;
+    private ImagePreprocessor preprocessor;
+    private BufferedImage[] scenes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        client = new FakeLabelDetectionClient(40, 20, 0.1);
+        preprocessor = new ImagePreprocessor();
+        coalescing = new CoalescingImageServiceImpl(client, preprocessor, maxConcurrency, 1_000);
+        scenes = new BufferedImage[SCENES];
+        for (int i = 0; i < SCENES; i++) {
+            scenes[i] = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+            for (int y = 0; y < 480; y++) {
+                for (int x = 0; x < 640; x++) {
+                    scenes[i].setRGB(x, y, (((x * (i + 1)) & 0xFF) << 16) | (y & 0xFF));
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%nrequests=%d calls=%d coalesced=%d rejected=%d timeouts=%d timeout=%dms maxInFlight=%d%n",
+                coalescing.getRequestCount(), coalescing.getCallCount(), coalescing.getCoalescedCount(),
+                coalescing.getRejectedCount(), coalescing.getTimeoutCount(), coalescing.getTimeoutMillis(),
+                client.getMaxInFlight());
+        client.close();
+    }
+
+    @Benchmark
+    public boolean direct() {
+        BufferedImage frame = scenes[ThreadLocalRandom.current().nextInt(SCENES)];
+        return client.detectLabels(preprocessor.encode(frame), 50f).join().containsKey("Cat");
+    }
+
+    @Benchmark
+    public boolean coalescing() {
+        return coalescing.imageContainsCat(scenes[ThreadLocalRandom.current().nextInt(SCENES)], 50f);
+    }
+}
@@ -0,0 +1,137 @@
+package com.udacity.benchmarks;
+
+import com.udacity.image.service.FakeImageServiceImpl;
+import com.udacity.image.service.ImageService;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.SecurityService;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorEvent;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.headless.HeadlessRuntime;
+import com.udacity.security.headless.SessionExecutors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long a HeadlessRuntime takes to serve a burst of sessions that spend most of their time
+ * blocked. Every sensor session waits 1 ms between changes, like a slow network connection, and one in
+ * ten sessions is a camera whose FakeImageServiceImpl calls take 20 ms, like a remote analysis service.
+ *
+ * "perSession" gives every session its own thread, which is virtual on Java 21 and later and a platform
+ * thread otherwise. "fixed200" is a conventional bounded pool of 200 platform threads for comparison.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HeadlessRuntimeBenchmark {
+
+    private static final int EVENTS_PER_SENSOR_SESSION = 10;
+    private static final int FRAMES_PER_CAMERA_SESSION = 2;
+    private static final long SENSOR_DELAY_MILLIS = 1;
+    private static final long IMAGE_LATENCY_MILLIS = 20;
+
+    @Param({"1000", "10000"})
+    public int sessionCount;
+
+    @Param({"perSession", "fixed200"})
+    public String executor;
+
+    private HeadlessRuntime runtime;
+    private Sensor[] sensors;
+    private BufferedImage frame;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        ImageService imageService = new SlowImageService(new FakeImageServiceImpl(), IMAGE_LATENCY_MILLIS);
+        SecurityService securityService = new SecurityService(new InMemorySecurityRepository(), imageService);
+        sensors = new Sensor[sessionCount];
+        SensorType[] types = SensorType.values();
+        for (int i = 0; i < sessionCount; i++) {
+            sensors[i] = new Sensor("Sensor " + i, types[i % types.length]);
+            securityService.addSensor(sensors[i]);
+        }
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        frame = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+
+        ExecutorService sessionExecutor = executor.equals("perSession")
+                ? SessionExecutors.newSessionExecutor()
+                : Executors.newFixedThreadPool(200);
+        runtime = new HeadlessRuntime(securityService, sessionExecutor);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        runtime.close();
+    }
+
+    @Benchmark
+    public long serveSessions() throws InterruptedException, ExecutionException {
+        List<Future<?>> sessions = new ArrayList<>(sessionCount);
+        for (int i = 0; i < sessionCount; i++) {
+            if (i % 10 == 9) {
+                int[] remaining = {FRAMES_PER_CAMERA_SESSION};
+                sessions.add(runtime.startCameraSession(() -> remaining[0]-- > 0 ? frame : null));
+            } else {
+                Sensor sensor = sensors[i];
+                int[] remaining = {EVENTS_PER_SENSOR_SESSION};
+                sessions.add(runtime.startSensorSession(() -> {
+                    if (remaining[0]-- == 0) {
+                        return null;
+                    }
+                    Thread.sleep(SENSOR_DELAY_MILLIS);
+                    return new SensorEvent(sensor, sensor.getActive());
+                }));
+            }
+        }
+        for (Future<?> session : sessions) {
+            session.get();
+        }
+        return runtime.getSensorEventCount() + runtime.getFrameCount();
+    }
+
+    /**
+     * Adds a fixed blocking delay to every image analysis.
+     */
+    private static final class SlowImageService implements ImageService {
+        private final ImageService delegate;
+        private final long latencyMillis;
+
+        private SlowImageService(ImageService delegate, long latencyMillis) {
+            this.delegate = delegate;
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return delegate.imageContainsCat(image, confidenceThreshold);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.udacity.benchmarks;
+
+import com.udacity.image.service.ImagePreprocessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares preparing a camera frame for upload the old way, a default ImageIO JPEG encode of the full
+ * frame into a new byte array, against ImagePreprocessor. Both return the number of bytes that would be
+ * uploaded; run with -prof gc to compare allocation per frame.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImagePreprocessingBenchmark {
+
+    @Param({"640x480", "1920x1080"})
+    public String resolution;
+
+    private BufferedImage frame;
+    private ImagePreprocessor preprocessor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] size = resolution.split("x");
+        int width = Integer.parseInt(size[0]);
+        int height = Integer.parseInt(size[1]);
+        frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                //smooth gradient plus a little noise, closer to a photo than random pixels
+                frame.setRGB(x, y, ((x * 255 / width) << 16) | ((y * 255 / height) << 8) | random.nextInt(32));
+            }
+        }
+        preprocessor = new ImagePreprocessor();
+    }
+
+    @Benchmark
+    public int imageIoFullFrame() throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ImageIO.write(frame, "jpg", os);
+        return os.toByteArray().length;
+    }
+
+    @Benchmark
+    public int preprocessed() {
+        return preprocessor.encode(frame).remaining();
+    }
+}
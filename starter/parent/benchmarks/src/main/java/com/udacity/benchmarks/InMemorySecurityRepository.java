@@ -0,0 +1,77 @@
+package com.udacity.benchmarks;
+
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.SecurityRepository;
+import com.udacity.security.data.Sensor;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Repository that never persists anything. Used to measure the SecurityService on its own,
+ * without the cost of whichever storage backend is configured.
+ */
+public class InMemorySecurityRepository implements SecurityRepository {
+
+    private final Set<Sensor> sensors = ConcurrentHashMap.newKeySet();
+    private volatile AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private volatile ArmingStatus armingStatus = ArmingStatus.DISARMED;
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        sensors.add(sensor);
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        sensors.remove(sensor);
+    }
+
+    @Override
+    public void updateSensor(Sensor sensor) {
+        // sensors are held by reference, nothing to write
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+    }
+
+    @Override
+    public Set<Sensor> getSensors() {
+        return sensors;
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    @Override
+    public boolean areSensorsArmed() {
+        for (Sensor sensor : sensors) {
+            if (!sensor.getActive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void setAllSensorsInactive() {
+        for (Sensor sensor : sensors) {
+            sensor.setActive(false);
+        }
+    }
+}
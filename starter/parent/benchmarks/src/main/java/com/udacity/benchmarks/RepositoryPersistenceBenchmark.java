@@ -0,0 +1,166 @@
+package com.udacity.benchmarks;
+
+import com.udacity.security.data.BinaryFileSecurityStateStore;
+import com.udacity.security.data.EventLogSecurityRepositoryImpl;
+import com.udacity.security.data.PreferencesSecurityStateStore;
+import com.udacity.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.security.data.SecurityRepository;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+/**
+ * Measures sensor writes through PretendDatabaseSecurityRepositoryImpl, in both write-through
+ * and write-behind mode, and through EventLogSecurityRepositoryImpl.
+ *
+ * Preferences values are limited to 8 KB, which the serialized sensor list passes at a few dozen
+ * sensors, so write-through to the preferences can only be measured for small installations. It
+ * writes to a throwaway preferences node, never the app's own. Write-behind mode flushes to a
+ * BinaryFileSecurityStateStore in a temporary directory, which has no size limit, so every snapshot
+ * it times is really written.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryPersistenceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class WriteThrough {
+        @Param({"10", "40"})
+        public int sensorCount;
+
+        Preferences node;
+        PretendDatabaseSecurityRepositoryImpl repository;
+        Sensor[] sensors;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            node = Preferences.userRoot().node("catpoint-benchmark-" + System.nanoTime());
+            repository = new PretendDatabaseSecurityRepositoryImpl(new PreferencesSecurityStateStore(node));
+            sensors = addSensors(repository, sensorCount);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws BackingStoreException {
+            node.removeNode();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class WriteBehind {
+        @Param({"10", "1000", "100000"})
+        public int sensorCount;
+
+        Path directory;
+        BinaryFileSecurityStateStore store;
+        PretendDatabaseSecurityRepositoryImpl repository;
+        Sensor[] sensors;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("write-behind-benchmark");
+            store = new BinaryFileSecurityStateStore(directory.resolve("sensors.bin"));
+            repository = new PretendDatabaseSecurityRepositoryImpl(store, 1_000, 100);
+            sensors = addSensors(repository, sensorCount);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            repository.close();
+            Files.deleteIfExists(store.getFile());
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class EventLog {
+        @Param({"10", "1000", "100000"})
+        public int sensorCount;
+
+        Path directory;
+        EventLogSecurityRepositoryImpl repository;
+        Sensor[] sensors;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("event-log-benchmark");
+            repository = new EventLogSecurityRepositoryImpl(directory);
+            sensors = addSensors(repository, sensorCount);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            repository.close();
+            try (var paths = Files.walk(directory)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    public void updateSensorWriteThrough(WriteThrough state) {
+        update(state.repository, state.sensors);
+    }
+
+    @Benchmark
+    public void updateSensorWriteBehind(WriteBehind state) {
+        update(state.repository, state.sensors);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void updateSensorWriteBehindConcurrent(WriteBehind state) {
+        update(state.repository, state.sensors);
+    }
+
+    @Benchmark
+    public void updateSensorEventLog(EventLog state) {
+        update(state.repository, state.sensors);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void updateSensorEventLogConcurrent(EventLog state) {
+        update(state.repository, state.sensors);
+    }
+
+    private static void update(SecurityRepository repository, Sensor[] sensors) {
+        Sensor sensor = sensors[ThreadLocalRandom.current().nextInt(sensors.length)];
+        sensor.setActive(!sensor.getActive());
+        repository.updateSensor(sensor);
+    }
+
+    private static Sensor[] addSensors(SecurityRepository repository, int count) {
+        Sensor[] sensors = new Sensor[count];
+        SensorType[] types = SensorType.values();
+        for (int i = 0; i < count; i++) {
+            sensors[i] = new Sensor("Sensor " + i, types[i % types.length]);
+            repository.addSensor(sensors[i]);
+        }
+        return sensors;
+    }
+}
@@ -0,0 +1,114 @@
+package com.udacity.benchmarks;
+
+import com.udacity.image.service.FakeImageServiceImpl;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.SecurityService;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the SecurityService state machine against an in-memory repository, so only the
+ * service's own bookkeeping is timed. Each benchmark runs at 10, 1k and 100k installed sensors,
+ * and the sensor update benchmarks also run with several threads feeding the same service.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecurityServiceBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int sensorCount;
+
+    private SecurityService securityService;
+    private Sensor[] sensors;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        securityService = new SecurityService(new InMemorySecurityRepository(), new FakeImageServiceImpl());
+        sensors = new Sensor[sensorCount];
+        SensorType[] types = SensorType.values();
+        for (int i = 0; i < sensorCount; i++) {
+            sensors[i] = new Sensor("Sensor " + i, types[i % types.length]);
+            securityService.addSensor(sensors[i]);
+        }
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+    }
+
+    /**
+     * Per-thread position in the sensor array, so threads spread their updates over all sensors.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            next = (int) Thread.currentThread().getId() * 7919;
+        }
+
+        int next(int bound) {
+            next = (next + 1) % bound;
+            return next;
+        }
+    }
+
+    @Benchmark
+    public void changeSensorActivationStatus(Cursor cursor) {
+        Sensor sensor = sensors[cursor.next(sensorCount)];
+        securityService.changeSensorActivationStatus(sensor, sensor.getActive());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void changeSensorActivationStatusConcurrent(Cursor cursor) {
+        Sensor sensor = sensors[cursor.next(sensorCount)];
+        securityService.changeSensorActivationStatus(sensor, sensor.getActive());
+    }
+
+    /**
+     * Re-arming armed-home resets every sensor, so this scales with the number of sensors.
+     */
+    @Benchmark
+    public void setArmingStatusArmedHome() {
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+    }
+
+    @Benchmark
+    public void setArmingStatusArmedAway() {
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+    }
+
+    @Benchmark
+    public void addAndRemoveSensor() {
+        Sensor sensor = new Sensor("Transient", SensorType.DOOR);
+        securityService.addSensor(sensor);
+        securityService.removeSensor(sensor);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void addAndRemoveSensorConcurrent() {
+        Sensor sensor = new Sensor("Transient", SensorType.DOOR);
+        securityService.addSensor(sensor);
+        securityService.removeSensor(sensor);
+    }
+}
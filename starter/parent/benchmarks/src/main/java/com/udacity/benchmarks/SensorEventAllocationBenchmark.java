@@ -0,0 +1,106 @@
+package com.udacity.benchmarks;
+
+import com.udacity.image.service.FakeImageServiceImpl;
+import com.udacity.security.application.StatusListener;
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.ColumnarSecurityRepositoryImpl;
+import com.udacity.security.data.SecurityService;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sensor events on the path that should not allocate: an in-memory repository, no flight recording
+ * and an inline listener. Run with -prof gc; gc.alloc.rate.norm should stay at about zero bytes per
+ * operation for both repositories and with several threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SensorEventAllocationBenchmark {
+
+    private static final int SENSOR_COUNT = 1000;
+
+    @Param({"objects", "columnar"})
+    public String store;
+
+    private SecurityService securityService;
+    private Sensor[] sensors;
+
+    @Setup(Level.Trial)
+    public void setUp(Blackhole blackhole) {
+        securityService = new SecurityService(
+                "columnar".equals(store) ? new ColumnarSecurityRepositoryImpl() : new InMemorySecurityRepository(),
+                new FakeImageServiceImpl());
+        securityService.addStatusListener(new StatusListener() {
+            @Override
+            public void notify(AlarmStatus status) {
+                blackhole.consume(status);
+            }
+
+            @Override
+            public void catDetected(boolean catDetected) {
+                blackhole.consume(catDetected);
+            }
+
+            @Override
+            public void sensorStatusChanged() {
+                blackhole.consume(0);
+            }
+        });
+        sensors = new Sensor[SENSOR_COUNT];
+        SensorType[] types = SensorType.values();
+        for (int i = 0; i < SENSOR_COUNT; i++) {
+            sensors[i] = new Sensor("Sensor " + i, types[i % types.length]);
+            securityService.addSensor(sensors[i]);
+        }
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            next = (int) Thread.currentThread().getId() * 7919;
+        }
+
+        int next(int bound) {
+            next = (next + 1) % bound;
+            return next;
+        }
+    }
+
+    @Benchmark
+    public void changeSensorActivationStatus(Cursor cursor) {
+        Sensor sensor = sensors[cursor.next(SENSOR_COUNT)];
+        securityService.changeSensorActivationStatus(sensor, sensor.getActive());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void changeSensorActivationStatusConcurrent(Cursor cursor) {
+        Sensor sensor = sensors[cursor.next(SENSOR_COUNT)];
+        securityService.changeSensorActivationStatus(sensor, sensor.getActive());
+    }
+}
@@ -0,0 +1,72 @@
+package com.udacity.benchmarks;
+
+import com.udacity.security.data.ColumnarSecurityRepositoryImpl;
+import com.udacity.security.data.SecurityRepository;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares sensors held as objects in a hash set with the columnar store. The whole-estate checks
+ * walk every sensor in the object store but scan a BitSet in the columnar one; the single sensor
+ * update shows what the columnar store pays to copy fields in. Run with -Xmx and -prof gc to compare
+ * the heap each store needs at a million sensors.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SensorStoreBenchmark {
+
+    @Param({"1000", "1000000"})
+    public int sensorCount;
+
+    @Param({"objects", "columnar"})
+    public String store;
+
+    private SecurityRepository repository;
+    private Sensor[] sensors;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = "columnar".equals(store) ? new ColumnarSecurityRepositoryImpl() : new InMemorySecurityRepository();
+        sensors = new Sensor[sensorCount];
+        SensorType[] types = SensorType.values();
+        for (int i = 0; i < sensorCount; i++) {
+            sensors[i] = new Sensor("Sensor " + (i % 100), types[i % types.length]);
+            sensors[i].setActive(true);
+            repository.addSensor(sensors[i]);
+        }
+    }
+
+    /**
+     * Every sensor is active, so the check has to look at all of them.
+     */
+    @Benchmark
+    public boolean areSensorsArmed() {
+        return repository.areSensorsArmed();
+    }
+
+    @Benchmark
+    public void updateSensor() {
+        Sensor sensor = sensors[next];
+        next = (next + 1) % sensorCount;
+        repository.updateSensor(sensor);
+    }
+}
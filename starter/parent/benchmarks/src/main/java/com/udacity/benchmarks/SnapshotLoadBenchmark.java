@@ -0,0 +1,117 @@
+package com.udacity.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.BinaryFileSecurityStateStore;
+import com.udacity.security.data.BinarySnapshotFormat;
+import com.udacity.security.data.SecurityState;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the startup load and the snapshot save of the Gson/Preferences path with the binary
+ * snapshot format. The Gson benchmarks parse and produce the same JSON string the preferences
+ * store keeps, without the 8 KB Preferences limit, so the two encodings can be compared at every size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnapshotLoadBenchmark {
+
+    private static final Gson gson = new Gson();
+    private static final Type SENSOR_SET = new TypeToken<Set<Sensor>>() {
+    }.getType();
+
+    @Param({"10", "1000", "100000"})
+    public int sensorCount;
+
+    private List<Sensor> sensors;
+    private String json;
+    private byte[] binary;
+    private Path directory;
+    private BinaryFileSecurityStateStore fileStore;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        sensors = new ArrayList<>(sensorCount);
+        SensorType[] types = SensorType.values();
+        for (int i = 0; i < sensorCount; i++) {
+            Sensor sensor = new Sensor("Sensor " + i, types[i % types.length]);
+            sensor.setActive(i % 2 == 0);
+            sensors.add(sensor);
+        }
+        json = gson.toJson(sensors);
+        binary = BinarySnapshotFormat.encode(new SecurityState(sensors, AlarmStatus.NO_ALARM, ArmingStatus.ARMED_HOME));
+
+        directory = Files.createTempDirectory("snapshot-benchmark");
+        fileStore = new BinaryFileSecurityStateStore(directory.resolve("sensors.bin"));
+        fileStore.saveSensors(sensors);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(fileStore.getFile());
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public Set<Sensor> loadGson() {
+        return gson.fromJson(json, SENSOR_SET);
+    }
+
+    @Benchmark
+    public SecurityState loadBinary() throws IOException {
+        return BinarySnapshotFormat.read(new ByteArrayInputStream(binary));
+    }
+
+    @Benchmark
+    public SecurityState loadBinaryFile() {
+        return fileStore.load();
+    }
+
+    @Benchmark
+    public String saveGson() {
+        return gson.toJson(sensors);
+    }
+
+    @Benchmark
+    public byte[] saveBinary() {
+        return BinarySnapshotFormat.encodeSensors(sensors);
+    }
+
+    /**
+     * Includes the fsync and atomic rename, so this is dominated by the disk.
+     */
+    @Benchmark
+    public void saveBinaryFile() {
+        fileStore.saveSensors(sensors);
+    }
+}
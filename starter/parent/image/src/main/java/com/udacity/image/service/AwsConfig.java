@@ -0,0 +1,44 @@
+package com.udacity.image.service;
+
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * AWS credentials and region read from config.properties on the classpath. See AwsImageServiceImpl
+ * for the expected keys.
+ */
+final class AwsConfig {
+    private final StaticCredentialsProvider credentialsProvider;
+    private final Region region;
+
+    private AwsConfig(StaticCredentialsProvider credentialsProvider, Region region) {
+        this.credentialsProvider = credentialsProvider;
+        this.region = region;
+    }
+
+    static AwsConfig load() throws IOException {
+        Properties props = new Properties();
+        try (InputStream is = AwsConfig.class.getClassLoader().getResourceAsStream("config.properties")) {
+            if (is == null) {
+                throw new IOException("config.properties not found");
+            }
+            props.load(is);
+        }
+        return new AwsConfig(
+                StaticCredentialsProvider.create(AwsBasicCredentials.create(props.getProperty("aws.id"), props.getProperty("aws.secret"))),
+                Region.of(props.getProperty("aws.region")));
+    }
+
+    StaticCredentialsProvider getCredentialsProvider() {
+        return credentialsProvider;
+    }
+
+    Region getRegion() {
+        return region;
+    }
+}
@@ -2,22 +2,15 @@ package com.udacity.image.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
-import software.amazon.awssdk.auth.credentials.AwsCredentials;
-import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.core.SdkBytes;
-import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.rekognition.RekognitionClient;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
 import software.amazon.awssdk.services.rekognition.model.Image;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.Properties;
+import java.io.UncheckedIOException;
 import java.util.stream.Collectors;
 
 /**
@@ -32,6 +25,13 @@ import java.util.stream.Collectors;
  *      aws.id=[your access key id]
  *      aws.secret=[your Secret access key]
  *      aws.region=[an aws region of choice. For example: us-east-2]
+ *
+ * Frames go through an ImagePreprocessor before upload, so large camera images are scaled down and
+ * encoded once with a reused JPEG writer.
+ *
+ * This service makes one blocking call per frame. With many cameras, use a CoalescingImageServiceImpl
+ * over an AwsLabelDetectionClient instead, which shares calls for identical frames and limits how many
+ * are in flight.
  */
 public class AwsImageServiceImpl implements ImageService {
 
@@ -40,23 +40,28 @@ public class AwsImageServiceImpl implements ImageService {
     //aws recommendation is to maintain only a single instance of client objects
     private static RekognitionClient rekognitionClient;
 
+    private final ImagePreprocessor preprocessor;
+
     public AwsImageServiceImpl() {
-        Properties props = new Properties();
-        try (InputStream is = getClass().getClassLoader().getResourceAsStream("config.properties")) {
-            props.load(is);
+        this(new ImagePreprocessor());
+    }
+
+    /**
+     * @param preprocessor Scales and encodes frames before they are uploaded
+     */
+    public AwsImageServiceImpl(ImagePreprocessor preprocessor) {
+        this.preprocessor = preprocessor;
+        AwsConfig config;
+        try {
+            config = AwsConfig.load();
         } catch (IOException ioe ) {
             log.error("Unable to initialize AWS Rekognition, no properties file found", ioe);
             return;
         }
 
-        String awsId = props.getProperty("aws.id");
-        String awsSecret = props.getProperty("aws.secret");
-        String awsRegion = props.getProperty("aws.region");
-
-        AwsCredentials awsCredentials = AwsBasicCredentials.create(awsId, awsSecret);
         rekognitionClient = RekognitionClient.builder()
-                .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
-                .region(Region.of(awsRegion))
+                .credentialsProvider(config.getCredentialsProvider())
+                .region(config.getRegion())
                 .build();
     }
 
@@ -69,10 +74,10 @@ public class AwsImageServiceImpl implements ImageService {
     @Override
     public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
         Image awsImage = null;
-        try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
-            ImageIO.write(image, "jpg", os);
-            awsImage = Image.builder().bytes(SdkBytes.fromByteArray(os.toByteArray())).build();
-        } catch (IOException ioe) {
+        try {
+            //the encoded bytes live in a reused buffer, so SdkBytes takes its single copy here
+            awsImage = Image.builder().bytes(SdkBytes.fromByteBuffer(preprocessor.encode(image))).build();
+        } catch (UncheckedIOException ioe) {
             log.error("Error building image byte array", ioe);
             return false;
         }
@@ -0,0 +1,69 @@
+package com.udacity.image.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.services.rekognition.RekognitionAsyncClient;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
+import software.amazon.awssdk.services.rekognition.model.Image;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * LabelDetectionClient backed by the asynchronous Rekognition client, so calls in flight do not hold a
+ * thread each. Reads the same config.properties as AwsImageServiceImpl. Use it through a
+ * CoalescingImageServiceImpl to get request coalescing and a concurrency limit.
+ */
+public class AwsLabelDetectionClient implements LabelDetectionClient, AutoCloseable {
+
+    private final Logger log = LoggerFactory.getLogger(AwsLabelDetectionClient.class);
+
+    private final RekognitionAsyncClient rekognitionClient;
+
+    /**
+     * @param maxConcurrency Largest number of open HTTP connections, normally the same as the limiter in front of this client
+     */
+    public AwsLabelDetectionClient(int maxConcurrency) {
+        RekognitionAsyncClient client = null;
+        try {
+            AwsConfig config = AwsConfig.load();
+            client = RekognitionAsyncClient.builder()
+                    .credentialsProvider(config.getCredentialsProvider())
+                    .region(config.getRegion())
+                    .httpClientBuilder(NettyNioAsyncHttpClient.builder().maxConcurrency(maxConcurrency))
+                    .build();
+        } catch (IOException ioe) {
+            log.error("Unable to initialize AWS Rekognition, no properties file found", ioe);
+        }
+        this.rekognitionClient = client;
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Float>> detectLabels(ByteBuffer jpeg, float minConfidence) {
+        if (rekognitionClient == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("AWS Rekognition is not configured"));
+        }
+        //SdkBytes copies the buffer here, before it is reused for the next frame
+        DetectLabelsRequest request = DetectLabelsRequest.builder()
+                .image(Image.builder().bytes(SdkBytes.fromByteBuffer(jpeg)).build())
+                .minConfidence(minConfidence)
+                .build();
+        return rekognitionClient.detectLabels(request).thenApply(response -> {
+            Map<String, Float> labels = new LinkedHashMap<>();
+            response.labels().forEach(label -> labels.put(label.name(), label.confidence()));
+            return labels;
+        });
+    }
+
+    @Override
+    public void close() {
+        if (rekognitionClient != null) {
+            rekognitionClient.close();
+        }
+    }
+}
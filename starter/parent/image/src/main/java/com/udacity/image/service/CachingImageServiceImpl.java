@@ -0,0 +1,201 @@
+package com.udacity.image.service;
+
+import com.udacity.metrics.Counter;
+import com.udacity.metrics.MetricsRegistry;
+
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ImageService decorator that remembers recent results. Frames are keyed by their perceptual hash and
+ * the requested confidence threshold, so a camera sending the same scene again skips the encode and the
+ * call to the wrapped service. A frame whose hash is within the configured Hamming distance of a cached
+ * one, for the same threshold, counts as the same scene. Entries are evicted least-recently-used once the
+ * cache is full, and are ignored once they are older than the configured time to live.
+ */
+public class CachingImageServiceImpl implements ImageService {
+
+    //shared by every cache, the registry reports the hit rate of the application as a whole
+    private static final Counter HIT_COUNTER = MetricsRegistry.global().counter("image.cache.lookups", "result", "hit");
+    private static final Counter MISS_COUNTER = MetricsRegistry.global().counter("image.cache.lookups", "result", "miss");
+
+    private final ImageService delegate;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final int maxHashDistance;
+    private final Map<CacheKey, CacheEntry> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a cache that only reuses a result for a frame with exactly the same hash.
+     * @param delegate Service to ask when a frame is not in the cache
+     * @param maxEntries Maximum number of results to keep
+     * @param ttlMillis How long a result stays valid, in milliseconds
+     */
+    public CachingImageServiceImpl(ImageService delegate, int maxEntries, long ttlMillis) {
+        this(delegate, maxEntries, ttlMillis, 0);
+    }
+
+    /**
+     * @param delegate Service to ask when a frame is not in the cache
+     * @param maxEntries Maximum number of results to keep
+     * @param ttlMillis How long a result stays valid, in milliseconds
+     * @param maxHashDistance Most hash bits that may differ for a frame to reuse a cached result, 0 to 64
+     */
+    public CachingImageServiceImpl(ImageService delegate, int maxEntries, long ttlMillis, int maxHashDistance) {
+        if (maxEntries < 1 || ttlMillis < 1) {
+            throw new IllegalArgumentException("maxEntries and ttlMillis must be positive");
+        }
+        if (maxHashDistance < 0 || maxHashDistance > Long.SIZE) {
+            throw new IllegalArgumentException("maxHashDistance must be between 0 and 64");
+        }
+        this.delegate = Objects.requireNonNull(delegate);
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.maxHashDistance = maxHashDistance;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+                if (size() > CachingImageServiceImpl.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        if (image == null) {
+            return delegate.imageContainsCat(null, confidenceThreshold);
+        }
+
+        CacheKey key = new CacheKey(PerceptualHash.dHash(image), confidenceThreshold);
+        long now = System.nanoTime();
+        synchronized (cache) {
+            CacheKey cachedKey = findKey(key);
+            if (cachedKey != null) {
+                //get rather than the entry found by the scan, so the access order is updated
+                CacheEntry entry = cache.get(cachedKey);
+                if (now - entry.createdNanos < ttlNanos) {
+                    hits.incrementAndGet();
+                    HIT_COUNTER.increment();
+                    return entry.containsCat;
+                }
+                cache.remove(cachedKey);
+                evictions.incrementAndGet();
+            }
+        }
+
+        misses.incrementAndGet();
+        MISS_COUNTER.increment();
+        boolean containsCat = delegate.imageContainsCat(image, confidenceThreshold);
+        synchronized (cache) {
+            cache.put(key, new CacheEntry(containsCat, System.nanoTime()));
+        }
+        return containsCat;
+    }
+
+    /**
+     * Key of the cached result to use for a frame: the exact key if present, otherwise the nearest key with
+     * the same threshold that is within maxHashDistance. Called holding the cache lock.
+     */
+    private CacheKey findKey(CacheKey key) {
+        if (cache.containsKey(key)) {
+            return key;
+        }
+        if (maxHashDistance == 0) {
+            return null;
+        }
+        CacheKey nearest = null;
+        int nearestDistance = maxHashDistance + 1;
+        for (CacheKey candidate : cache.keySet()) {
+            if (Float.compare(candidate.confidenceThreshold, key.confidenceThreshold) != 0) {
+                continue;
+            }
+            int distance = PerceptualHash.distance(candidate.hash, key.hash);
+            if (distance < nearestDistance) {
+                nearest = candidate;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Number of results dropped, either because the cache was full or because they had expired.
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Fraction of lookups answered from the cache, or 0 if there have been no lookups yet.
+     */
+    public double getHitRate() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private static final class CacheKey {
+        private final long hash;
+        private final float confidenceThreshold;
+
+        private CacheKey(long hash, float confidenceThreshold) {
+            this.hash = hash;
+            this.confidenceThreshold = confidenceThreshold;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            CacheKey cacheKey = (CacheKey) o;
+            return hash == cacheKey.hash && Float.compare(cacheKey.confidenceThreshold, confidenceThreshold) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(hash) + Float.hashCode(confidenceThreshold);
+        }
+    }
+
+    private static final class CacheEntry {
+        private final boolean containsCat;
+        private final long createdNanos;
+
+        private CacheEntry(boolean containsCat, long createdNanos) {
+            this.containsCat = containsCat;
+            this.createdNanos = createdNanos;
+        }
+    }
+}
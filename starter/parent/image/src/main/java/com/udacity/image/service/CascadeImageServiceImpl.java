@@ -0,0 +1,94 @@
+package com.udacity.image.service;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ImageService that sends each frame through progressively more expensive checks and stops as soon as
+ * one of them can answer:
+ * <ol>
+ *   <li>a MotionGate; a frame that looks the same as the previous one gets the previous answer,</li>
+ *   <li>a local CatClassifier, which settles every frame whose confidence is not within the unsure
+ *   margin of the threshold, and</li>
+ *   <li>the remote service, for the frames left over.</li>
+ * </ol>
+ * Either detector may be left out. Most camera frames show an unchanged, empty room, so most frames
+ * stop at the gate and only a small share ever reach the remote service. Per-tier pass rates and
+ * latency are available from {@link #getTierStats()}.
+ */
+public class CascadeImageServiceImpl implements ImageService {
+
+    private final MotionGate motionGate;
+    private final CatClassifier classifier;
+    private final ImageService remote;
+    private final float unsureMargin;
+
+    private final TierStats gateStats = new TierStats("motion gate");
+    private final TierStats localStats = new TierStats("local classifier");
+    private final TierStats remoteStats = new TierStats("remote service");
+
+    private volatile boolean lastResult;
+
+    /**
+     * @param motionGate Gate that decides whether a frame changed enough to be analyzed
+     * @param classifier Local model, or null to send every moving frame to the remote service
+     * @param remote Remote service, or null to trust the local model for every frame
+     * @param unsureMargin Distance from the threshold, in confidence points, within which the local model defers to the remote service
+     */
+    public CascadeImageServiceImpl(MotionGate motionGate, CatClassifier classifier, ImageService remote, float unsureMargin) {
+        if (classifier == null && remote == null) {
+            throw new IllegalArgumentException("At least one of classifier and remote is required");
+        }
+        if (unsureMargin < 0f) {
+            throw new IllegalArgumentException("unsureMargin must not be negative");
+        }
+        this.motionGate = motionGate;
+        this.classifier = classifier;
+        this.remote = remote;
+        this.unsureMargin = unsureMargin;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        long start = System.nanoTime();
+        boolean motion = motionGate.hasMotion(image);
+        gateStats.record(start, motion);
+        if (!motion) {
+            return lastResult;
+        }
+
+        if (classifier != null) {
+            start = System.nanoTime();
+            float confidence = classifier.catConfidence(image);
+            boolean unsure = remote != null && Math.abs(confidence - confidenceThreshold) < unsureMargin;
+            localStats.record(start, unsure);
+            if (!unsure) {
+                lastResult = confidence >= confidenceThreshold;
+                return lastResult;
+            }
+        }
+
+        start = System.nanoTime();
+        boolean result = remote.imageContainsCat(image, confidenceThreshold);
+        remoteStats.record(start, false);
+        lastResult = result;
+        return result;
+    }
+
+    /**
+     * Figures for the gate, the local classifier and the remote service, in that order. Tiers that were
+     * left out are not included.
+     */
+    public List<TierStats> getTierStats() {
+        List<TierStats> stats = new ArrayList<>(3);
+        stats.add(gateStats);
+        if (classifier != null) {
+            stats.add(localStats);
+        }
+        if (remote != null) {
+            stats.add(remoteStats);
+        }
+        return stats;
+    }
+}
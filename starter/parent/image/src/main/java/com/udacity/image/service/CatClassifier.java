@@ -0,0 +1,15 @@
+package com.udacity.image.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Model that scores how likely a frame is to show a cat, without leaving the process.
+ */
+public interface CatClassifier {
+    /**
+     * @param image Frame to score
+     * @return Confidence that the frame shows a cat, from 0 to 100, on the same scale as the
+     * ImageService confidence threshold
+     */
+    float catConfidence(BufferedImage image);
+}
@@ -0,0 +1,264 @@
+package com.udacity.image.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ImageService that sends frames to a remote LabelDetectionClient without overwhelming it.
+ * <ul>
+ *   <li>Frames that are already being analyzed share the call in flight. Frames are matched by their
+ *   perceptual hash and threshold, so several cameras showing the same scene cost one call.</li>
+ *   <li>At most maxConcurrency calls are in flight. A caller waits up to the acquire timeout for a
+ *   free slot and is refused after that.</li>
+ *   <li>Each call times out after an adaptive limit derived from recent latency, the smoothed latency
+ *   plus four times its mean deviation, the same rule TCP uses for retransmission timers. A slow
+ *   service gets more time; a fast one fails fast when a call hangs.</li>
+ * </ul>
+ * Frames go through an ImagePreprocessor before upload. When a call fails, is refused or times out,
+ * imageContainsCat logs it and repeats the last answer the service did get, so an outage neither
+ * raises nor clears a cat alarm. imageContainsCatAsync reports the failure itself.
+ */
+public class CoalescingImageServiceImpl implements ImageService {
+
+    private static final long INITIAL_TIMEOUT_MILLIS = 2_000;
+    private static final long MIN_TIMEOUT_MILLIS = 250;
+    private static final long MAX_TIMEOUT_MILLIS = 10_000;
+
+    private final Logger log = LoggerFactory.getLogger(CoalescingImageServiceImpl.class);
+
+    private final LabelDetectionClient client;
+    private final ImagePreprocessor preprocessor;
+    private final Semaphore permits;
+    private final long acquireTimeoutMillis;
+    private final Map<FrameKey, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+    private final LatencyRecorder latencies = new LatencyRecorder(1024);
+
+    //adaptive timeout state, guarded by this
+    private double smoothedMillis = -1;
+    private double deviationMillis;
+    private volatile long timeoutMillis = INITIAL_TIMEOUT_MILLIS;
+    //answer of the most recent call that succeeded, repeated when a call fails
+    private volatile boolean lastAnswer;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Creates a service with the default preprocessor that waits up to one second for a free call slot.
+     * @param maxConcurrency Largest number of calls in flight at once
+     */
+    public CoalescingImageServiceImpl(LabelDetectionClient client, int maxConcurrency) {
+        this(client, new ImagePreprocessor(), maxConcurrency, 1_000);
+    }
+
+    /**
+     * @param client Remote service that does the analysis
+     * @param preprocessor Scales and encodes frames before upload
+     * @param maxConcurrency Largest number of calls in flight at once
+     * @param acquireTimeoutMillis Longest time a caller waits for a free call slot
+     */
+    public CoalescingImageServiceImpl(LabelDetectionClient client, ImagePreprocessor preprocessor,
+                                      int maxConcurrency, long acquireTimeoutMillis) {
+        if (maxConcurrency < 1 || acquireTimeoutMillis < 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive and acquireTimeoutMillis must not be negative");
+        }
+        this.client = Objects.requireNonNull(client);
+        this.preprocessor = Objects.requireNonNull(preprocessor);
+        this.permits = new Semaphore(maxConcurrency);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        try {
+            return imageContainsCatAsync(image, confidenceThreshold).join();
+        } catch (CompletionException e) {
+            boolean answer = lastAnswer;
+            log.warn("Image analysis failed, repeating the last answer ({})", answer, e.getCause());
+            return answer;
+        }
+    }
+
+    /**
+     * Starts analyzing a frame, or joins the call already analyzing the same frame. May wait up to the
+     * acquire timeout for a free call slot.
+     * @return Future holding the answer. It fails with a RejectedExecutionException if no slot became free,
+     * a TimeoutException if the call took too long, or the client's own error.
+     */
+    public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshold) {
+        requests.incrementAndGet();
+        FrameKey key = new FrameKey(PerceptualHash.dHash(image), confidenceThreshold);
+        CompletableFuture<Boolean> call = new CompletableFuture<>();
+        CompletableFuture<Boolean> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return existing.copy();
+        }
+        call.whenComplete((cat, error) -> inFlight.remove(key, call));
+        send(image, confidenceThreshold, call);
+        //callers get a copy so one of them cancelling does not cancel the shared call
+        return call.copy();
+    }
+
+    /**
+     * Number of frames submitted.
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Number of frames that joined a call already in flight instead of starting their own.
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * Number of calls made to the client.
+     */
+    public long getCallCount() {
+        return calls.get();
+    }
+
+    /**
+     * Number of frames refused because no call slot became free in time.
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * Timeout currently applied to new calls, in milliseconds.
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Latency of recent successful calls at the given percentile, in nanoseconds.
+     * @param percentile From 0 to 100, for example 99
+     */
+    public long getLatencyPercentileNanos(double percentile) {
+        return latencies.percentileNanos(percentile);
+    }
+
+    private void send(BufferedImage image, float confidenceThreshold, CompletableFuture<Boolean> call) {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                rejected.incrementAndGet();
+                call.completeExceptionally(new RejectedExecutionException("Too many image analysis calls in flight"));
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            call.completeExceptionally(e);
+            return;
+        }
+
+        CompletableFuture<Map<String, Float>> labels;
+        long start = System.nanoTime();
+        try {
+            ByteBuffer jpeg = preprocessor.encode(image);
+            calls.incrementAndGet();
+            labels = client.detectLabels(jpeg, confidenceThreshold);
+        } catch (RuntimeException e) {
+            permits.release();
+            failures.incrementAndGet();
+            call.completeExceptionally(e);
+            return;
+        }
+
+        //the slot is held until the remote call really ends, even if the caller has timed out, and is
+        //released in the stage that leads to the answer so no caller sees the answer before the slot is free
+        labels.whenComplete((result, error) -> {
+            permits.release();
+            if (error == null) {
+                recordLatency(System.nanoTime() - start);
+            }
+        }).thenApply(CoalescingImageServiceImpl::containsCat)
+                .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((cat, error) -> {
+                    if (error == null) {
+                        lastAnswer = cat;
+                        call.complete(cat);
+                        return;
+                    }
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    if (cause instanceof TimeoutException) {
+                        timeouts.incrementAndGet();
+                    } else {
+                        failures.incrementAndGet();
+                    }
+                    call.completeExceptionally(cause);
+                });
+    }
+
+    private void recordLatency(long nanos) {
+        latencies.record(nanos);
+        double millis = nanos / 1_000_000.0;
+        synchronized (this) {
+            if (smoothedMillis < 0) {
+                smoothedMillis = millis;
+                deviationMillis = millis / 2;
+            } else {
+                deviationMillis = 0.75 * deviationMillis + 0.25 * Math.abs(smoothedMillis - millis);
+                smoothedMillis = 0.875 * smoothedMillis + 0.125 * millis;
+            }
+            long timeout = (long) Math.ceil(smoothedMillis + 4 * deviationMillis);
+            timeoutMillis = Math.max(MIN_TIMEOUT_MILLIS, Math.min(MAX_TIMEOUT_MILLIS, timeout));
+        }
+    }
+
+    private static boolean containsCat(Map<String, Float> labels) {
+        return labels.keySet().stream().anyMatch(name -> name.toLowerCase().contains("cat"));
+    }
+
+    private static final class FrameKey {
+        private final long hash;
+        private final float confidenceThreshold;
+
+        private FrameKey(long hash, float confidenceThreshold) {
+            this.hash = hash;
+            this.confidenceThreshold = confidenceThreshold;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            FrameKey frameKey = (FrameKey) o;
+            return hash == frameKey.hash && Float.compare(frameKey.confidenceThreshold, confidenceThreshold) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(hash, confidenceThreshold);
+        }
+    }
+}
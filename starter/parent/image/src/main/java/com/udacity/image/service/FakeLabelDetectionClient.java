@@ -0,0 +1,82 @@
+package com.udacity.image.service;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in for a remote label detection service, for load testing without network access or an AWS
+ * account. Each call completes after a base latency plus random jitter, and one call in a hundred takes
+ * ten times as long, like the slow tail of a real service. Answers are random with the configured chance
+ * of a cat. The client also records how many calls were in flight at the same time.
+ */
+public class FakeLabelDetectionClient implements LabelDetectionClient, AutoCloseable {
+
+    private final long baseLatencyMillis;
+    private final long jitterMillis;
+    private final double catProbability;
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, r -> {
+        Thread thread = new Thread(r, "fake-label-detection");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    /**
+     * @param baseLatencyMillis Shortest time a call takes
+     * @param jitterMillis Largest random delay added to each call
+     * @param catProbability Chance, from 0 to 1, that a call reports a cat
+     */
+    public FakeLabelDetectionClient(long baseLatencyMillis, long jitterMillis, double catProbability) {
+        this.baseLatencyMillis = baseLatencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.catProbability = catProbability;
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Float>> detectLabels(ByteBuffer jpeg, float minConfidence) {
+        calls.incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long latency = baseLatencyMillis + (jitterMillis > 0 ? random.nextLong(jitterMillis + 1) : 0);
+        if (random.nextInt(100) == 0) {
+            latency *= 10;
+        }
+        Map<String, Float> labels = random.nextDouble() < catProbability
+                ? Map.of("Cat", 97.5f, "Pet", 96.0f)
+                : Map.of("Furniture", 91.0f, "Indoors", 88.5f);
+
+        CompletableFuture<Map<String, Float>> result = new CompletableFuture<>();
+        scheduler.schedule(() -> {
+            inFlight.decrementAndGet();
+            result.complete(labels);
+        }, latency, TimeUnit.MILLISECONDS);
+        return result;
+    }
+
+    public long getCallCount() {
+        return calls.get();
+    }
+
+    /**
+     * Largest number of calls that were in flight at the same time.
+     */
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,91 @@
+package com.udacity.image.service;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+/**
+ * Fixed-length feature vector used by the local classifiers. The frame is reduced to a small grid of
+ * brightness and colour samples, then described by
+ * <ul>
+ *   <li>a histogram of edge orientations in each cell of a 4x4 grid (a cut-down HOG descriptor),
+ *   which captures shapes such as ears, eyes and whiskers, and</li>
+ *   <li>a coarse hue histogram weighted by saturation, which captures fur colours.</li>
+ * </ul>
+ * The cost depends only on the sample grid, not on the frame size.
+ */
+final class ImageFeatures {
+    private static final int GRID = 64;
+    private static final int CELLS = 4;
+    private static final int CELL_SIZE = GRID / CELLS;
+    private static final int ORIENTATION_BINS = 9;
+    private static final int HUE_BINS = 8;
+
+    static final int LENGTH = CELLS * CELLS * ORIENTATION_BINS + HUE_BINS;
+
+    private ImageFeatures() {
+    }
+
+    /**
+     * Computes the feature vector of a frame.
+     * @return LENGTH values, each cell and the hue histogram normalized to unit length
+     */
+    static float[] extract(BufferedImage image) {
+        float[] gray = new float[GRID * GRID];
+        float[] hue = new float[HUE_BINS];
+        int width = image.getWidth();
+        int height = image.getHeight();
+        float[] hsb = new float[3];
+
+        for (int gy = 0; gy < GRID; gy++) {
+            int y = (int) ((gy + 0.5) * height / GRID);
+            for (int gx = 0; gx < GRID; gx++) {
+                int x = (int) ((gx + 0.5) * width / GRID);
+                int rgb = image.getRGB(x, y);
+                gray[gy * GRID + gx] = PerceptualHash.luminance(rgb) / 255f;
+                Color.RGBtoHSB((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF, hsb);
+                hue[Math.min(HUE_BINS - 1, (int) (hsb[0] * HUE_BINS))] += hsb[1];
+            }
+        }
+
+        float[] features = new float[LENGTH];
+        for (int gy = 1; gy < GRID - 1; gy++) {
+            for (int gx = 1; gx < GRID - 1; gx++) {
+                float dx = gray[gy * GRID + gx + 1] - gray[gy * GRID + gx - 1];
+                float dy = gray[(gy + 1) * GRID + gx] - gray[(gy - 1) * GRID + gx];
+                float magnitude = (float) Math.sqrt(dx * dx + dy * dy);
+                if (magnitude == 0f) {
+                    continue;
+                }
+                //unsigned orientation in [0, pi)
+                double angle = Math.atan2(dy, dx);
+                if (angle < 0) {
+                    angle += Math.PI;
+                }
+                int bin = Math.min(ORIENTATION_BINS - 1, (int) (angle / Math.PI * ORIENTATION_BINS));
+                int cell = (gy / CELL_SIZE) * CELLS + gx / CELL_SIZE;
+                features[cell * ORIENTATION_BINS + bin] += magnitude;
+            }
+        }
+
+        for (int cell = 0; cell < CELLS * CELLS; cell++) {
+            normalize(features, cell * ORIENTATION_BINS, ORIENTATION_BINS);
+        }
+        System.arraycopy(hue, 0, features, CELLS * CELLS * ORIENTATION_BINS, HUE_BINS);
+        normalize(features, CELLS * CELLS * ORIENTATION_BINS, HUE_BINS);
+        return features;
+    }
+
+    private static void normalize(float[] values, int offset, int length) {
+        double sum = 0;
+        for (int i = offset; i < offset + length; i++) {
+            sum += values[i] * values[i];
+        }
+        if (sum == 0) {
+            return;
+        }
+        float scale = (float) (1.0 / Math.sqrt(sum));
+        for (int i = offset; i < offset + length; i++) {
+            values[i] *= scale;
+        }
+    }
+}
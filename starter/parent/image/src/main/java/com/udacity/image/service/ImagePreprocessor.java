@@ -0,0 +1,173 @@
+package com.udacity.image.service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prepares camera frames for upload to an image analysis service. Frames larger than the target size
+ * are scaled down, keeping their aspect ratio, and then JPEG encoded at a fixed quality.
+ *
+ * Each thread keeps its own JPEG ImageWriter and output buffer and reuses them for every frame, so
+ * encoding does not look up a writer or grow a fresh byte array each time. The buffer returned by
+ * {@link #encode(BufferedImage)} is a view of that thread's buffer and is only valid until the same
+ * thread encodes another frame.
+ */
+public class ImagePreprocessor {
+
+    public static final int DEFAULT_MAX_WIDTH = 640;
+    public static final int DEFAULT_MAX_HEIGHT = 480;
+    public static final float DEFAULT_JPEG_QUALITY = 0.8f;
+
+    private final int maxWidth;
+    private final int maxHeight;
+    private final float jpegQuality;
+    private final ThreadLocal<Encoder> encoders = ThreadLocal.withInitial(Encoder::new);
+
+    private final AtomicLong encodedFrames = new AtomicLong();
+    private final AtomicLong encodedBytes = new AtomicLong();
+
+    /**
+     * Creates a preprocessor that fits frames within 640x480 and encodes them at quality 0.8.
+     */
+    public ImagePreprocessor() {
+        this(DEFAULT_MAX_WIDTH, DEFAULT_MAX_HEIGHT, DEFAULT_JPEG_QUALITY);
+    }
+
+    /**
+     * @param maxWidth Largest width sent for analysis, in pixels
+     * @param maxHeight Largest height sent for analysis, in pixels
+     * @param jpegQuality JPEG quality between 0 and 1
+     */
+    public ImagePreprocessor(int maxWidth, int maxHeight, float jpegQuality) {
+        if (maxWidth < 1 || maxHeight < 1) {
+            throw new IllegalArgumentException("maxWidth and maxHeight must be positive");
+        }
+        if (jpegQuality < 0f || jpegQuality > 1f) {
+            throw new IllegalArgumentException("jpegQuality must be between 0 and 1");
+        }
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+        this.jpegQuality = jpegQuality;
+    }
+
+    /**
+     * Returns the frame scaled to fit within the target size, as an RGB image JPEG can encode. Frames that
+     * already fit and are RGB are returned unchanged.
+     */
+    public BufferedImage downscale(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = Math.min(1.0, Math.min((double) maxWidth / width, (double) maxHeight / height));
+        if (scale == 1.0 && image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+        BufferedImage scaled = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(image, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            g.dispose();
+        }
+        return scaled;
+    }
+
+    /**
+     * Scales the frame down if needed and encodes it as JPEG.
+     * @return Read-only view of the encoded bytes, valid until this thread encodes another frame
+     */
+    public ByteBuffer encode(BufferedImage image) {
+        Encoder encoder = encoders.get();
+        ByteBuffer encoded = encoder.encode(downscale(image), jpegQuality);
+        encodedFrames.incrementAndGet();
+        encodedBytes.addAndGet(encoded.remaining());
+        return encoded;
+    }
+
+    public long getEncodedFrameCount() {
+        return encodedFrames.get();
+    }
+
+    /**
+     * Total size of every encoded frame, in bytes.
+     */
+    public long getEncodedByteCount() {
+        return encodedBytes.get();
+    }
+
+    /**
+     * A JPEG writer and output buffer owned by one thread.
+     */
+    private static final class Encoder {
+        private final ImageWriter writer;
+        private final ImageWriteParam param;
+        private final ReusableOutputStream output = new ReusableOutputStream();
+
+        private Encoder() {
+            this.writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            this.param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        }
+
+        private ByteBuffer encode(BufferedImage image, float quality) {
+            output.reset();
+            param.setCompressionQuality(quality);
+            try (ImageOutputStream stream = new MemoryCacheImageOutputStream(output)) {
+                writer.setOutput(stream);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                writer.setOutput(null);
+            }
+            return ByteBuffer.wrap(output.buffer, 0, output.count).asReadOnlyBuffer();
+        }
+    }
+
+    /**
+     * Byte array output stream that keeps its array between frames instead of allocating a new one.
+     */
+    private static final class ReusableOutputStream extends OutputStream {
+        private byte[] buffer = new byte[64 * 1024];
+        private int count;
+
+        private void reset() {
+            count = 0;
+        }
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(count + 1);
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+            }
+        }
+    }
+}
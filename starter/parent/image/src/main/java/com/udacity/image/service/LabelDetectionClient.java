@@ -0,0 +1,19 @@
+package com.udacity.image.service;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking connection to a remote label detection service such as AWS Rekognition.
+ */
+public interface LabelDetectionClient {
+    /**
+     * Starts detecting labels in an encoded image.
+     * @param jpeg JPEG bytes of the image. Implementations must copy what they need before returning,
+     *             because the buffer is reused for the next frame.
+     * @param minConfidence Minimum confidence, from 0 to 100, for a label to be returned
+     * @return Future holding each detected label name and its confidence
+     */
+    CompletableFuture<Map<String, Float>> detectLabels(ByteBuffer jpeg, float minConfidence);
+}
@@ -0,0 +1,36 @@
+package com.udacity.image.service;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent latency samples so percentiles can be reported without a metrics library.
+ */
+final class LatencyRecorder {
+    private final long[] samples;
+    private int next;
+    private int count;
+
+    LatencyRecorder(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    /**
+     * @param percentile Percentile to report, from 0 to 100
+     * @return The latency at that percentile over the retained samples, or 0 if none were recorded
+     */
+    synchronized long percentileNanos(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+}
@@ -0,0 +1,146 @@
+package com.udacity.image.service;
+
+import java.awt.image.BufferedImage;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Logistic regression over ImageFeatures. Scoring a frame costs one feature extraction and one dot
+ * product, well under a millisecond on a laptop CPU, and needs no native libraries or network access.
+ *
+ * The model is only as good as its training frames. Train it on labelled frames from the cameras it
+ * will watch with {@link #train}, store it with {@link #save} and load it at startup with
+ * {@link #load} or {@link #fromResource}.
+ */
+public class LinearCatClassifier implements CatClassifier {
+
+    private static final int MAGIC = 0x4341544D; //"CATM"
+    private static final float L2_PENALTY = 1e-4f;
+
+    private final float[] weights;
+    private final float bias;
+
+    /**
+     * @param weights One weight per image feature
+     * @param bias Offset added before the logistic function
+     */
+    public LinearCatClassifier(float[] weights, float bias) {
+        if (weights.length != ImageFeatures.LENGTH) {
+            throw new IllegalArgumentException("Expected " + ImageFeatures.LENGTH + " weights but got " + weights.length);
+        }
+        this.weights = weights.clone();
+        this.bias = bias;
+    }
+
+    @Override
+    public float catConfidence(BufferedImage image) {
+        return 100f * probability(ImageFeatures.extract(image));
+    }
+
+    /**
+     * Fits a classifier to labelled frames with stochastic gradient descent.
+     * @param cats Frames that show a cat
+     * @param others Frames that do not
+     * @param epochs Number of passes over the frames
+     * @param learningRate Step size, 0.1 is a reasonable start
+     */
+    public static LinearCatClassifier train(List<BufferedImage> cats, List<BufferedImage> others, int epochs, float learningRate) {
+        List<float[]> samples = new ArrayList<>(cats.size() + others.size());
+        List<Boolean> labels = new ArrayList<>(cats.size() + others.size());
+        cats.forEach(image -> {
+            samples.add(ImageFeatures.extract(image));
+            labels.add(true);
+        });
+        others.forEach(image -> {
+            samples.add(ImageFeatures.extract(image));
+            labels.add(false);
+        });
+
+        float[] weights = new float[ImageFeatures.LENGTH];
+        float bias = 0f;
+        List<Integer> order = new ArrayList<>(samples.size());
+        for (int i = 0; i < samples.size(); i++) {
+            order.add(i);
+        }
+        //fixed seed so the same frames always give the same model
+        Random random = new Random(42);
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            Collections.shuffle(order, random);
+            for (int index : order) {
+                float[] features = samples.get(index);
+                float error = probability(weights, bias, features) - (labels.get(index) ? 1f : 0f);
+                for (int i = 0; i < weights.length; i++) {
+                    weights[i] -= learningRate * (error * features[i] + L2_PENALTY * weights[i]);
+                }
+                bias -= learningRate * error;
+            }
+        }
+        return new LinearCatClassifier(weights, bias);
+    }
+
+    /**
+     * Writes the model in the format read by {@link #load}.
+     */
+    public void save(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(weights.length);
+        data.writeFloat(bias);
+        for (float weight : weights) {
+            data.writeFloat(weight);
+        }
+        data.flush();
+    }
+
+    public static LinearCatClassifier load(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a cat classifier model");
+        }
+        int length = data.readInt();
+        if (length != ImageFeatures.LENGTH) {
+            throw new IOException("Model has " + length + " weights, expected " + ImageFeatures.LENGTH);
+        }
+        float bias = data.readFloat();
+        float[] weights = new float[length];
+        for (int i = 0; i < length; i++) {
+            weights[i] = data.readFloat();
+        }
+        return new LinearCatClassifier(weights, bias);
+    }
+
+    /**
+     * Loads a model stored on the classpath, for example in src/main/resources.
+     * @param name Resource name, such as "cat-classifier.bin"
+     */
+    public static LinearCatClassifier fromResource(String name) {
+        try (InputStream in = LinearCatClassifier.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException("No classifier model found at " + name);
+            }
+            return load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private float probability(float[] features) {
+        return probability(weights, bias, features);
+    }
+
+    private static float probability(float[] weights, float bias, float[] features) {
+        float z = bias;
+        for (int i = 0; i < weights.length; i++) {
+            z += weights[i] * features[i];
+        }
+        return (float) (1.0 / (1.0 + Math.exp(-z)));
+    }
+}
@@ -0,0 +1,80 @@
+package com.udacity.image.service;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Image service that decides on the local machine with a CatClassifier, so frames never leave the
+ * process and each answer takes milliseconds.
+ *
+ * It can also act as a first-pass filter in front of a slower, more accurate service: when the local
+ * confidence lands within the unsure margin of the threshold, the frame is passed to the fallback
+ * service and its answer is used instead. Clear cases are settled locally.
+ */
+public class LocalImageServiceImpl implements ImageService {
+
+    private final CatClassifier classifier;
+    private final ImageService fallback;
+    private final float unsureMargin;
+
+    private final AtomicLong localDecisions = new AtomicLong();
+    private final AtomicLong fallbackDecisions = new AtomicLong();
+    private final AtomicLong classifierNanos = new AtomicLong();
+
+    /**
+     * Creates a service that always answers from the classifier.
+     */
+    public LocalImageServiceImpl(CatClassifier classifier) {
+        this(classifier, null, 0f);
+    }
+
+    /**
+     * Creates a service that asks the fallback service when the classifier is unsure.
+     * @param fallback Service consulted for frames the classifier cannot settle
+     * @param unsureMargin Distance from the threshold, in confidence points, within which the classifier is unsure
+     */
+    public LocalImageServiceImpl(CatClassifier classifier, ImageService fallback, float unsureMargin) {
+        if (unsureMargin < 0f) {
+            throw new IllegalArgumentException("unsureMargin must not be negative");
+        }
+        this.classifier = classifier;
+        this.fallback = fallback;
+        this.unsureMargin = unsureMargin;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        long start = System.nanoTime();
+        float confidence = classifier.catConfidence(image);
+        classifierNanos.addAndGet(System.nanoTime() - start);
+
+        if (fallback != null && Math.abs(confidence - confidenceThreshold) < unsureMargin) {
+            fallbackDecisions.incrementAndGet();
+            return fallback.imageContainsCat(image, confidenceThreshold);
+        }
+        localDecisions.incrementAndGet();
+        return confidence >= confidenceThreshold;
+    }
+
+    /**
+     * Number of frames settled by the local classifier.
+     */
+    public long getLocalDecisionCount() {
+        return localDecisions.get();
+    }
+
+    /**
+     * Number of frames passed to the fallback service.
+     */
+    public long getFallbackDecisionCount() {
+        return fallbackDecisions.get();
+    }
+
+    /**
+     * Average time the classifier took per frame, in nanoseconds.
+     */
+    public long getAverageClassifierNanos() {
+        long frames = localDecisions.get() + fallbackDecisions.get();
+        return frames == 0 ? 0 : classifierNanos.get() / frames;
+    }
+}
@@ -0,0 +1,80 @@
+package com.udacity.image.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Cheap check for whether a camera frame differs from the one before it. Each frame is reduced to a
+ * 32x24 grid of brightness samples; the frame counts as motion when enough cells changed by more than
+ * the pixel delta, so sensor noise and small flicker are ignored. The cost depends only on the grid
+ * size, not on the frame size.
+ *
+ * The gate remembers the last frame it saw, so one gate should watch one camera.
+ */
+public class MotionGate {
+    private static final int GRID_WIDTH = 32;
+    private static final int GRID_HEIGHT = 24;
+
+    private final int pixelDelta;
+    private final int changedCellThreshold;
+    private int[] previous;
+
+    /**
+     * Creates a gate that ignores changes smaller than 12 brightness levels and needs 1% of cells to change.
+     */
+    public MotionGate() {
+        this(12, 0.01f);
+    }
+
+    /**
+     * @param pixelDelta Smallest brightness change, from 0 to 255, that counts a cell as changed
+     * @param changedFraction Fraction of cells that must change for the frame to count as motion
+     */
+    public MotionGate(int pixelDelta, float changedFraction) {
+        if (pixelDelta < 0 || changedFraction <= 0f || changedFraction > 1f) {
+            throw new IllegalArgumentException("pixelDelta must not be negative and changedFraction must be in (0, 1]");
+        }
+        this.pixelDelta = pixelDelta;
+        this.changedCellThreshold = Math.max(1, Math.round(changedFraction * GRID_WIDTH * GRID_HEIGHT));
+    }
+
+    /**
+     * Compares the frame with the previous one and remembers it for the next call. The first frame always counts as motion.
+     */
+    public synchronized boolean hasMotion(BufferedImage image) {
+        int[] current = sample(image);
+        int[] last = previous;
+        previous = current;
+        if (last == null) {
+            return true;
+        }
+
+        int changed = 0;
+        for (int i = 0; i < current.length; i++) {
+            if (Math.abs(current[i] - last[i]) > pixelDelta && ++changed >= changedCellThreshold) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Forgets the previous frame, so the next one counts as motion.
+     */
+    public synchronized void reset() {
+        previous = null;
+    }
+
+    private static int[] sample(BufferedImage image) {
+        int[] grid = new int[GRID_WIDTH * GRID_HEIGHT];
+        int width = image.getWidth();
+        int height = image.getHeight();
+        for (int gy = 0; gy < GRID_HEIGHT; gy++) {
+            int y = (int) ((gy + 0.5) * height / GRID_HEIGHT);
+            for (int gx = 0; gx < GRID_WIDTH; gx++) {
+                int x = (int) ((gx + 0.5) * width / GRID_WIDTH);
+                grid[gy * GRID_WIDTH + gx] = PerceptualHash.luminance(image.getRGB(x, y));
+            }
+        }
+        return grid;
+    }
+}
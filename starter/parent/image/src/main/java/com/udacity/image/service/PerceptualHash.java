@@ -0,0 +1,79 @@
+package com.udacity.image.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Cheap perceptual hashes for camera frames. Frames that look almost the same produce hashes that
+ * differ in only a few bits, so they can be used as cache keys or to spot unchanged scenes.
+ */
+public final class PerceptualHash {
+    private static final int HASH_WIDTH = 9;
+    private static final int HASH_HEIGHT = 8;
+    //upper bound on pixels sampled per cell, keeps hashing cost flat for large frames
+    private static final int SAMPLES_PER_AXIS = 4;
+
+    private PerceptualHash() {
+    }
+
+    /**
+     * Computes a 64-bit difference hash (dHash). The image is reduced to a 9x8 grid of average
+     * brightness values and each bit records whether a cell is brighter than its right-hand neighbour.
+     * @param image Image to hash
+     * @return The hash, one bit per horizontally adjacent cell pair
+     */
+    public static long dHash(BufferedImage image) {
+        int[] luminance = new int[HASH_WIDTH * HASH_HEIGHT];
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        for (int cellY = 0; cellY < HASH_HEIGHT; cellY++) {
+            int y0 = cellY * height / HASH_HEIGHT;
+            int y1 = Math.max(y0 + 1, (cellY + 1) * height / HASH_HEIGHT);
+            int stepY = Math.max(1, (y1 - y0) / SAMPLES_PER_AXIS);
+            for (int cellX = 0; cellX < HASH_WIDTH; cellX++) {
+                int x0 = cellX * width / HASH_WIDTH;
+                int x1 = Math.max(x0 + 1, (cellX + 1) * width / HASH_WIDTH);
+                int stepX = Math.max(1, (x1 - x0) / SAMPLES_PER_AXIS);
+
+                int sum = 0;
+                int count = 0;
+                for (int y = y0; y < y1 && y < height; y += stepY) {
+                    for (int x = x0; x < x1 && x < width; x += stepX) {
+                        sum += luminance(image.getRGB(x, y));
+                        count++;
+                    }
+                }
+                luminance[cellY * HASH_WIDTH + cellX] = count == 0 ? 0 : sum / count;
+            }
+        }
+
+        long hash = 0L;
+        for (int cellY = 0; cellY < HASH_HEIGHT; cellY++) {
+            for (int cellX = 0; cellX < HASH_WIDTH - 1; cellX++) {
+                int index = cellY * HASH_WIDTH + cellX;
+                hash <<= 1;
+                if (luminance[index] > luminance[index + 1]) {
+                    hash |= 1L;
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Number of bits that differ between two hashes. Zero means the frames look the same.
+     */
+    public static int distance(long hash1, long hash2) {
+        return Long.bitCount(hash1 ^ hash2);
+    }
+
+    /**
+     * Brightness of a packed RGB pixel, using integer approximations of the Rec. 601 weights.
+     */
+    static int luminance(int rgb) {
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        return (r * 299 + g * 587 + b * 114) / 1000;
+    }
+}
@@ -0,0 +1,63 @@
+package com.udacity.image.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running figures for one tier of a CascadeImageServiceImpl: how many frames reached it, how many it
+ * passed on to the next tier and how long it spent on them.
+ */
+public final class TierStats {
+    private final String name;
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong passed = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    TierStats(String name) {
+        this.name = name;
+    }
+
+    void record(long startNanos, boolean passedOn) {
+        totalNanos.addAndGet(System.nanoTime() - startNanos);
+        frames.incrementAndGet();
+        if (passedOn) {
+            passed.incrementAndGet();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Number of frames that reached this tier.
+     */
+    public long getFrameCount() {
+        return frames.get();
+    }
+
+    /**
+     * Number of frames this tier passed on to the next one.
+     */
+    public long getPassedCount() {
+        return passed.get();
+    }
+
+    /**
+     * Fraction of frames passed on to the next tier, from 0 to 1.
+     */
+    public double getPassRate() {
+        long count = frames.get();
+        return count == 0 ? 0 : (double) passed.get() / count;
+    }
+
+    public long getAverageNanos() {
+        long count = frames.get();
+        return count == 0 ? 0 : totalNanos.get() / count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d frames, %.1f%% passed, %d us avg", name, getFrameCount(), getPassRate() * 100,
+                getAverageNanos() / 1000);
+    }
+}
@@ -4,6 +4,8 @@ module image {
     requires software.amazon.awssdk.core;
     requires software.amazon.awssdk.regions;
     requires software.amazon.awssdk.services.rekognition;
+    requires software.amazon.awssdk.http.nio.netty;
     requires java.desktop;
+    requires metrics;
     exports com.udacity.image.service;
 }
\ No newline at end of file
@@ -0,0 +1,162 @@
+package com.udacity.image.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class CachingImageServiceImplTest {
+
+    private static final long TTL_MILLIS = 60_000;
+    private static final long SCENE = 0x0F0F_1234_5678_9ABCL;
+
+    private final AtomicInteger delegateCalls = new AtomicInteger();
+
+    //sees a cat only at thresholds below 60, so answers for different thresholds can be told apart
+    private final ImageService delegate = (image, confidenceThreshold) -> {
+        delegateCalls.incrementAndGet();
+        return confidenceThreshold < 60f;
+    };
+
+    private static BufferedImage frame(long hash) {
+        return PerceptualHashTest.frameWithHash(hash);
+    }
+
+    /**
+     * A frame showing the same scene again is answered without asking the wrapped service.
+     */
+    @Test
+    void repeatedFrameIsAHit() {
+        // Given
+        CachingImageServiceImpl service = new CachingImageServiceImpl(delegate, 16, TTL_MILLIS);
+        service.imageContainsCat(frame(SCENE), 50f);
+
+        // When
+        boolean containsCat = service.imageContainsCat(frame(SCENE), 50f);
+
+        // Then
+        Assertions.assertTrue(containsCat);
+        Assertions.assertEquals(1, delegateCalls.get());
+        Assertions.assertEquals(1, service.getHitCount());
+        Assertions.assertEquals(1, service.getMissCount());
+        Assertions.assertEquals(0.5, service.getHitRate());
+    }
+
+    /**
+     * A frame whose hash differs in fewer bits than the allowed distance reuses the cached answer.
+     */
+    @Test
+    void nearDuplicateFrameIsAHit() {
+        // Given
+        CachingImageServiceImpl service = new CachingImageServiceImpl(delegate, 16, TTL_MILLIS, 4);
+        service.imageContainsCat(frame(SCENE), 50f);
+
+        // When - Three cell pairs compare the other way round
+        boolean containsCat = service.imageContainsCat(frame(SCENE ^ 0b1011L), 50f);
+
+        // Then
+        Assertions.assertTrue(containsCat);
+        Assertions.assertEquals(1, delegateCalls.get());
+        Assertions.assertEquals(1, service.getHitCount());
+    }
+
+    /**
+     * A frame whose hash differs in more bits than the allowed distance is a different scene.
+     */
+    @Test
+    void framePastTheHashDistanceIsAMiss() {
+        // Given
+        CachingImageServiceImpl service = new CachingImageServiceImpl(delegate, 16, TTL_MILLIS, 4);
+        service.imageContainsCat(frame(SCENE), 50f);
+
+        // When - Five cell pairs compare the other way round
+        service.imageContainsCat(frame(SCENE ^ 0b1_1111L), 50f);
+
+        // Then
+        Assertions.assertEquals(2, delegateCalls.get());
+        Assertions.assertEquals(0, service.getHitCount());
+        Assertions.assertEquals(2, service.getMissCount());
+        Assertions.assertEquals(2, service.size());
+    }
+
+    /**
+     * Without a hash distance only an identical hash is a hit.
+     */
+    @Test
+    void exactMatchOnlyByDefault() {
+        // Given
+        CachingImageServiceImpl service = new CachingImageServiceImpl(delegate, 16, TTL_MILLIS);
+        service.imageContainsCat(frame(SCENE), 50f);
+
+        // When
+        service.imageContainsCat(frame(SCENE ^ 1L), 50f);
+
+        // Then
+        Assertions.assertEquals(2, delegateCalls.get());
+    }
+
+    /**
+     * The same scene asked about with another confidence threshold goes to the wrapped service.
+     */
+    @Test
+    void differentThresholdIsNotReused() {
+        // Given
+        CachingImageServiceImpl service = new CachingImageServiceImpl(delegate, 16, TTL_MILLIS, 4);
+        Assertions.assertTrue(service.imageContainsCat(frame(SCENE), 50f));
+
+        // When
+        boolean containsCat = service.imageContainsCat(frame(SCENE), 70f);
+
+        // Then
+        Assertions.assertFalse(containsCat);
+        Assertions.assertEquals(2, delegateCalls.get());
+        Assertions.assertEquals(0, service.getHitCount());
+    }
+
+    /**
+     * Once the cache is full, the result used least recently is dropped.
+     */
+    @Test
+    void leastRecentlyUsedResultIsEvicted() {
+        // Given - Two entries, the first one used again after the second was added
+        CachingImageServiceImpl service = new CachingImageServiceImpl(delegate, 2, TTL_MILLIS);
+        service.imageContainsCat(frame(1L), 50f);
+        service.imageContainsCat(frame(2L), 50f);
+        service.imageContainsCat(frame(1L), 50f);
+
+        // When
+        service.imageContainsCat(frame(3L), 50f);
+
+        // Then
+        Assertions.assertEquals(1, service.getEvictionCount());
+        Assertions.assertEquals(2, service.size());
+        service.imageContainsCat(frame(1L), 50f);
+        Assertions.assertEquals(2, service.getHitCount());
+        service.imageContainsCat(frame(2L), 50f);
+        Assertions.assertEquals(4, delegateCalls.get());
+    }
+
+    /**
+     * Frames without an image cannot be hashed and always go to the wrapped service.
+     */
+    @Test
+    void missingImageIsNotCached() {
+        // Given
+        CachingImageServiceImpl service = new CachingImageServiceImpl(delegate, 16, TTL_MILLIS);
+
+        // When
+        service.imageContainsCat(null, 50f);
+        service.imageContainsCat(null, 50f);
+
+        // Then
+        Assertions.assertEquals(2, delegateCalls.get());
+        Assertions.assertEquals(0, service.size());
+    }
+
+    @Test
+    void invalidSettingsAreRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CachingImageServiceImpl(delegate, 0, TTL_MILLIS));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CachingImageServiceImpl(delegate, 16, TTL_MILLIS, 65));
+    }
+}
@@ -0,0 +1,150 @@
+package com.udacity.image.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class CascadeImageServiceImplTest {
+
+    private static final float CONFIDENCE_THRESHOLD = 50.0f;
+
+    private static final BufferedImage EMPTY_ROOM = LinearCatClassifierTest.flat(0x202020);
+    private static final BufferedImage CAT_WALKS_IN = MotionGateTest.withSquare(16, 12);
+
+    private final AtomicInteger classifierCalls = new AtomicInteger();
+    private final AtomicInteger remoteCalls = new AtomicInteger();
+
+    private final ImageService remote = (image, confidenceThreshold) -> {
+        remoteCalls.incrementAndGet();
+        return image == CAT_WALKS_IN;
+    };
+
+    /**
+     * A classifier that is sure of itself: 90 for the cat frame and 10 for anything else.
+     */
+    private final CatClassifier sureClassifier = image -> {
+        classifierCalls.incrementAndGet();
+        return image == CAT_WALKS_IN ? 90f : 10f;
+    };
+
+    /**
+     * A classifier that always answers right at the threshold.
+     */
+    private final CatClassifier unsureClassifier = image -> {
+        classifierCalls.incrementAndGet();
+        return CONFIDENCE_THRESHOLD;
+    };
+
+    /**
+     * A frame that matches the previous one gets the previous answer from the gate, without asking the
+     * classifier or the remote service.
+     */
+    @Test
+    void unchangedFrameIsAnsweredByTheGate() {
+        // Given
+        CascadeImageServiceImpl service = new CascadeImageServiceImpl(new MotionGate(), sureClassifier, remote, 20f);
+        Assertions.assertTrue(service.imageContainsCat(CAT_WALKS_IN, CONFIDENCE_THRESHOLD));
+
+        // When
+        boolean containsCat = service.imageContainsCat(MotionGateTest.withSquare(16, 12), CONFIDENCE_THRESHOLD);
+
+        // Then
+        Assertions.assertTrue(containsCat);
+        Assertions.assertEquals(1, classifierCalls.get());
+        Assertions.assertEquals(0, remoteCalls.get());
+    }
+
+    /**
+     * A changed frame goes on to the classifier, which settles it when it is sure.
+     */
+    @Test
+    void changedFrameEscalatesToTheClassifier() {
+        // Given
+        CascadeImageServiceImpl service = new CascadeImageServiceImpl(new MotionGate(), sureClassifier, remote, 20f);
+        service.imageContainsCat(CAT_WALKS_IN, CONFIDENCE_THRESHOLD);
+
+        // When
+        boolean containsCat = service.imageContainsCat(EMPTY_ROOM, CONFIDENCE_THRESHOLD);
+
+        // Then
+        Assertions.assertFalse(containsCat);
+        Assertions.assertEquals(2, classifierCalls.get());
+        Assertions.assertEquals(0, remoteCalls.get());
+    }
+
+    /**
+     * A changed frame the classifier is unsure about escalates to the remote service, whose answer is used.
+     */
+    @Test
+    void unsureFrameEscalatesToTheRemoteService() {
+        // Given
+        CascadeImageServiceImpl service = new CascadeImageServiceImpl(new MotionGate(), unsureClassifier, remote, 20f);
+
+        // When
+        boolean containsCat = service.imageContainsCat(CAT_WALKS_IN, CONFIDENCE_THRESHOLD);
+
+        // Then
+        Assertions.assertTrue(containsCat);
+        Assertions.assertEquals(1, classifierCalls.get());
+        Assertions.assertEquals(1, remoteCalls.get());
+    }
+
+    /**
+     * Without a classifier every changed frame goes straight to the remote service.
+     */
+    @Test
+    void withoutClassifierChangedFramesGoToTheRemoteService() {
+        // Given
+        CascadeImageServiceImpl service = new CascadeImageServiceImpl(new MotionGate(), null, remote, 0f);
+
+        // When
+        service.imageContainsCat(EMPTY_ROOM, CONFIDENCE_THRESHOLD);
+        service.imageContainsCat(CAT_WALKS_IN, CONFIDENCE_THRESHOLD);
+        service.imageContainsCat(CAT_WALKS_IN, CONFIDENCE_THRESHOLD);
+
+        // Then
+        Assertions.assertEquals(2, remoteCalls.get());
+        Assertions.assertEquals(2, service.getTierStats().size());
+    }
+
+    /**
+     * Each tier counts the frames that reached it and the frames it passed on.
+     */
+    @Test
+    void tierStatsAreCounted() {
+        // Given
+        CascadeImageServiceImpl service = new CascadeImageServiceImpl(new MotionGate(), unsureClassifier, remote, 20f);
+
+        // When - A new frame, the same frame again and a changed frame
+        service.imageContainsCat(EMPTY_ROOM, CONFIDENCE_THRESHOLD);
+        service.imageContainsCat(EMPTY_ROOM, CONFIDENCE_THRESHOLD);
+        service.imageContainsCat(CAT_WALKS_IN, CONFIDENCE_THRESHOLD);
+
+        // Then
+        List<TierStats> stats = service.getTierStats();
+        Assertions.assertEquals(3, stats.size());
+        TierStats gate = stats.get(0);
+        TierStats local = stats.get(1);
+        TierStats remoteTier = stats.get(2);
+        Assertions.assertEquals("motion gate", gate.getName());
+        Assertions.assertEquals(3, gate.getFrameCount());
+        Assertions.assertEquals(2, gate.getPassedCount());
+        Assertions.assertEquals(2.0 / 3, gate.getPassRate(), 1e-9);
+        Assertions.assertEquals(2, local.getFrameCount());
+        Assertions.assertEquals(2, local.getPassedCount());
+        Assertions.assertEquals(2, remoteTier.getFrameCount());
+        Assertions.assertEquals(0, remoteTier.getPassedCount());
+        Assertions.assertEquals(0.0, remoteTier.getPassRate());
+    }
+
+    @Test
+    void invalidSettingsAreRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new CascadeImageServiceImpl(new MotionGate(), null, null, 0f));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new CascadeImageServiceImpl(new MotionGate(), sureClassifier, remote, -1f));
+    }
+}
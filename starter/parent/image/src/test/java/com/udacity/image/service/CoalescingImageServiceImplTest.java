@@ -0,0 +1,147 @@
+package com.udacity.image.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class CoalescingImageServiceImplTest {
+
+    private static final float CONFIDENCE_THRESHOLD = 50.0f;
+
+    private static final Map<String, Float> CAT = Map.of("Cat", 97.5f);
+
+    private final ManualLabelDetectionClient client = new ManualLabelDetectionClient();
+
+    /**
+     * A grey image whose brightness rises from left to right, or falls when descending is set, so the two
+     * kinds have different perceptual hashes.
+     */
+    private static BufferedImage gradient(boolean descending) {
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < image.getWidth(); x++) {
+            int level = (descending ? image.getWidth() - 1 - x : x) * 4;
+            for (int y = 0; y < image.getHeight(); y++) {
+                image.setRGB(x, y, (level << 16) | (level << 8) | level);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Frames matching a call already in flight share it instead of calling the client again.
+     */
+    @Test
+    void matchingFramesShareOneCall() throws Exception {
+        // Given
+        CoalescingImageServiceImpl service = new CoalescingImageServiceImpl(client, 4);
+        BufferedImage frame = gradient(false);
+
+        // When - The same scene arrives twice while the first call is running
+        CompletableFuture<Boolean> first = service.imageContainsCatAsync(frame, CONFIDENCE_THRESHOLD);
+        CompletableFuture<Boolean> second = service.imageContainsCatAsync(gradient(false), CONFIDENCE_THRESHOLD);
+
+        // Then
+        client.completeAll(CAT);
+        Assertions.assertTrue(first.get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(second.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(2, service.getRequestCount());
+        Assertions.assertEquals(1, service.getCoalescedCount());
+        Assertions.assertEquals(1, client.getCallCount());
+    }
+
+    /**
+     * A frame arriving while every slot is taken is refused, and the slot is free again once the call ends.
+     */
+    @Test
+    void slotIsReleasedWhenTheCallEnds() throws Exception {
+        // Given - One slot and no waiting for it
+        CoalescingImageServiceImpl service = new CoalescingImageServiceImpl(client, new ImagePreprocessor(), 1, 0);
+        CompletableFuture<Boolean> running = service.imageContainsCatAsync(gradient(false), CONFIDENCE_THRESHOLD);
+
+        // When
+        CompletableFuture<Boolean> refused = service.imageContainsCatAsync(gradient(true), CONFIDENCE_THRESHOLD);
+
+        // Then
+        ExecutionException error = Assertions.assertThrows(ExecutionException.class, () -> refused.get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(error.getCause() instanceof RejectedExecutionException);
+        Assertions.assertEquals(1, service.getRejectedCount());
+        client.completeAll(CAT);
+        Assertions.assertTrue(running.get(5, TimeUnit.SECONDS));
+
+        // When - The running call has ended
+        CompletableFuture<Boolean> retried = service.imageContainsCatAsync(gradient(true), CONFIDENCE_THRESHOLD);
+
+        // Then
+        client.completeAll(CAT);
+        Assertions.assertTrue(retried.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(2, client.getCallCount());
+        Assertions.assertEquals(1, service.getRejectedCount());
+    }
+
+    /**
+     * A call that outlives the adaptive timeout is counted, and imageContainsCat repeats the last answer
+     * instead of reporting no cat.
+     */
+    @Test
+    void timedOutCallRepeatsTheLastAnswer() {
+        // Given - A client that answers at once until it starts hanging
+        AtomicBoolean hang = new AtomicBoolean();
+        LabelDetectionClient hangingClient = (jpeg, minConfidence) -> hang.get()
+                ? new CompletableFuture<>()
+                : CompletableFuture.completedFuture(CAT);
+        CoalescingImageServiceImpl service = new CoalescingImageServiceImpl(hangingClient, 2);
+        Assertions.assertTrue(service.imageContainsCat(gradient(false), CONFIDENCE_THRESHOLD));
+        Assertions.assertTrue(service.getTimeoutMillis() < 2_000);
+
+        // When
+        hang.set(true);
+        boolean cat = service.imageContainsCat(gradient(true), CONFIDENCE_THRESHOLD);
+
+        // Then
+        Assertions.assertTrue(cat);
+        Assertions.assertEquals(1, service.getTimeoutCount());
+        Assertions.assertEquals(0, service.getFailureCount());
+    }
+
+    /**
+     * Client whose calls only complete when the test says so, so no test depends on how long a call takes.
+     */
+    private static final class ManualLabelDetectionClient implements LabelDetectionClient {
+        private final List<CompletableFuture<Map<String, Float>>> pending = new ArrayList<>();
+        private int calls;
+
+        @Override
+        public synchronized CompletableFuture<Map<String, Float>> detectLabels(ByteBuffer jpeg, float minConfidence) {
+            calls++;
+            CompletableFuture<Map<String, Float>> result = new CompletableFuture<>();
+            pending.add(result);
+            return result;
+        }
+
+        /**
+         * Completes every call made so far with the labels.
+         */
+        void completeAll(Map<String, Float> labels) {
+            List<CompletableFuture<Map<String, Float>>> ready;
+            synchronized (this) {
+                ready = new ArrayList<>(pending);
+                pending.clear();
+            }
+            ready.forEach(call -> call.complete(labels));
+        }
+
+        synchronized int getCallCount() {
+            return calls;
+        }
+    }
+}
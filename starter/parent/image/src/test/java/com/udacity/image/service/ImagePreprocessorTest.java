@@ -0,0 +1,132 @@
+package com.udacity.image.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+class ImagePreprocessorTest {
+
+    private final ImagePreprocessor preprocessor = new ImagePreprocessor();
+
+    /**
+     * A large frame is scaled to fit within 640x480, keeping its aspect ratio.
+     */
+    @Test
+    void largeFrameIsScaledToFit() {
+        // Given - Twice as wide as the target and a 16:9 shape
+        BufferedImage frame = new BufferedImage(1280, 720, BufferedImage.TYPE_INT_RGB);
+
+        // When
+        BufferedImage scaled = preprocessor.downscale(frame);
+
+        // Then
+        Assertions.assertEquals(640, scaled.getWidth());
+        Assertions.assertEquals(360, scaled.getHeight());
+        Assertions.assertEquals(BufferedImage.TYPE_INT_RGB, scaled.getType());
+    }
+
+    /**
+     * The tighter of the two limits decides the scale.
+     */
+    @Test
+    void tallFrameIsLimitedByHeight() {
+        // Given
+        BufferedImage frame = new BufferedImage(600, 960, BufferedImage.TYPE_INT_RGB);
+
+        // When
+        BufferedImage scaled = preprocessor.downscale(frame);
+
+        // Then
+        Assertions.assertEquals(300, scaled.getWidth());
+        Assertions.assertEquals(480, scaled.getHeight());
+    }
+
+    /**
+     * An RGB frame that already fits is returned as it is, without copying.
+     */
+    @Test
+    void smallRgbFrameIsReturnedUnchanged() {
+        // Given
+        BufferedImage frame = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+
+        // When
+        BufferedImage scaled = preprocessor.downscale(frame);
+
+        // Then
+        Assertions.assertSame(frame, scaled);
+    }
+
+    /**
+     * A grayscale frame that already fits is converted to RGB at the same size and keeps its brightness.
+     */
+    @Test
+    void grayscaleFrameIsConvertedToRgb() {
+        // Given
+        BufferedImage frame = new BufferedImage(40, 30, BufferedImage.TYPE_BYTE_GRAY);
+        frame.getRaster().setSample(5, 5, 0, 255);
+
+        // When
+        BufferedImage converted = preprocessor.downscale(frame);
+
+        // Then
+        Assertions.assertNotSame(frame, converted);
+        Assertions.assertEquals(BufferedImage.TYPE_INT_RGB, converted.getType());
+        Assertions.assertEquals(40, converted.getWidth());
+        Assertions.assertEquals(30, converted.getHeight());
+        Assertions.assertEquals(0xFFFFFF, converted.getRGB(5, 5) & 0xFFFFFF);
+        Assertions.assertEquals(0x000000, converted.getRGB(0, 0) & 0xFFFFFF);
+    }
+
+    /**
+     * Odd sizes are rounded to the nearest pixel, and a very thin frame never ends up with no pixels.
+     */
+    @Test
+    void oddSizesAreRoundedAndNeverEmpty() {
+        // Given - A scale of 640 / 1001 and a strip one pixel high
+        BufferedImage odd = new BufferedImage(1001, 333, BufferedImage.TYPE_INT_RGB);
+        BufferedImage strip = new BufferedImage(3001, 1, BufferedImage.TYPE_INT_RGB);
+
+        // When
+        BufferedImage scaledOdd = preprocessor.downscale(odd);
+        BufferedImage scaledStrip = preprocessor.downscale(strip);
+
+        // Then
+        Assertions.assertEquals(640, scaledOdd.getWidth());
+        Assertions.assertEquals(213, scaledOdd.getHeight());
+        Assertions.assertEquals(640, scaledStrip.getWidth());
+        Assertions.assertEquals(1, scaledStrip.getHeight());
+    }
+
+    /**
+     * Encoding produces a JPEG of the downscaled frame and is counted.
+     */
+    @Test
+    void encodeProducesScaledJpeg() throws IOException {
+        // Given
+        ImagePreprocessor small = new ImagePreprocessor(64, 48, 0.5f);
+        BufferedImage frame = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+
+        // When
+        ByteBuffer encoded = small.encode(frame);
+
+        // Then
+        byte[] bytes = new byte[encoded.remaining()];
+        encoded.get(bytes);
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(bytes));
+        Assertions.assertEquals(64, decoded.getWidth());
+        Assertions.assertEquals(48, decoded.getHeight());
+        Assertions.assertEquals(1, small.getEncodedFrameCount());
+        Assertions.assertEquals(bytes.length, small.getEncodedByteCount());
+    }
+
+    @Test
+    void invalidSettingsAreRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ImagePreprocessor(0, 480, 0.8f));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ImagePreprocessor(640, 480, 1.5f));
+    }
+}
@@ -0,0 +1,113 @@
+package com.udacity.image.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+class LinearCatClassifierTest {
+
+    //the hue histogram comes last and its first bin holds reds
+    private static final int RED_HUE = ImageFeatures.LENGTH - 8;
+
+    /**
+     * Weights that only look at how red a frame is: a flat red frame scores sigmoid(2), anything without
+     * colour scores sigmoid(-2).
+     */
+    static LinearCatClassifier redDetector() {
+        float[] weights = new float[ImageFeatures.LENGTH];
+        weights[RED_HUE] = 4f;
+        return new LinearCatClassifier(weights, -2f);
+    }
+
+    static BufferedImage flat(int rgb) {
+        BufferedImage image = new BufferedImage(32, 32, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        return image;
+    }
+
+    private static float sigmoidPercent(double z) {
+        return (float) (100.0 / (1.0 + Math.exp(-z)));
+    }
+
+    /**
+     * With every weight zero the confidence is the logistic of the bias, whatever the frame.
+     */
+    @Test
+    void zeroWeightsScoreTheBias() {
+        // Given
+        LinearCatClassifier classifier = new LinearCatClassifier(new float[ImageFeatures.LENGTH], 0f);
+
+        // When
+        float confidence = classifier.catConfidence(flat(0x336699));
+
+        // Then
+        Assertions.assertEquals(50f, confidence);
+    }
+
+    /**
+     * The score is the logistic of the weighted features plus the bias.
+     */
+    @Test
+    void weightsDecideTheScore() {
+        // Given
+        LinearCatClassifier classifier = redDetector();
+
+        // When
+        float red = classifier.catConfidence(flat(0xFF0000));
+        float grey = classifier.catConfidence(flat(0x808080));
+
+        // Then
+        Assertions.assertEquals(sigmoidPercent(2), red, 1e-3f);
+        Assertions.assertEquals(sigmoidPercent(-2), grey, 1e-3f);
+    }
+
+    /**
+     * A saved model loads back with the same weights and bias.
+     */
+    @Test
+    void savedModelLoadsTheSameWeights() throws IOException {
+        // Given
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        redDetector().save(bytes);
+
+        // When
+        LinearCatClassifier loaded = LinearCatClassifier.load(new ByteArrayInputStream(bytes.toByteArray()));
+
+        // Then
+        Assertions.assertEquals(4 + 4 + 4 + 4 * ImageFeatures.LENGTH, bytes.size());
+        Assertions.assertEquals(sigmoidPercent(2), loaded.catConfidence(flat(0xFF0000)), 1e-3f);
+        Assertions.assertEquals(sigmoidPercent(-2), loaded.catConfidence(flat(0x808080)), 1e-3f);
+    }
+
+    /**
+     * Data that is not a model, or a model for a different feature vector, is refused.
+     */
+    @Test
+    void foreignModelIsRejected() throws IOException {
+        // Given
+        ByteArrayOutputStream wrongLength = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(wrongLength);
+        data.writeInt(0x4341544D);
+        data.writeInt(3);
+        data.writeFloat(0f);
+
+        // When / Then
+        IOException notAModel = Assertions.assertThrows(IOException.class,
+                () -> LinearCatClassifier.load(new ByteArrayInputStream(new byte[] {1, 2, 3, 4})));
+        Assertions.assertEquals("Not a cat classifier model", notAModel.getMessage());
+        Assertions.assertThrows(IOException.class,
+                () -> LinearCatClassifier.load(new ByteArrayInputStream(wrongLength.toByteArray())));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new LinearCatClassifier(new float[3], 0f));
+        Assertions.assertThrows(UncheckedIOException.class, () -> LinearCatClassifier.fromResource("no-such-model.bin"));
+    }
+}
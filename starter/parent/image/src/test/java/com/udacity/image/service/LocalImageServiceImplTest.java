@@ -0,0 +1,92 @@
+package com.udacity.image.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class LocalImageServiceImplTest {
+
+    private static final BufferedImage RED = LinearCatClassifierTest.flat(0xFF0000);
+    private static final BufferedImage GREY = LinearCatClassifierTest.flat(0x808080);
+
+    private final AtomicInteger fallbackCalls = new AtomicInteger();
+
+    private final ImageService fallback = (image, confidenceThreshold) -> {
+        fallbackCalls.incrementAndGet();
+        return true;
+    };
+
+    /**
+     * A frame is a cat when the classifier's confidence reaches the threshold.
+     */
+    @Test
+    void confidenceAtOrAboveThresholdIsACat() {
+        // Given - The classifier always answers exactly 50
+        LocalImageServiceImpl service = new LocalImageServiceImpl(new LinearCatClassifier(new float[ImageFeatures.LENGTH], 0f));
+
+        // When / Then
+        Assertions.assertTrue(service.imageContainsCat(GREY, 50f));
+        Assertions.assertFalse(service.imageContainsCat(GREY, 50.01f));
+        Assertions.assertEquals(2, service.getLocalDecisionCount());
+        Assertions.assertEquals(0, service.getFallbackDecisionCount());
+    }
+
+    /**
+     * The service answers from the classifier's weights: red frames score about 88 and others about 12.
+     */
+    @Test
+    void classifierWeightsDecideTheAnswer() {
+        // Given
+        LocalImageServiceImpl service = new LocalImageServiceImpl(LinearCatClassifierTest.redDetector());
+
+        // When / Then
+        Assertions.assertTrue(service.imageContainsCat(RED, 50f));
+        Assertions.assertFalse(service.imageContainsCat(GREY, 50f));
+        Assertions.assertFalse(service.imageContainsCat(RED, 90f));
+    }
+
+    /**
+     * Confidence within the unsure margin of the threshold is settled by the fallback service.
+     */
+    @Test
+    void unsureFramesGoToTheFallback() {
+        // Given - A margin of 10 around a threshold of 80, red frames scoring about 88
+        LocalImageServiceImpl service = new LocalImageServiceImpl(LinearCatClassifierTest.redDetector(), fallback, 10f);
+
+        // When
+        boolean unsure = service.imageContainsCat(RED, 80f);
+        boolean clear = service.imageContainsCat(GREY, 80f);
+
+        // Then
+        Assertions.assertTrue(unsure);
+        Assertions.assertFalse(clear);
+        Assertions.assertEquals(1, fallbackCalls.get());
+        Assertions.assertEquals(1, service.getFallbackDecisionCount());
+        Assertions.assertEquals(1, service.getLocalDecisionCount());
+    }
+
+    /**
+     * Without a margin the fallback is never asked, even when the confidence equals the threshold.
+     */
+    @Test
+    void zeroMarginNeverFallsBack() {
+        // Given
+        CatClassifier fifty = image -> 50f;
+        LocalImageServiceImpl service = new LocalImageServiceImpl(fifty, fallback, 0f);
+
+        // When
+        boolean containsCat = service.imageContainsCat(GREY, 50f);
+
+        // Then
+        Assertions.assertTrue(containsCat);
+        Assertions.assertEquals(0, fallbackCalls.get());
+    }
+
+    @Test
+    void negativeMarginIsRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new LocalImageServiceImpl(image -> 50f, fallback, -1f));
+    }
+}
@@ -0,0 +1,105 @@
+package com.udacity.image.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+class MotionGateTest {
+
+    private static final BufferedImage DARK = LinearCatClassifierTest.flat(0x202020);
+
+    /**
+     * A dark frame with a bright square over the top-left part, covering the provided number of columns
+     * and rows of the 32x24 sampling grid.
+     */
+    static BufferedImage withSquare(int gridColumns, int gridRows) {
+        BufferedImage image = LinearCatClassifierTest.flat(0x202020);
+        int width = gridColumns * image.getWidth() / 32;
+        int height = gridRows * image.getHeight() / 24;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, 0xE0E0E0);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * The gate has nothing to compare the first frame with, so it always lets it through.
+     */
+    @Test
+    void firstFrameIsMotion() {
+        Assertions.assertTrue(new MotionGate().hasMotion(DARK));
+    }
+
+    /**
+     * The same scene again is not motion.
+     */
+    @Test
+    void unchangedFrameIsNotMotion() {
+        // Given
+        MotionGate gate = new MotionGate();
+        gate.hasMotion(DARK);
+
+        // When
+        boolean motion = gate.hasMotion(LinearCatClassifierTest.flat(0x202020));
+
+        // Then
+        Assertions.assertFalse(motion);
+    }
+
+    /**
+     * Brightness changes no larger than the pixel delta are treated as noise.
+     */
+    @Test
+    void smallBrightnessChangeIsIgnored() {
+        // Given
+        MotionGate gate = new MotionGate();
+        gate.hasMotion(DARK);
+
+        // When - 12 levels brighter everywhere, the default delta
+        boolean motion = gate.hasMotion(LinearCatClassifierTest.flat(0x2C2C2C));
+
+        // Then
+        Assertions.assertFalse(motion);
+    }
+
+    /**
+     * A change counts once enough cells changed, and not before.
+     */
+    @Test
+    void motionNeedsEnoughChangedCells() {
+        // Given - 10% of the 768 cells, so 77 must change
+        MotionGate gate = new MotionGate(12, 0.1f);
+        gate.hasMotion(DARK);
+
+        // When / Then - 8x9 = 72 cells, then 8x10 = 80 cells
+        Assertions.assertFalse(gate.hasMotion(withSquare(8, 9)));
+        gate.reset();
+        gate.hasMotion(DARK);
+        Assertions.assertTrue(gate.hasMotion(withSquare(8, 10)));
+    }
+
+    /**
+     * After a reset the next frame counts as motion even if it matches the last one.
+     */
+    @Test
+    void resetForgetsThePreviousFrame() {
+        // Given
+        MotionGate gate = new MotionGate();
+        gate.hasMotion(DARK);
+
+        // When
+        gate.reset();
+
+        // Then
+        Assertions.assertTrue(gate.hasMotion(DARK));
+    }
+
+    @Test
+    void invalidSettingsAreRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new MotionGate(-1, 0.01f));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new MotionGate(12, 0f));
+    }
+}
@@ -0,0 +1,103 @@
+package com.udacity.image.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+class PerceptualHashTest {
+
+    /**
+     * A grey frame made of 9x8 flat cells whose brightness steps down where the hash has a 1 bit and up
+     * where it has a 0 bit, so its dHash is exactly the provided hash.
+     */
+    static BufferedImage frameWithHash(long hash) {
+        int cellSize = 4;
+        BufferedImage image = new BufferedImage(9 * cellSize, 8 * cellSize, BufferedImage.TYPE_INT_RGB);
+        for (int cellY = 0; cellY < 8; cellY++) {
+            int level = 128;
+            for (int cellX = 0; cellX < 9; cellX++) {
+                if (cellX > 0) {
+                    boolean brighterOnTheLeft = (hash >>> (63 - (cellY * 8 + cellX - 1)) & 1L) != 0;
+                    level += brighterOnTheLeft ? -10 : 10;
+                }
+                fillCell(image, cellX, cellY, cellSize, level);
+            }
+        }
+        return image;
+    }
+
+    private static void fillCell(BufferedImage image, int cellX, int cellY, int cellSize, int level) {
+        for (int y = cellY * cellSize; y < (cellY + 1) * cellSize; y++) {
+            for (int x = cellX * cellSize; x < (cellX + 1) * cellSize; x++) {
+                image.setRGB(x, y, (level << 16) | (level << 8) | level);
+            }
+        }
+    }
+
+    /**
+     * Each bit records whether a cell is brighter than its right-hand neighbour, first row first.
+     */
+    @Test
+    void hashFollowsCellBrightness() {
+        // Given
+        long hash = 0x8000_0000_0000_0001L | 0x00FF_0000_0000_0000L;
+
+        // When
+        long computed = PerceptualHash.dHash(frameWithHash(hash));
+
+        // Then
+        Assertions.assertEquals(hash, computed);
+        Assertions.assertEquals(0L, PerceptualHash.dHash(frameWithHash(0L)));
+    }
+
+    /**
+     * Changing a few pixels inside a cell barely moves its average, so the hash stays the same.
+     */
+    @Test
+    void nearDuplicateFrameHasTheSameHash() {
+        // Given
+        long hash = 0x0F0F_1234_5678_9ABCL;
+        BufferedImage noisy = frameWithHash(hash);
+
+        // When - One pixel in each of a few cells is slightly brighter
+        for (int[] pixel : new int[][] {{1, 1}, {10, 6}, {30, 29}}) {
+            noisy.setRGB(pixel[0], pixel[1], noisy.getRGB(pixel[0], pixel[1]) + 0x030303);
+        }
+
+        // Then
+        Assertions.assertEquals(hash, PerceptualHash.dHash(noisy));
+    }
+
+    /**
+     * Frames of any size hash without failing, including frames smaller than the 9x8 grid.
+     */
+    @Test
+    void framesSmallerThanTheGridCanBeHashed() {
+        // Given
+        BufferedImage tiny = new BufferedImage(3, 2, BufferedImage.TYPE_INT_RGB);
+        tiny.setRGB(0, 0, 0xFFFFFF);
+
+        // When
+        long hash = PerceptualHash.dHash(tiny);
+
+        // Then
+        Assertions.assertNotEquals(0L, hash);
+        Assertions.assertEquals(hash, PerceptualHash.dHash(tiny));
+    }
+
+    @Test
+    void distanceCountsDifferingBits() {
+        Assertions.assertEquals(0, PerceptualHash.distance(0x1234L, 0x1234L));
+        Assertions.assertEquals(3, PerceptualHash.distance(0b1011L, 0b0000_0001L | 0b1000_0000L));
+        Assertions.assertEquals(64, PerceptualHash.distance(0L, -1L));
+    }
+
+    @Test
+    void luminanceWeightsGreenMost() {
+        Assertions.assertEquals(0, PerceptualHash.luminance(0x000000));
+        Assertions.assertEquals(255, PerceptualHash.luminance(0xFFFFFF));
+        Assertions.assertTrue(PerceptualHash.luminance(0x00FF00) > PerceptualHash.luminance(0xFF0000));
+        Assertions.assertTrue(PerceptualHash.luminance(0xFF0000) > PerceptualHash.luminance(0x0000FF));
+    }
+}
@@ -0,0 +1,42 @@
+package com.udacity.image.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TierStatsTest {
+
+    /**
+     * A tier that has seen no frames reports zero rather than dividing by zero.
+     */
+    @Test
+    void emptyTierReportsZero() {
+        TierStats stats = new TierStats("gate");
+
+        Assertions.assertEquals(0, stats.getFrameCount());
+        Assertions.assertEquals(0.0, stats.getPassRate());
+        Assertions.assertEquals(0, stats.getAverageNanos());
+    }
+
+    /**
+     * Frames and passed frames are counted separately, and time is averaged over every frame.
+     */
+    @Test
+    void framesAndPassesAreCounted() {
+        // Given
+        TierStats stats = new TierStats("gate");
+        long start = System.nanoTime();
+
+        // When
+        stats.record(start, true);
+        stats.record(start, false);
+        stats.record(start, false);
+        stats.record(start, true);
+
+        // Then
+        Assertions.assertEquals(4, stats.getFrameCount());
+        Assertions.assertEquals(2, stats.getPassedCount());
+        Assertions.assertEquals(0.5, stats.getPassRate());
+        Assertions.assertTrue(stats.getAverageNanos() >= 0);
+        Assertions.assertTrue(stats.toString().startsWith("gate: 4 frames, 50.0% passed"), stats.toString());
+    }
+}
@@ -0,0 +1,39 @@
+package com.udacity.metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic count of events. Incrementing from many threads does not contend. Rates such as events per
+ * second come from the difference between two exports.
+ */
+public final class Counter implements Meter {
+    private final MeterId id;
+    private final LongAdder count = new LongAdder();
+
+    Counter(MeterId id) {
+        this.id = id;
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    @Override
+    public MeterId getId() {
+        return id;
+    }
+
+    @Override
+    public Map<String, Double> measure() {
+        return Map.of("count", (double) count());
+    }
+}
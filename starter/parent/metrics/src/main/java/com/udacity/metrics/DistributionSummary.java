@@ -0,0 +1,56 @@
+package com.udacity.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Distribution of sizes or amounts, such as bytes written. Reports count, total, mean, max and the 99th percentile.
+ */
+public final class DistributionSummary implements Meter {
+    private final MeterId id;
+    private final LogHistogram histogram = new LogHistogram();
+
+    DistributionSummary(MeterId id) {
+        this.id = id;
+    }
+
+    public void record(long amount) {
+        histogram.record(amount);
+    }
+
+    public long count() {
+        return histogram.count();
+    }
+
+    public long total() {
+        return histogram.total();
+    }
+
+    public long max() {
+        return histogram.max();
+    }
+
+    /**
+     * @param percentile From 0 to 100
+     */
+    public long percentile(double percentile) {
+        return histogram.percentile(percentile);
+    }
+
+    @Override
+    public MeterId getId() {
+        return id;
+    }
+
+    @Override
+    public Map<String, Double> measure() {
+        long count = count();
+        Map<String, Double> values = new LinkedHashMap<>();
+        values.put("count", (double) count);
+        values.put("total", (double) total());
+        values.put("mean", count == 0 ? 0.0 : (double) total() / count);
+        values.put("max", (double) max());
+        values.put("p99", (double) percentile(99));
+        return values;
+    }
+}
@@ -0,0 +1,31 @@
+package com.udacity.metrics;
+
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Value read on demand, such as a queue depth or a hit rate.
+ */
+public final class Gauge implements Meter {
+    private final MeterId id;
+    private final DoubleSupplier value;
+
+    Gauge(MeterId id, DoubleSupplier value) {
+        this.id = id;
+        this.value = value;
+    }
+
+    public double value() {
+        return value.getAsDouble();
+    }
+
+    @Override
+    public MeterId getId() {
+        return id;
+    }
+
+    @Override
+    public Map<String, Double> measure() {
+        return Map.of("value", value());
+    }
+}
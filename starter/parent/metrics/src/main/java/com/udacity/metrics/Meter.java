@@ -0,0 +1,15 @@
+package com.udacity.metrics;
+
+import java.util.Map;
+
+/**
+ * Something a MetricsRegistry can report on.
+ */
+public interface Meter {
+    MeterId getId();
+
+    /**
+     * Current statistics of this meter by name, for example "count" or "p99_ms".
+     */
+    Map<String, Double> measure();
+}
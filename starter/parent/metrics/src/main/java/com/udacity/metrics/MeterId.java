@@ -0,0 +1,68 @@
+package com.udacity.metrics;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Name and tags that identify a meter, for example "image.analysis" with the tag impl=AwsImageServiceImpl.
+ */
+public final class MeterId {
+    private final String name;
+    private final String[] tags;
+
+    /**
+     * @param name Dot-separated meter name
+     * @param tags Alternating tag keys and values
+     */
+    public MeterId(String name, String... tags) {
+        if (tags.length % 2 != 0) {
+            throw new IllegalArgumentException("Tags must be key/value pairs");
+        }
+        this.name = Objects.requireNonNull(name);
+        this.tags = tags.clone();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Value of a tag, or null if the meter does not have it.
+     */
+    public String getTag(String key) {
+        for (int i = 0; i < tags.length; i += 2) {
+            if (tags[i].equals(key)) {
+                return tags[i + 1];
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MeterId meterId = (MeterId) o;
+        return name.equals(meterId.name) && Arrays.equals(tags, meterId.tags);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + Arrays.hashCode(tags);
+    }
+
+    @Override
+    public String toString() {
+        if (tags.length == 0) {
+            return name;
+        }
+        StringBuilder builder = new StringBuilder(name).append('{');
+        for (int i = 0; i < tags.length; i += 2) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(tags[i]).append('=').append(tags[i + 1]);
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,13 @@
+package com.udacity.metrics;
+
+import java.util.Collection;
+
+/**
+ * Sends meter readings somewhere, such as a log, a monitoring system or a flight recording.
+ */
+public interface MetricsExporter {
+    /**
+     * Called with every registered meter each time the registry exports.
+     */
+    void export(Collection<Meter> meters);
+}
@@ -0,0 +1,124 @@
+package com.udacity.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * Creates and keeps meters by name and tags. Asking for the same name and tags again returns the same
+ * meter, so callers on a hot path should look a meter up once and keep it in a field; recording on a
+ * meter never touches the registry.
+ *
+ * Exporters are pluggable: {@link #export(MetricsExporter)} hands every meter to an exporter once, and
+ * {@link #startExporting(MetricsExporter, long)} does so on a background thread at a fixed period.
+ * Most code records to {@link #global()}.
+ */
+public class MetricsRegistry {
+
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+    private final ConcurrentMap<MeterId, Meter> meters = new ConcurrentHashMap<>();
+    private final List<ScheduledFuture<?>> exports = new CopyOnWriteArrayList<>();
+    private volatile ScheduledExecutorService exportExecutor;
+
+    /**
+     * Registry shared by the whole application.
+     */
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    /**
+     * @param tags Alternating tag keys and values
+     */
+    public Counter counter(String name, String... tags) {
+        return register(new MeterId(name, tags), Counter::new, Counter.class);
+    }
+
+    public Timer timer(String name, String... tags) {
+        return register(new MeterId(name, tags), Timer::new, Timer.class);
+    }
+
+    public DistributionSummary summary(String name, String... tags) {
+        return register(new MeterId(name, tags), DistributionSummary::new, DistributionSummary.class);
+    }
+
+    /**
+     * Registers a gauge. If a gauge with the same name and tags exists it is kept and the new value is ignored.
+     * The registry holds the supplier, and everything it refers to, until the registry is discarded.
+     */
+    public Gauge gauge(String name, DoubleSupplier value, String... tags) {
+        return register(new MeterId(name, tags), id -> new Gauge(id, value), Gauge.class);
+    }
+
+    /**
+     * Every registered meter, in no particular order.
+     */
+    public Collection<Meter> getMeters() {
+        return new ArrayList<>(meters.values());
+    }
+
+    /**
+     * Hands every meter to the exporter now, on the calling thread.
+     */
+    public void export(MetricsExporter exporter) {
+        exporter.export(getMeters());
+    }
+
+    /**
+     * Exports to the exporter every periodMillis on a shared daemon thread until the returned handle is closed.
+     */
+    public AutoCloseable startExporting(MetricsExporter exporter, long periodMillis) {
+        if (periodMillis < 1) {
+            throw new IllegalArgumentException("periodMillis must be positive");
+        }
+        ScheduledFuture<?> task = exportExecutor().scheduleAtFixedRate(() -> {
+            //an exception here would cancel the scheduled export, so report it and carry on
+            try {
+                export(exporter);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        exports.add(task);
+        return () -> {
+            task.cancel(false);
+            exports.remove(task);
+        };
+    }
+
+    private <T extends Meter> T register(MeterId id, Function<MeterId, Meter> factory, Class<T> type) {
+        Meter meter = meters.computeIfAbsent(id, factory);
+        if (!type.isInstance(meter)) {
+            throw new IllegalArgumentException(id + " is already registered as a " + meter.getClass().getSimpleName());
+        }
+        return type.cast(meter);
+    }
+
+    private ScheduledExecutorService exportExecutor() {
+        ScheduledExecutorService executor = exportExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = exportExecutor;
+                if (executor == null) {
+                    executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread thread = new Thread(r, "metrics-export");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    exportExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+}
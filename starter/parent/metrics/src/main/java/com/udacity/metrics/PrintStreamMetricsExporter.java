@@ -0,0 +1,30 @@
+package com.udacity.metrics;
+
+import java.io.PrintStream;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Writes one line per meter, for example {@code image.analysis{impl=AwsImageServiceImpl} count=12 mean_ms=182.4 ...}.
+ */
+public class PrintStreamMetricsExporter implements MetricsExporter {
+    private final PrintStream out;
+
+    public PrintStreamMetricsExporter(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void export(Collection<Meter> meters) {
+        StringBuilder builder = new StringBuilder();
+        for (Meter meter : meters) {
+            builder.append(meter.getId());
+            for (Map.Entry<String, Double> value : meter.measure().entrySet()) {
+                builder.append(' ').append(value.getKey()).append('=').append(String.format("%.3f", value.getValue()));
+            }
+            builder.append(System.lineSeparator());
+        }
+        out.print(builder);
+        out.flush();
+    }
+}
@@ -0,0 +1,66 @@
+package com.udacity.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latency distribution. Record with {@code timer.recordSince(start)} where start came from
+ * System.nanoTime(). Reports count, mean, max and the 50th and 99th percentiles in milliseconds.
+ */
+public final class Timer implements Meter {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final MeterId id;
+    private final LogHistogram histogram = new LogHistogram();
+
+    Timer(MeterId id) {
+        this.id = id;
+    }
+
+    public void record(long nanos) {
+        histogram.record(nanos);
+    }
+
+    /**
+     * Records the time elapsed since a System.nanoTime() reading.
+     */
+    public void recordSince(long startNanos) {
+        histogram.record(System.nanoTime() - startNanos);
+    }
+
+    public long count() {
+        return histogram.count();
+    }
+
+    public long totalNanos() {
+        return histogram.total();
+    }
+
+    public long maxNanos() {
+        return histogram.max();
+    }
+
+    /**
+     * @param percentile From 0 to 100
+     */
+    public long percentileNanos(double percentile) {
+        return histogram.percentile(percentile);
+    }
+
+    @Override
+    public MeterId getId() {
+        return id;
+    }
+
+    @Override
+    public Map<String, Double> measure() {
+        long count = count();
+        Map<String, Double> values = new LinkedHashMap<>();
+        values.put("count", (double) count);
+        values.put("mean_ms", count == 0 ? 0.0 : totalNanos() / NANOS_PER_MILLI / count);
+        values.put("max_ms", maxNanos() / NANOS_PER_MILLI);
+        values.put("p50_ms", percentileNanos(50) / NANOS_PER_MILLI);
+        values.put("p99_ms", percentileNanos(99) / NANOS_PER_MILLI);
+        return values;
+    }
+}
@@ -0,0 +1,3 @@
+module metrics {
+    exports com.udacity.metrics;
+}
\ No newline at end of file
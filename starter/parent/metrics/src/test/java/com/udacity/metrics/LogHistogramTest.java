@@ -0,0 +1,73 @@
+package com.udacity.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LogHistogramTest {
+
+    /**
+     * Every value falls in a bucket whose upper bound covers it, and consecutive buckets leave no gaps.
+     */
+    @Test
+    void bucketsCoverEveryValueWithoutGaps() {
+        for (long value = 1; value <= 100_000; value++) {
+            int bucket = LogHistogram.bucket(value);
+            Assertions.assertTrue(LogHistogram.upperBound(bucket) >= value, "upper bound of " + value);
+            int previous = LogHistogram.bucket(value - 1);
+            if (previous != bucket) {
+                Assertions.assertEquals(value - 1, LogHistogram.upperBound(previous), "end of the bucket before " + value);
+            }
+        }
+    }
+
+    /**
+     * The largest values still fit in the fixed set of buckets.
+     */
+    @Test
+    void largestValueFitsTheLastBucket() {
+        int bucket = LogHistogram.bucket(Long.MAX_VALUE);
+        Assertions.assertTrue(bucket < 256);
+        Assertions.assertEquals(Long.MAX_VALUE, LogHistogram.upperBound(bucket));
+        Assertions.assertEquals(0, LogHistogram.bucket(0));
+    }
+
+    /**
+     * Percentiles are never below the true value and at most 25% above it, and never exceed the maximum.
+     */
+    @Test
+    void percentilesAreWithinTheBucketError() {
+        // Given
+        LogHistogram histogram = new LogHistogram();
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value);
+        }
+
+        // Then
+        for (double percentile : new double[]{1, 25, 50, 90, 99, 99.9}) {
+            long exact = (long) Math.ceil(percentile / 100.0 * 10_000);
+            long reported = histogram.percentile(percentile);
+            Assertions.assertTrue(reported >= exact && reported <= exact * 1.25,
+                    "p" + percentile + " was " + reported + ", expected about " + exact);
+        }
+        Assertions.assertEquals(10_000, histogram.percentile(100));
+        Assertions.assertEquals(10_000, histogram.count());
+        Assertions.assertEquals(10_000L * 10_001 / 2, histogram.total());
+    }
+
+    /**
+     * An empty histogram reports zero, and negative values are recorded as zero.
+     */
+    @Test
+    void emptyAndNegativeValues() {
+        // Given
+        LogHistogram histogram = new LogHistogram();
+        Assertions.assertEquals(0, histogram.percentile(50));
+
+        // When
+        histogram.record(-5);
+
+        // Then
+        Assertions.assertEquals(0, histogram.percentile(100));
+        Assertions.assertEquals(1, histogram.count());
+    }
+}
@@ -0,0 +1,49 @@
+package com.udacity.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class MetricsRegistryTest {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    /**
+     * Asking for the same name and tags again returns the meter already registered.
+     */
+    @Test
+    void sameIdReturnsTheSameMeter() {
+        Counter counter = registry.counter("sensor.events", "type", "door");
+
+        Assertions.assertSame(counter, registry.counter("sensor.events", "type", "door"));
+        Assertions.assertNotSame(counter, registry.counter("sensor.events", "type", "window"));
+        Assertions.assertEquals(2, registry.getMeters().size());
+    }
+
+    /**
+     * An id registered as one kind of meter cannot be registered again as another.
+     */
+    @Test
+    void reregisteringAsAnotherTypeFails() {
+        // Given
+        registry.counter("image.analysis", "tier", "remote");
+
+        // When
+        IllegalArgumentException error = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> registry.timer("image.analysis", "tier", "remote"));
+
+        // Then - The original meter is kept
+        Assertions.assertTrue(error.getMessage().contains("Counter"));
+        Assertions.assertEquals(1, registry.getMeters().size());
+        Assertions.assertTrue(registry.getMeters().iterator().next() instanceof Counter);
+    }
+
+    /**
+     * A second gauge with the same id keeps the first one's value supplier.
+     */
+    @Test
+    void existingGaugeIsKept() {
+        Gauge first = registry.gauge("queue.depth", () -> 1);
+
+        Assertions.assertSame(first, registry.gauge("queue.depth", () -> 2));
+    }
+}
@@ -1,10 +1,18 @@
 package com.udacity.security.application;
 
+import com.udacity.metrics.MetricsRegistry;
+import com.udacity.metrics.PrintStreamMetricsExporter;
+
 /**
  * This is the main class that launches the application.
+ * Run with -Dcatpoint.metrics.periodMillis=10000 to print the metrics to standard output every ten seconds.
  */
 public class CatpointApp {
     public static void main(String[] args) {
+        long metricsPeriod = Long.getLong("catpoint.metrics.periodMillis", 0);
+        if (metricsPeriod > 0) {
+            MetricsRegistry.global().startExporting(new PrintStreamMetricsExporter(System.out), metricsPeriod);
+        }
         CatpointGui gui = new CatpointGui();
         gui.setVisible(true);
     }
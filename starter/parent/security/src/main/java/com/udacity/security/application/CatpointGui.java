@@ -2,6 +2,7 @@ package com.udacity.security.application;
 
 import com.udacity.image.service.FakeImageServiceImpl;
 import com.udacity.image.service.ImageService;
+import com.udacity.security.data.ImageAnalysisExecutor;
 import com.udacity.security.data.SecurityService;
 import com.udacity.security.data.PretendDatabaseSecurityRepositoryImpl;
 import com.udacity.security.data.SecurityRepository;
@@ -20,7 +21,10 @@ public class CatpointGui extends JFrame {
     private static final String TITLE = "Catpoint Security System";
     private final SecurityRepository securityRepository = new PretendDatabaseSecurityRepositoryImpl();
     private final ImageService imageService = new FakeImageServiceImpl();
-    private final SecurityService securityService = new SecurityService(securityRepository, imageService);
+    private final ImageAnalysisExecutor imageAnalysisExecutor =
+            new ImageAnalysisExecutor(2, 8, ImageAnalysisExecutor.OverflowPolicy.DROP_OLDEST);
+    private final SecurityService securityService =
+            new SecurityService(securityRepository, imageService, imageAnalysisExecutor, SwingUtilities::invokeLater);
     private DisplayPanel displayPanel = new DisplayPanel(securityService);
     private ControlPanel controlPanel = new ControlPanel(securityService);
     private SensorPanel sensorPanel = new SensorPanel(securityService);
@@ -19,7 +19,7 @@ public class DisplayPanel extends JPanel implements StatusListener {
         super();
         setLayout(new MigLayout());
 
-        securityService.addStatusListener(this);
+        securityService.addStatusListener(this, SwingUtilities::invokeLater);
 
         JLabel panelLabel = new JLabel("Very Secure Home Security");
         JLabel systemStatusLabel = new JLabel("System Status:");
@@ -29,7 +29,7 @@ public class ImagePanel extends JPanel implements StatusListener {
         super();
         setLayout(new MigLayout());
         this.securityService = securityService;
-        securityService.addStatusListener(this);
+        securityService.addStatusListener(this, SwingUtilities::invokeLater);
 
         cameraHeader = new JLabel("Camera Feed");
         cameraHeader.setFont(StyleService.HEADING_FONT);
@@ -62,7 +62,7 @@ public class ImagePanel extends JPanel implements StatusListener {
         //button that sends the image to the image service
         JButton scanPictureButton = new JButton("Scan Picture");
         scanPictureButton.addActionListener(e -> {
-            securityService.processImage(currentCameraImage);
+            securityService.processImageAsync(currentCameraImage);
         });
 
         add(cameraHeader, "span 3, wrap");
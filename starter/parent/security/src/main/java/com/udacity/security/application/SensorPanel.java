@@ -4,11 +4,19 @@ import com.udacity.security.data.*;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
+import javax.swing.table.TableCellRenderer;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.Objects;
 
 /**
  * Panel that allows users to add sensors to their system. Sensors may be
  * manually set to "active" and "inactive" to test the system.
+ *
+ * The sensor list is a JTable over a SensorTableModel. Status changes only repaint the rows whose
+ * sensor changed, and the table only paints the rows scrolled into view, so the panel stays
+ * responsive with thousands of sensors.
  */
 public class SensorPanel extends JPanel implements StatusListener {
 
@@ -21,7 +29,8 @@ public class SensorPanel extends JPanel implements StatusListener {
     private final JComboBox newSensorTypeDropdown = new JComboBox(SensorType.values());
     private final JButton addNewSensorButton = new JButton("Add New Sensor");
 
-    private final JPanel sensorListPanel;
+    private final SensorTableModel sensorTableModel = new SensorTableModel();
+    private final JTable sensorTable = new JTable(sensorTableModel);
     private final JPanel newSensorPanel;
 
     public SensorPanel(SecurityService securityService) {
@@ -29,7 +38,7 @@ public class SensorPanel extends JPanel implements StatusListener {
         setLayout(new MigLayout());
         this.securityService = securityService;
 
-        securityService.addStatusListener(this);
+        securityService.addStatusListener(this, SwingUtilities::invokeLater);
 
         panelLabel.setFont(StyleService.HEADING_FONT);
         addNewSensorButton.addActionListener(e ->
@@ -37,14 +46,13 @@ public class SensorPanel extends JPanel implements StatusListener {
                         SensorType.valueOf(Objects.requireNonNull(newSensorTypeDropdown.getSelectedItem()).toString()))));
 
         newSensorPanel = buildAddSensorPanel();
-        sensorListPanel = new JPanel();
-        sensorListPanel.setLayout(new MigLayout());
+        JScrollPane sensorListPane = buildSensorListPane();
 
-        updateSensorList(sensorListPanel);
+        updateSensorList();
 
         add(panelLabel, "wrap");
         add(newSensorPanel, "span");
-        add(sensorListPanel, "span");
+        add(sensorListPane, "span");
     }
 
     /**
@@ -62,59 +70,79 @@ public class SensorPanel extends JPanel implements StatusListener {
     }
 
     /**
-     * Requests the current list of sensors and updates the provided panel to display them. Sensors
-     * will display in the order that they are created.
-     * @param p The Panel to populate with the current list of sensors
+     * Builds the scrollable sensor table. The buttons are painted by a shared renderer and clicks are
+     * mapped to the row under the mouse, so no components are created per sensor.
      */
-    private void updateSensorList(JPanel p) {
-        p.removeAll();
-        securityService.getSensors().stream().sorted().forEach(sensor -> {
-            JLabel sensorLabel = new JLabel(String.format("%s(%s): %s", sensor.getName(),  sensor.getSensorType().toString(),(sensor.getActive() ? "Active" : "Inactive")));
-            JButton sensorToggleButton = new JButton((sensor.getActive() ? "Deactivate" : "Activate"));
-            JButton sensorRemoveButton = new JButton("Remove Sensor");
-
-            sensorToggleButton.addActionListener(e -> setSensorActivity(sensor) );
-            sensorRemoveButton.addActionListener(e -> removeSensor(sensor));
-
-            //hard code some sizes, tsk tsk
-            p.add(sensorLabel, "width 300:300:300");
-            p.add(sensorToggleButton, "width 100:100:100");
-            p.add(sensorRemoveButton, "wrap");
+    private JScrollPane buildSensorListPane() {
+        JButton buttonRenderer = new JButton();
+        TableCellRenderer renderer = (table, value, isSelected, hasFocus, row, column) -> {
+            buttonRenderer.setText(value.toString());
+            return buttonRenderer;
+        };
+        sensorTable.setTableHeader(null);
+        sensorTable.setShowGrid(false);
+        sensorTable.setRowHeight(buttonRenderer.getPreferredSize().height + 4);
+        sensorTable.setRowSelectionAllowed(false);
+        sensorTable.getColumnModel().getColumn(SensorTableModel.SENSOR_COLUMN).setPreferredWidth(300);
+        sensorTable.getColumnModel().getColumn(SensorTableModel.TOGGLE_COLUMN).setPreferredWidth(100);
+        sensorTable.getColumnModel().getColumn(SensorTableModel.TOGGLE_COLUMN).setCellRenderer(renderer);
+        sensorTable.getColumnModel().getColumn(SensorTableModel.REMOVE_COLUMN).setPreferredWidth(120);
+        sensorTable.getColumnModel().getColumn(SensorTableModel.REMOVE_COLUMN).setCellRenderer(renderer);
+        sensorTable.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = sensorTable.rowAtPoint(e.getPoint());
+                int column = sensorTable.columnAtPoint(e.getPoint());
+                if (row < 0) {
+                    return;
+                }
+                Sensor sensor = sensorTableModel.getSensorAt(row);
+                if (column == SensorTableModel.TOGGLE_COLUMN) {
+                    setSensorActivity(sensor);
+                } else if (column == SensorTableModel.REMOVE_COLUMN) {
+                    removeSensor(sensor);
+                }
+            }
         });
 
-        repaint();
-        revalidate();
+        JScrollPane pane = new JScrollPane(sensorTable);
+        pane.setPreferredSize(new Dimension(520, sensorTable.getRowHeight() * 8));
+        return pane;
     }
 
     /**
-     * Asks the securityService to change a sensor activation status and then rebuilds the current sensor list
+     * Requests the current list of sensors and updates the table rows that changed. Sensors
+     * will display in sorted order.
+     */
+    private void updateSensorList() {
+        sensorTableModel.refresh(securityService.getSortedSensors());
+    }
+
+    /**
+     * Asks the securityService to change a sensor activation status and then updates the current sensor list
      * @param sensor The sensor to update
      */
     private void setSensorActivity(Sensor sensor) {
         securityService.changeSensorActivationStatus(sensor, sensor.getActive());
-        updateSensorList(sensorListPanel);
+        updateSensorList();
     }
 
     /**
-     * Adds a sensor to the securityService and then rebuilds the sensor list
+     * Adds a sensor to the securityService and then updates the sensor list
      * @param sensor The sensor to add
      */
     private void addSensor(Sensor sensor) {
-        if (securityService.getSensors().size() < 4) {
-            securityService.addSensor(sensor);
-            updateSensorList(sensorListPanel);
-        } else {
-            JOptionPane.showMessageDialog(null, "To add more than 4 sensors, please subscribe to our Premium Membership!");
-        }
+        securityService.addSensor(sensor);
+        updateSensorList();
     }
 
     /**
-     * Remove a sensor from the securityService and then rebuild the sensor list
+     * Remove a sensor from the securityService and then update the sensor list
      * @param sensor The sensor to remove
      */
     private void removeSensor(Sensor sensor) {
         securityService.removeSensor(sensor);
-        updateSensorList(sensorListPanel);
+        updateSensorList();
     }
 
     @Override
@@ -129,6 +157,6 @@ public class SensorPanel extends JPanel implements StatusListener {
 
     @Override
     public void sensorStatusChanged() {
-        updateSensorList(sensorListPanel);
+        updateSensorList();
     }
 }
@@ -0,0 +1,145 @@
+package com.udacity.security.application;
+
+import com.udacity.security.data.Sensor;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.List;
+
+/**
+ * Table model behind the sensor list. Rows are the sensors in display order. Each refresh compares the
+ * new list with the one on screen and only reports the rows that changed, so a single sensor toggling
+ * repaints a single row, and adding or removing a sensor inserts or deletes a single row, no matter how
+ * many sensors are installed.
+ */
+class SensorTableModel extends AbstractTableModel {
+
+    static final int SENSOR_COLUMN = 0;
+    static final int TOGGLE_COLUMN = 1;
+    static final int REMOVE_COLUMN = 2;
+
+    private static final String[] COLUMN_NAMES = {"Sensor", "", ""};
+
+    private List<Sensor> sensors = List.of();
+    //activation state of each row as last shown, so refreshes can tell which rows need repainting
+    private boolean[] shownActive = new boolean[0];
+
+    /**
+     * Replaces the rows with the provided sensors and fires the smallest change event that covers the difference.
+     * @param sortedSensors The sensors in display order. The list is kept, so it must not be modified afterwards.
+     */
+    void refresh(List<Sensor> sortedSensors) {
+        if (!sameRows(sortedSensors)) {
+            replaceRows(sortedSensors);
+            return;
+        }
+
+        sensors = sortedSensors;
+        for (int i = 0; i < shownActive.length; i++) {
+            boolean active = sensors.get(i).getActive();
+            if (active != shownActive[i]) {
+                shownActive[i] = active;
+                fireTableRowsUpdated(i, i);
+            }
+        }
+    }
+
+    /**
+     * Takes a list holding different sensors. The rows both lists start and end with are kept, and the rows
+     * in between are reported as inserted, deleted or updated; anything else is reported as a full change.
+     */
+    private void replaceRows(List<Sensor> sortedSensors) {
+        int oldSize = sensors.size();
+        int newSize = sortedSensors.size();
+        int prefix = 0;
+        while (prefix < oldSize && prefix < newSize && sortedSensors.get(prefix) == sensors.get(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < oldSize - prefix && suffix < newSize - prefix
+                && sortedSensors.get(newSize - 1 - suffix) == sensors.get(oldSize - 1 - suffix)) {
+            suffix++;
+        }
+        int oldEnd = oldSize - suffix;
+        int newEnd = newSize - suffix;
+
+        boolean[] previousActive = shownActive;
+        sensors = sortedSensors;
+        shownActive = new boolean[newSize];
+        for (int i = 0; i < newSize; i++) {
+            shownActive[i] = sensors.get(i).getActive();
+        }
+
+        if (oldEnd == prefix) {
+            fireTableRowsInserted(prefix, newEnd - 1);
+        } else if (newEnd == prefix) {
+            fireTableRowsDeleted(prefix, oldEnd - 1);
+        } else if (oldEnd == newEnd) {
+            fireTableRowsUpdated(prefix, newEnd - 1);
+        } else {
+            fireTableDataChanged();
+            return;
+        }
+        //kept rows may have toggled in the same refresh
+        for (int i = 0; i < prefix; i++) {
+            if (shownActive[i] != previousActive[i]) {
+                fireTableRowsUpdated(i, i);
+            }
+        }
+        for (int i = 0; i < suffix; i++) {
+            if (shownActive[newEnd + i] != previousActive[oldEnd + i]) {
+                fireTableRowsUpdated(newEnd + i, newEnd + i);
+            }
+        }
+    }
+
+    Sensor getSensorAt(int row) {
+        return sensors.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return sensors.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        boolean active = shownActive[row];
+        switch (column) {
+            case SENSOR_COLUMN:
+                Sensor sensor = sensors.get(row);
+                return String.format("%s(%s): %s", sensor.getName(), sensor.getSensorType().toString(), (active ? "Active" : "Inactive"));
+            case TOGGLE_COLUMN:
+                return active ? "Deactivate" : "Activate";
+            default:
+                return "Remove Sensor";
+        }
+    }
+
+    /**
+     * True if the new list holds the same sensor instances in the same order as the rows on screen.
+     */
+    private boolean sameRows(List<Sensor> sortedSensors) {
+        if (sortedSensors == sensors) {
+            return true;
+        }
+        if (sortedSensors.size() != sensors.size()) {
+            return false;
+        }
+        for (int i = 0; i < sensors.size(); i++) {
+            if (sortedSensors.get(i) != sensors.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
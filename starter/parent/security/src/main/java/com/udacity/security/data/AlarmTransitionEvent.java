@@ -0,0 +1,23 @@
+package com.udacity.security.data;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for SecurityService alarm transitions. The event duration covers the repository
+ * write and notifying inline listeners, or only handing the change over when another thread is already
+ * writing the alarm status.
+ */
+@Name("com.udacity.security.AlarmTransition")
+@Label("Alarm Transition")
+@Category({"Catpoint", "Security"})
+@Description("Alarm status change, including the repository write")
+final class AlarmTransitionEvent extends jdk.jfr.Event {
+    @Label("Old Status")
+    String oldStatus;
+
+    @Label("New Status")
+    String newStatus;
+}
@@ -0,0 +1,30 @@
+package com.udacity.security.data;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for SecurityService.setArmingStatus. Arming may reset every sensor, so the
+ * duration grows with the number of sensors installed.
+ */
+@Name("com.udacity.security.ArmingTransition")
+@Label("Arming Transition")
+@Category({"Catpoint", "Security"})
+@Description("Arming status change, including the time spent waiting for the arming lock")
+final class ArmingTransitionEvent extends jdk.jfr.Event {
+    @Label("Old Status")
+    String oldStatus;
+
+    @Label("New Status")
+    String newStatus;
+
+    @Label("Sensor Count")
+    int sensorCount;
+
+    @Label("Lock Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    long lockWait;
+}
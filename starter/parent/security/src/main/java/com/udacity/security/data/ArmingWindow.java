@@ -0,0 +1,104 @@
+package com.udacity.security.data;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Objects;
+
+/**
+ * A daily period during which the system arms itself, for example armed-away from 09:00 to 17:00
+ * or armed-home from 23:00 to 07:00 overnight. A window whose end is earlier than its start runs
+ * past midnight. Times are local to the window's zone, so the window follows daylight saving changes.
+ */
+public final class ArmingWindow {
+    private final LocalTime start;
+    private final LocalTime end;
+    private final ArmingStatus armingStatus;
+    private final ZoneId zone;
+
+    /**
+     * Creates a window in the system's default time zone.
+     */
+    public ArmingWindow(LocalTime start, LocalTime end, ArmingStatus armingStatus) {
+        this(start, end, armingStatus, ZoneId.systemDefault());
+    }
+
+    /**
+     * @param start Local time the system is armed
+     * @param end Local time the system is disarmed again
+     * @param armingStatus ARMED_HOME or ARMED_AWAY
+     * @param zone Time zone the start and end are given in
+     */
+    public ArmingWindow(LocalTime start, LocalTime end, ArmingStatus armingStatus, ZoneId zone) {
+        this.start = Objects.requireNonNull(start);
+        this.end = Objects.requireNonNull(end);
+        this.armingStatus = Objects.requireNonNull(armingStatus);
+        this.zone = Objects.requireNonNull(zone);
+        if (armingStatus == ArmingStatus.DISARMED) {
+            throw new IllegalArgumentException("An arming window must arm the system");
+        }
+        if (start.equals(end)) {
+            throw new IllegalArgumentException("An arming window must not start and end at the same time");
+        }
+    }
+
+    public LocalTime getStart() {
+        return start;
+    }
+
+    public LocalTime getEnd() {
+        return end;
+    }
+
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * First time strictly after the given instant at which the window opens.
+     */
+    public Instant nextStart(Instant after) {
+        return next(start, after);
+    }
+
+    /**
+     * First time strictly after the given instant at which the window closes.
+     */
+    public Instant nextEnd(Instant after) {
+        return next(end, after);
+    }
+
+    private Instant next(LocalTime time, Instant after) {
+        LocalDate date = after.atZone(zone).toLocalDate();
+        Instant candidate = ZonedDateTime.of(date, time, zone).toInstant();
+        while (!candidate.isAfter(after)) {
+            date = date.plusDays(1);
+            candidate = ZonedDateTime.of(date, time, zone).toInstant();
+        }
+        return candidate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ArmingWindow that = (ArmingWindow) o;
+        return start.equals(that.start) && end.equals(that.end) && armingStatus == that.armingStatus && zone.equals(that.zone);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(start, end, armingStatus, zone);
+    }
+
+    @Override
+    public String toString() {
+        return armingStatus + " " + start + "-" + end + " " + zone;
+    }
+}
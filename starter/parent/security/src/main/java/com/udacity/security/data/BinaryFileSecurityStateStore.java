@@ -0,0 +1,122 @@
+package com.udacity.security.data;
+
+import com.udacity.metrics.DistributionSummary;
+import com.udacity.metrics.MetricsRegistry;
+import com.udacity.metrics.Timer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Stores the system state in a local file using the BinarySnapshotFormat. Every save writes a
+ * temporary file next to the target, forces it to disk and renames it over the target, so a crash
+ * leaves either the old or the new snapshot and never a partial one. The encoded sensor block is
+ * cached, so alarm and arming status changes rewrite the file without encoding the sensors again.
+ */
+public class BinaryFileSecurityStateStore implements SecurityStateStore {
+
+    private static final Timer WRITE_TIMER = MetricsRegistry.global().timer("security.repository.write", "store", "binary-file");
+    private static final DistributionSummary WRITE_BYTES = MetricsRegistry.global().summary("security.repository.write.bytes", "store", "binary-file");
+
+    private final Path file;
+    private final Path tempFile;
+    private AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private ArmingStatus armingStatus = ArmingStatus.DISARMED;
+    private byte[] sensorBlock = BinarySnapshotFormat.encodeSensors(List.of());
+
+    public BinaryFileSecurityStateStore(Path file) {
+        this.file = file.toAbsolutePath();
+        this.tempFile = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+    }
+
+    @Override
+    public synchronized SecurityState load() {
+        if (!Files.exists(file)) {
+            return SecurityState.empty();
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            SecurityState state = BinarySnapshotFormat.read(new ByteArrayInputStream(bytes));
+            alarmStatus = state.getAlarmStatus();
+            armingStatus = state.getArmingStatus();
+            sensorBlock = Arrays.copyOfRange(bytes, BinarySnapshotFormat.HEADER_LENGTH, bytes.length);
+            return state;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to load sensor snapshot " + file, e);
+        }
+    }
+
+    /**
+     * Encodes and writes the sensors under the store's lock, so concurrent saves reach the file in the
+     * order they were made. The disk write dominates the cost, so encoding inside the lock adds little.
+     */
+    @Override
+    public synchronized void saveSensors(Collection<Sensor> sensors) {
+        sensorBlock = BinarySnapshotFormat.encodeSensors(sensors);
+        write();
+    }
+
+    /**
+     * Replaces the stored state with the provided one in a single file write.
+     */
+    @Override
+    public synchronized void saveState(SecurityState state) {
+        alarmStatus = state.getAlarmStatus();
+        armingStatus = state.getArmingStatus();
+        sensorBlock = BinarySnapshotFormat.encodeSensors(state.getSensors());
+        write();
+    }
+
+    @Override
+    public synchronized void saveAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+        write();
+    }
+
+    @Override
+    public synchronized void saveArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+        write();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    private void write() {
+        long start = System.nanoTime();
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer[] buffers = {
+                        ByteBuffer.wrap(BinarySnapshotFormat.encodeHeader(alarmStatus, armingStatus)),
+                        ByteBuffer.wrap(sensorBlock)
+                };
+                while (buffers[1].hasRemaining()) {
+                    channel.write(buffers);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write sensor snapshot " + file, e);
+        }
+        WRITE_TIMER.recordSince(start);
+        WRITE_BYTES.record(BinarySnapshotFormat.HEADER_LENGTH + sensorBlock.length);
+    }
+}
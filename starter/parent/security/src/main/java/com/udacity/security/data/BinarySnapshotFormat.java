@@ -0,0 +1,119 @@
+package com.udacity.security.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Compact, versioned binary encoding of a SecurityState.
+ *
+ * Layout (all numbers big-endian):
+ * <pre>
+ *   header:  int magic 'CPSS', byte format version, byte alarm status ordinal, byte arming status ordinal
+ *   sensors: int count,
+ *            count x (long id high bits, long id low bits, byte sensor type ordinal, modified UTF-8 name),
+ *            ceil(count / 8) bytes of active flags, one bit per sensor in the same order
+ * </pre>
+ * The header has a fixed size so the sensor block can be cached and re-used when only the
+ * alarm or arming status changes.
+ */
+public final class BinarySnapshotFormat {
+    public static final int MAGIC = 0x43505353;
+    public static final byte VERSION = 1;
+    public static final int HEADER_LENGTH = 7;
+
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+    private static final ArmingStatus[] ARMING_STATUSES = ArmingStatus.values();
+    private static final SensorType[] SENSOR_TYPES = SensorType.values();
+
+    private BinarySnapshotFormat() {
+    }
+
+    /**
+     * Encodes a complete state.
+     */
+    public static byte[] encode(SecurityState state) {
+        byte[] sensorBlock = encodeSensors(state.getSensors());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_LENGTH + sensorBlock.length);
+        bytes.writeBytes(encodeHeader(state.getAlarmStatus(), state.getArmingStatus()));
+        bytes.writeBytes(sensorBlock);
+        return bytes.toByteArray();
+    }
+
+    public static byte[] encodeHeader(AlarmStatus alarmStatus, ArmingStatus armingStatus) {
+        return new byte[] {
+                (byte) (MAGIC >>> 24), (byte) (MAGIC >>> 16), (byte) (MAGIC >>> 8), (byte) MAGIC,
+                VERSION, (byte) alarmStatus.ordinal(), (byte) armingStatus.ordinal()
+        };
+    }
+
+    /**
+     * Encodes the sensor block that follows the header.
+     */
+    public static byte[] encodeSensors(Collection<Sensor> sensors) {
+        //roughly 32 bytes per sensor before the name
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4 + sensors.size() * 32);
+        byte[] activeFlags = new byte[(sensors.size() + 7) / 8];
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(sensors.size());
+            int index = 0;
+            for (Sensor sensor : sensors) {
+                UUID id = sensor.getSensorId();
+                out.writeLong(id.getMostSignificantBits());
+                out.writeLong(id.getLeastSignificantBits());
+                out.writeByte(sensor.getSensorType().ordinal());
+                out.writeUTF(sensor.getName() == null ? "" : sensor.getName());
+                if (sensor.getActive()) {
+                    activeFlags[index >>> 3] |= (byte) (1 << (index & 7));
+                }
+                index++;
+            }
+            out.write(activeFlags);
+        } catch (IOException e) {
+            //writing to memory never fails
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads a state written by encode.
+     * @throws IOException if the data is truncated, is not a snapshot, or uses an unknown format version
+     */
+    public static SecurityState read(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a sensor snapshot");
+        }
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported sensor snapshot version " + version);
+        }
+        AlarmStatus alarmStatus = ALARM_STATUSES[in.readUnsignedByte()];
+        ArmingStatus armingStatus = ARMING_STATUSES[in.readUnsignedByte()];
+
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Corrupt sensor snapshot, negative sensor count");
+        }
+        List<Sensor> sensors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            UUID id = new UUID(in.readLong(), in.readLong());
+            SensorType sensorType = SENSOR_TYPES[in.readUnsignedByte()];
+            //active flags follow the names, see encodeSensors
+            sensors.add(new Sensor(id, in.readUTF(), sensorType, false));
+        }
+        byte[] activeFlags = new byte[(count + 7) / 8];
+        in.readFully(activeFlags);
+        for (int i = 0; i < count; i++) {
+            sensors.get(i).setActive((activeFlags[i >>> 3] & (1 << (i & 7))) != 0);
+        }
+        return new SecurityState(sensors, alarmStatus, armingStatus);
+    }
+}
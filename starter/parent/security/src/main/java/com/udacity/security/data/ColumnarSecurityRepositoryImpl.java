@@ -0,0 +1,277 @@
+package com.udacity.security.data;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory repository for very large installations. Sensors are kept in SensorColumns, parallel
+ * primitive arrays with the activation states in a BitSet, rather than as Sensor objects, so a
+ * million sensors take tens of megabytes and create no garbage while they sit in the repository.
+ * areSensorsArmed and the active counts scan the BitSet a word at a time.
+ *
+ * The repository does not hold on to the Sensor objects it is given. getSensors and getSortedSensors
+ * return freshly built copies, so a change made to a returned sensor is only kept once it is passed
+ * back through updateSensor, updateSensors or mutate, as the SecurityService already does. Reads share
+ * a lock and changes take it exclusively.
+ */
+public class ColumnarSecurityRepositoryImpl implements SecurityRepository {
+
+    private final SensorColumns columns = new SensorColumns();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Set<Sensor> sensorView = new ColumnSetView();
+    private volatile AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private volatile ArmingStatus armingStatus = ArmingStatus.DISARMED;
+
+    //bumped by every sensor change, guarded by lock
+    private long version;
+    private volatile SortedSensors sortedSensors;
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        updateSensors(List.of(sensor));
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            if (columns.remove(sensor.getSensorId())) {
+                version++;
+            }
+        } finally {
+            write.unlock();
+        }
+    }
+
+    @Override
+    public void updateSensor(Sensor sensor) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            columns.put(sensor);
+            version++;
+        } finally {
+            write.unlock();
+        }
+    }
+
+    @Override
+    public void updateSensors(Collection<Sensor> sensors) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            for (Sensor sensor : sensors) {
+                columns.put(sensor);
+            }
+            version++;
+        } finally {
+            write.unlock();
+        }
+    }
+
+    @Override
+    public void mutate(Consumer<MutableState> changes) {
+        StateChanges state = new StateChanges(sensorView);
+        changes.accept(state);
+        updateSensors(state.getChangedSensors());
+        if (state.getArmingStatus() != null) {
+            this.armingStatus = state.getArmingStatus();
+        }
+        if (state.getAlarmStatus() != null) {
+            this.alarmStatus = state.getAlarmStatus();
+        }
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+    }
+
+    /**
+     * Live view of the sensors. Each iteration builds a copy of every sensor as it is at that moment.
+     */
+    @Override
+    public Set<Sensor> getSensors() {
+        return sensorView;
+    }
+
+    @Override
+    public List<Sensor> getSortedSensors() {
+        SortedSensors sorted = sortedSensors;
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            if (sorted == null || sorted.version != version) {
+                List<Sensor> sensors = materialize();
+                sensors.sort(null);
+                sorted = new SortedSensors(version, List.copyOf(sensors));
+                sortedSensors = sorted;
+            }
+        } finally {
+            read.unlock();
+        }
+        return sorted.sensors;
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    @Override
+    public boolean areSensorsArmed() {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            return columns.allActive();
+        } finally {
+            read.unlock();
+        }
+    }
+
+    /**
+     * Clears every activation bit at once.
+     */
+    @Override
+    public void setAllSensorsInactive() {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            columns.setAllInactive();
+            version++;
+        } finally {
+            write.unlock();
+        }
+    }
+
+    /**
+     * True if at least one sensor is active.
+     */
+    public boolean anySensorActive() {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            return columns.anyActive();
+        } finally {
+            read.unlock();
+        }
+    }
+
+    public int getActiveSensorCount() {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            return columns.activeCount();
+        } finally {
+            read.unlock();
+        }
+    }
+
+    public int getActiveSensorCount(SensorType sensorType) {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            return columns.activeCount(sensorType);
+        } finally {
+            read.unlock();
+        }
+    }
+
+    /**
+     * Number of distinct sensor names stored. Sensors that share a name share its storage.
+     */
+    public int getDistinctNameCount() {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            return columns.distinctNameCount();
+        } finally {
+            read.unlock();
+        }
+    }
+
+    /**
+     * Copies every row into a Sensor, under the read lock held by the caller.
+     */
+    private List<Sensor> materialize() {
+        List<Sensor> sensors = new ArrayList<>(columns.size());
+        for (int row = 0; row < columns.size(); row++) {
+            sensors.add(columns.materialize(row));
+        }
+        return sensors;
+    }
+
+    private static final class SortedSensors {
+        private final long version;
+        private final List<Sensor> sensors;
+
+        private SortedSensors(long version, List<Sensor> sensors) {
+            this.version = version;
+            this.sensors = sensors;
+        }
+    }
+
+    /**
+     * Read-only Set over the columns. Size and lookups read the columns directly; iteration walks a
+     * copy taken under the read lock, so it is never disturbed by concurrent changes.
+     */
+    private final class ColumnSetView extends AbstractSet<Sensor> {
+        @Override
+        public Iterator<Sensor> iterator() {
+            List<Sensor> sensors;
+            Lock read = lock.readLock();
+            read.lock();
+            try {
+                sensors = materialize();
+            } finally {
+                read.unlock();
+            }
+            return Collections.unmodifiableList(sensors).iterator();
+        }
+
+        @Override
+        public int size() {
+            Lock read = lock.readLock();
+            read.lock();
+            try {
+                return columns.size();
+            } finally {
+                read.unlock();
+            }
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Sensor)) {
+                return false;
+            }
+            Lock read = lock.readLock();
+            read.lock();
+            try {
+                return columns.find(((Sensor) o).getSensorId()) >= 0;
+            } finally {
+                read.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,460 @@
+package com.udacity.security.data;
+
+import com.udacity.metrics.DistributionSummary;
+import com.udacity.metrics.MetricsRegistry;
+import com.udacity.metrics.Timer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Repository that records every change as a small record appended to an event log, instead of
+ * re-serializing the whole state on each write. Once enough records have been appended the log is
+ * compacted: the full state is written as a BinarySnapshotFormat snapshot and the log is emptied.
+ * On startup the snapshot is loaded and the log is replayed on top of it.
+ *
+ * Directory layout:
+ * <pre>
+ *   snapshot.bin  latest snapshot, replaced atomically
+ *   events.log    records appended since that snapshot
+ * </pre>
+ * Each record is an int payload length, the payload and a CRC32 of the payload. A payload is a
+ * record type followed by either a sensor (id, type, active flag, name), a sensor id or a status
+ * ordinal. Replaying a record twice has no further effect, so a crash between writing a snapshot
+ * and emptying the log is harmless. A record torn by a crash fails its length or CRC check and is
+ * cut off, together with anything after it.
+ *
+ * Records capture the sensor as it is when the change is written, so callers must not change the
+ * same sensor from two threads at once; the SecurityService already serializes updates per sensor.
+ */
+public class EventLogSecurityRepositoryImpl implements SecurityRepository, AutoCloseable {
+
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final String LOG_FILE = "events.log";
+    private static final int DEFAULT_COMPACT_THRESHOLD = 10_000;
+    private static final Timer WRITE_TIMER = MetricsRegistry.global().timer("security.repository.write", "store", "event-log");
+    private static final DistributionSummary WRITE_BYTES = MetricsRegistry.global().summary("security.repository.write.bytes", "store", "event-log");
+
+    //record types
+    private static final byte ADD_SENSOR = 1;
+    private static final byte REMOVE_SENSOR = 2;
+    private static final byte UPDATE_SENSOR = 3;
+    private static final byte ALARM_STATUS = 4;
+    private static final byte ARMING_STATUS = 5;
+
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+    private static final ArmingStatus[] ARMING_STATUSES = ArmingStatus.values();
+    private static final SensorType[] SENSOR_TYPES = SensorType.values();
+
+    private final Map<UUID, Sensor> sensors = new ConcurrentHashMap<>();
+    private final Set<Sensor> sensorView = new SensorSetView(sensors);
+    private volatile AlarmStatus alarmStatus;
+    private volatile ArmingStatus armingStatus;
+
+    private final BinaryFileSecurityStateStore snapshotStore;
+    private final FileChannel log;
+    private final int compactThreshold;
+    private final boolean syncOnWrite;
+
+    //guarded by logLock
+    private final Object logLock = new Object();
+    private final ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(64);
+    private final DataOutputStream payload = new DataOutputStream(payloadBytes);
+    private final ByteArrayOutputStream batchBytes = new ByteArrayOutputStream(256);
+    private final DataOutputStream batch = new DataOutputStream(batchBytes);
+    private final CRC32 crc = new CRC32();
+    private long logSize;
+    private int recordsSinceSnapshot;
+    private long compactionCount;
+    private boolean closed;
+
+    /**
+     * Opens or creates an event log repository that compacts every 10,000 records and leaves
+     * flushing to disk to the operating system.
+     * @param directory Directory holding the snapshot and the log
+     */
+    public EventLogSecurityRepositoryImpl(Path directory) {
+        this(directory, DEFAULT_COMPACT_THRESHOLD, false);
+    }
+
+    /**
+     * @param directory Directory holding the snapshot and the log
+     * @param compactThreshold Number of records appended before the log is compacted into a new snapshot
+     * @param syncOnWrite True to force every write to disk before returning
+     */
+    public EventLogSecurityRepositoryImpl(Path directory, int compactThreshold, boolean syncOnWrite) {
+        if (compactThreshold < 1) {
+            throw new IllegalArgumentException("compactThreshold must be positive");
+        }
+        this.compactThreshold = compactThreshold;
+        this.syncOnWrite = syncOnWrite;
+
+        try {
+            Files.createDirectories(directory);
+            snapshotStore = new BinaryFileSecurityStateStore(directory.resolve(SNAPSHOT_FILE));
+            SecurityState snapshot = snapshotStore.load();
+            alarmStatus = snapshot.getAlarmStatus();
+            armingStatus = snapshot.getArmingStatus();
+            snapshot.getSensors().forEach(sensor -> sensors.put(sensor.getSensorId(), sensor));
+
+            Path logFile = directory.resolve(LOG_FILE);
+            log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            replay();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open event log in " + directory, e);
+        }
+    }
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        sensors.put(sensor.getSensorId(), sensor);
+        synchronized (logLock) {
+            writeSensorRecord(ADD_SENSOR, sensor);
+            flushBatch();
+        }
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        sensors.remove(sensor.getSensorId());
+        synchronized (logLock) {
+            writeRemoveRecord(sensor.getSensorId());
+            flushBatch();
+        }
+    }
+
+    @Override
+    public void updateSensor(Sensor sensor) {
+        sensors.put(sensor.getSensorId(), sensor);
+        synchronized (logLock) {
+            writeSensorRecord(UPDATE_SENSOR, sensor);
+            flushBatch();
+        }
+    }
+
+    @Override
+    public void updateSensors(Collection<Sensor> sensors) {
+        for (Sensor sensor : sensors) {
+            this.sensors.put(sensor.getSensorId(), sensor);
+        }
+        synchronized (logLock) {
+            for (Sensor sensor : sensors) {
+                writeSensorRecord(UPDATE_SENSOR, sensor);
+            }
+            flushBatch();
+        }
+    }
+
+    /**
+     * Appends the records for every change in a single write.
+     */
+    @Override
+    public void mutate(Consumer<MutableState> changes) {
+        StateChanges state = new StateChanges(sensors.values());
+        changes.accept(state);
+        for (Sensor sensor : state.getChangedSensors()) {
+            sensors.put(sensor.getSensorId(), sensor);
+        }
+        synchronized (logLock) {
+            for (Sensor sensor : state.getChangedSensors()) {
+                writeSensorRecord(UPDATE_SENSOR, sensor);
+            }
+            if (state.getAlarmStatus() != null) {
+                this.alarmStatus = state.getAlarmStatus();
+                writeStatusRecord(ALARM_STATUS, alarmStatus.ordinal());
+            }
+            if (state.getArmingStatus() != null) {
+                this.armingStatus = state.getArmingStatus();
+                writeStatusRecord(ARMING_STATUS, armingStatus.ordinal());
+            }
+            flushBatch();
+        }
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        synchronized (logLock) {
+            this.alarmStatus = alarmStatus;
+            writeStatusRecord(ALARM_STATUS, alarmStatus.ordinal());
+            flushBatch();
+        }
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        synchronized (logLock) {
+            this.armingStatus = armingStatus;
+            writeStatusRecord(ARMING_STATUS, armingStatus.ordinal());
+            flushBatch();
+        }
+    }
+
+    @Override
+    public Set<Sensor> getSensors() {
+        return sensorView;
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    @Override
+    public boolean areSensorsArmed() {
+        for (Sensor sensor : sensors.values()) {
+            if (!sensor.getActive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void setAllSensorsInactive() {
+        synchronized (logLock) {
+            for (Sensor sensor : sensors.values()) {
+                sensor.setActive(false);
+                writeSensorRecord(UPDATE_SENSOR, sensor);
+            }
+            flushBatch();
+        }
+    }
+
+    /**
+     * Writes the current state as a new snapshot and empties the log.
+     */
+    public void compact() {
+        synchronized (logLock) {
+            ensureOpen();
+            snapshotStore.saveState(new SecurityState(new ArrayList<>(sensors.values()), alarmStatus, armingStatus));
+            try {
+                log.truncate(0);
+                log.position(0);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to truncate event log", e);
+            }
+            logSize = 0;
+            recordsSinceSnapshot = 0;
+            compactionCount++;
+        }
+    }
+
+    /**
+     * Forces any buffered log writes to disk and closes the log. Safe to call more than once.
+     */
+    @Override
+    public void close() {
+        synchronized (logLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                log.force(true);
+                log.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to close event log", e);
+            }
+        }
+    }
+
+    /**
+     * Size of the log in bytes, which is what the next recovery has to replay on top of the snapshot.
+     */
+    public long getLogSize() {
+        synchronized (logLock) {
+            return logSize;
+        }
+    }
+
+    public int getRecordsSinceSnapshot() {
+        synchronized (logLock) {
+            return recordsSinceSnapshot;
+        }
+    }
+
+    public long getCompactionCount() {
+        synchronized (logLock) {
+            return compactionCount;
+        }
+    }
+
+    private void writeSensorRecord(byte type, Sensor sensor) {
+        try {
+            beginRecord(type);
+            payload.writeLong(sensor.getSensorId().getMostSignificantBits());
+            payload.writeLong(sensor.getSensorId().getLeastSignificantBits());
+            payload.writeByte(sensor.getSensorType().ordinal());
+            payload.writeBoolean(sensor.getActive());
+            payload.writeUTF(sensor.getName() == null ? "" : sensor.getName());
+            endRecord();
+        } catch (IOException e) {
+            //writing to memory never fails
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeRemoveRecord(UUID sensorId) {
+        try {
+            beginRecord(REMOVE_SENSOR);
+            payload.writeLong(sensorId.getMostSignificantBits());
+            payload.writeLong(sensorId.getLeastSignificantBits());
+            endRecord();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeStatusRecord(byte type, int ordinal) {
+        try {
+            beginRecord(type);
+            payload.writeByte(ordinal);
+            endRecord();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void beginRecord(byte type) throws IOException {
+        payloadBytes.reset();
+        payload.writeByte(type);
+    }
+
+    private void endRecord() throws IOException {
+        byte[] bytes = payloadBytes.toByteArray();
+        crc.reset();
+        crc.update(bytes);
+        batch.writeInt(bytes.length);
+        batch.write(bytes);
+        batch.writeInt((int) crc.getValue());
+        recordsSinceSnapshot++;
+    }
+
+    /**
+     * Appends the records collected since the last flush in a single write, then compacts if the
+     * log has grown past the threshold.
+     */
+    private void flushBatch() {
+        ensureOpen();
+        long start = System.nanoTime();
+        ByteBuffer buffer = ByteBuffer.wrap(batchBytes.toByteArray());
+        batchBytes.reset();
+        int bytes = buffer.remaining();
+        try {
+            while (buffer.hasRemaining()) {
+                logSize += log.write(buffer);
+            }
+            if (syncOnWrite) {
+                log.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to append to event log", e);
+        }
+        WRITE_TIMER.recordSince(start);
+        WRITE_BYTES.record(bytes);
+        if (recordsSinceSnapshot >= compactThreshold) {
+            compact();
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Event log repository is closed");
+        }
+    }
+
+    /**
+     * Applies the log on top of the loaded snapshot and cuts off a torn tail.
+     */
+    private void replay() throws IOException {
+        long size = log.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Event log too large to replay, " + size + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining() && log.read(buffer, buffer.position()) >= 0) {
+            //keep reading until the whole file is in memory
+        }
+        buffer.flip();
+
+        CRC32 check = new CRC32();
+        int validEnd = 0;
+        int records = 0;
+        while (buffer.remaining() >= Integer.BYTES) {
+            int length = buffer.getInt();
+            if (length < 1 || buffer.remaining() < length + Integer.BYTES) {
+                break;
+            }
+            byte[] record = new byte[length];
+            buffer.get(record);
+            int storedCrc = buffer.getInt();
+
+            check.reset();
+            check.update(record);
+            if ((int) check.getValue() != storedCrc) {
+                break;
+            }
+            try {
+                apply(new DataInputStream(new ByteArrayInputStream(record)));
+            } catch (IOException | IndexOutOfBoundsException e) {
+                //a record whose CRC matched but whose contents do not parse, treat it like a torn write
+                break;
+            }
+            validEnd = buffer.position();
+            records++;
+        }
+
+        if (validEnd < size) {
+            log.truncate(validEnd);
+        }
+        log.position(validEnd);
+        logSize = validEnd;
+        recordsSinceSnapshot = records;
+    }
+
+    private void apply(DataInputStream record) throws IOException {
+        byte type = record.readByte();
+        switch (type) {
+            case ADD_SENSOR:
+            case UPDATE_SENSOR:
+                UUID id = new UUID(record.readLong(), record.readLong());
+                SensorType sensorType = SENSOR_TYPES[record.readUnsignedByte()];
+                boolean active = record.readBoolean();
+                sensors.put(id, new Sensor(id, record.readUTF(), sensorType, active));
+                break;
+            case REMOVE_SENSOR:
+                sensors.remove(new UUID(record.readLong(), record.readLong()));
+                break;
+            case ALARM_STATUS:
+                alarmStatus = ALARM_STATUSES[record.readUnsignedByte()];
+                break;
+            case ARMING_STATUS:
+                armingStatus = ARMING_STATUSES[record.readUnsignedByte()];
+                break;
+            default:
+                throw new IOException("Unknown event log record type " + type);
+        }
+    }
+}
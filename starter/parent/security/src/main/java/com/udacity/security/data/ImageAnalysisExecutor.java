@@ -0,0 +1,144 @@
+package com.udacity.security.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded worker pool used to run image analysis away from the caller's thread. Requests wait in a
+ * queue of fixed depth; once the queue is full the OverflowPolicy decides whether the new request is
+ * rejected or the oldest waiting request is dropped to make room for it.
+ */
+public class ImageAnalysisExecutor implements AutoCloseable {
+
+    /**
+     * What to do with a new request when the queue is already full.
+     */
+    public enum OverflowPolicy {
+        /** Fail the new request with a RejectedExecutionException. */
+        REJECT,
+        /** Cancel the oldest waiting request and queue the new one, so the freshest frames win. */
+        DROP_OLDEST
+    }
+
+    private final ThreadPoolExecutor pool;
+    private final OverflowPolicy overflowPolicy;
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public ImageAnalysisExecutor(int threads, int queueDepth, OverflowPolicy overflowPolicy) {
+        if (threads < 1 || queueDepth < 1) {
+            throw new IllegalArgumentException("threads and queueDepth must be positive");
+        }
+        this.overflowPolicy = overflowPolicy;
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueDepth),
+                r -> {
+                    Thread thread = new Thread(r, "image-analysis");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new OverflowHandler());
+    }
+
+    /**
+     * Pool shared by every SecurityService that is not given its own: two workers and a queue of 16 that
+     * drops the oldest request. Its threads are daemons, and it must not be closed.
+     */
+    public static ImageAnalysisExecutor shared() {
+        return SharedHolder.EXECUTOR;
+    }
+
+    /**
+     * Queues an analysis and returns a future for its result. The future is cancelled if the request is
+     * dropped, and fails with a RejectedExecutionException if it could not be queued.
+     * @param analysis The analysis to run on a worker thread
+     */
+    public CompletableFuture<Boolean> submit(Callable<Boolean> analysis) {
+        AnalysisTask task = new AnalysisTask(analysis);
+        try {
+            pool.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.future.completeExceptionally(e);
+        }
+        return task.future;
+    }
+
+    /**
+     * Number of requests currently waiting for a worker.
+     */
+    public int getQueuedCount() {
+        return pool.getQueue().size();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Stops accepting requests and cancels those still waiting. Analyses already running are allowed to finish.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+        List<Runnable> queued = new ArrayList<>();
+        pool.getQueue().drainTo(queued);
+        for (Runnable task : queued) {
+            ((AnalysisTask) task).future.cancel(false);
+        }
+    }
+
+    private final class OverflowHandler implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            if (executor.isShutdown() || overflowPolicy == OverflowPolicy.REJECT) {
+                rejectedCount.incrementAndGet();
+                throw new RejectedExecutionException("Image analysis queue is full");
+            }
+            Runnable oldest = executor.getQueue().poll();
+            if (oldest != null) {
+                droppedCount.incrementAndGet();
+                ((AnalysisTask) oldest).future.completeExceptionally(
+                        new CancellationException("Dropped in favour of a newer image"));
+            }
+            executor.execute(r);
+        }
+    }
+
+    private static final class AnalysisTask implements Runnable {
+        private final Callable<Boolean> analysis;
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        private AnalysisTask(Callable<Boolean> analysis) {
+            this.analysis = analysis;
+        }
+
+        @Override
+        public void run() {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(analysis.call());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static final class SharedHolder {
+        private static final ImageAnalysisExecutor EXECUTOR = new ImageAnalysisExecutor(2, 16, OverflowPolicy.DROP_OLDEST);
+    }
+}
@@ -0,0 +1,407 @@
+package com.udacity.security.data;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Repository that keeps its state in an embedded SQL database, such as an H2 file opened with
+ * {@code jdbc:h2:file:/path/to/catpoint}. Sensors are rows of a table keyed by sensor id, so changing
+ * one sensor writes one row instead of re-serializing every sensor, and the system status is a
+ * single row of its own.
+ *
+ * Reads are served from an in-memory copy loaded when the repository opens. Every change is written
+ * through before the method returns. Callers change a Sensor before handing it over, so a failed write
+ * cannot undo that; what waits for the commit is which sensors the copy holds and the alarm and arming
+ * statuses. Sensors deactivated by setAllSensorsInactive or mutate stay active if the write fails.
+ * Changes to several sensors are sent as batches of prepared statements in a single transaction, and
+ * deactivating every sensor is a single UPDATE.
+ * {@link #mutate(Consumer)} writes all of its sensor and status changes in one transaction.
+ *
+ * The connection is used by one writer at a time. Only standard SQL is used, so any driver on the
+ * class path that understands the URL will do.
+ */
+public class JdbcSecurityRepositoryImpl implements SecurityRepository, AutoCloseable {
+
+    //largest number of rows sent in one JDBC batch, bounds the memory the driver holds per round trip
+    private static final int MAX_BATCH_SIZE = 1_000;
+
+    private static final String CREATE_SENSOR_TABLE = "CREATE TABLE IF NOT EXISTS sensor ("
+            + "sensor_id CHAR(36) PRIMARY KEY, "
+            + "name VARCHAR(255) NOT NULL, "
+            + "sensor_type VARCHAR(16) NOT NULL, "
+            + "active BOOLEAN NOT NULL)";
+    private static final String CREATE_STATUS_TABLE = "CREATE TABLE IF NOT EXISTS system_status ("
+            + "id INT PRIMARY KEY, "
+            + "alarm_status VARCHAR(16) NOT NULL, "
+            + "arming_status VARCHAR(16) NOT NULL)";
+    private static final String SELECT_SENSORS = "SELECT sensor_id, name, sensor_type, active FROM sensor";
+    private static final String SELECT_STATUS = "SELECT alarm_status, arming_status FROM system_status WHERE id = 1";
+    private static final String INSERT_STATUS = "INSERT INTO system_status (id, alarm_status, arming_status) VALUES (1, ?, ?)";
+    private static final String INSERT_SENSOR = "INSERT INTO sensor (name, sensor_type, active, sensor_id) VALUES (?, ?, ?, ?)";
+    private static final String UPDATE_SENSOR = "UPDATE sensor SET name = ?, sensor_type = ?, active = ? WHERE sensor_id = ?";
+    private static final String SENSOR_EXISTS = "SELECT 1 FROM sensor WHERE sensor_id = ?";
+    private static final String DELETE_SENSOR = "DELETE FROM sensor WHERE sensor_id = ?";
+    private static final String DEACTIVATE_SENSORS = "UPDATE sensor SET active = FALSE WHERE active = TRUE";
+    private static final String UPDATE_ALARM_STATUS = "UPDATE system_status SET alarm_status = ? WHERE id = 1";
+    private static final String UPDATE_ARMING_STATUS = "UPDATE system_status SET arming_status = ? WHERE id = 1";
+
+    private final Map<UUID, Sensor> sensors = new ConcurrentHashMap<>();
+    private final Set<Sensor> sensorView = new SensorSetView(sensors);
+    private volatile AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private volatile ArmingStatus armingStatus = ArmingStatus.DISARMED;
+
+    //guarded by connection
+    private final Connection connection;
+    private final PreparedStatement insertSensor;
+    private final PreparedStatement updateSensor;
+    private final PreparedStatement sensorExists;
+    private final PreparedStatement deleteSensor;
+    private final PreparedStatement updateAlarmStatus;
+    private final PreparedStatement updateArmingStatus;
+    private boolean closed;
+
+    private final AtomicLong transactionCount = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+
+    /**
+     * Opens the database, creating the tables if they do not exist yet, and loads its contents.
+     * @param jdbcUrl Database to open, for example jdbc:h2:file:/home/me/catpoint
+     */
+    public JdbcSecurityRepositoryImpl(String jdbcUrl) {
+        try {
+            connection = DriverManager.getConnection(jdbcUrl);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Unable to open database " + jdbcUrl, e);
+        }
+        try {
+            connection.setAutoCommit(false);
+            createTables();
+            load();
+            insertSensor = connection.prepareStatement(INSERT_SENSOR);
+            updateSensor = connection.prepareStatement(UPDATE_SENSOR);
+            sensorExists = connection.prepareStatement(SENSOR_EXISTS);
+            deleteSensor = connection.prepareStatement(DELETE_SENSOR);
+            updateAlarmStatus = connection.prepareStatement(UPDATE_ALARM_STATUS);
+            updateArmingStatus = connection.prepareStatement(UPDATE_ARMING_STATUS);
+        } catch (SQLException e) {
+            try {
+                connection.close();
+            } catch (SQLException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            throw new IllegalStateException("Unable to load state from database " + jdbcUrl, e);
+        }
+    }
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        updateSensors(List.of(sensor));
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        synchronized (connection) {
+            try {
+                deleteSensor.setString(1, sensor.getSensorId().toString());
+                deleteSensor.executeUpdate();
+                commit(1);
+                sensors.remove(sensor.getSensorId());
+            } catch (SQLException e) {
+                throw rollback("Unable to remove sensor " + sensor.getSensorId(), e);
+            }
+        }
+    }
+
+    @Override
+    public void updateSensor(Sensor sensor) {
+        updateSensors(List.of(sensor));
+    }
+
+    /**
+     * Writes the sensors in batches of updates within one transaction. Sensors the table does not hold
+     * yet are inserted, so adding and updating share this path.
+     */
+    @Override
+    public void updateSensors(Collection<Sensor> sensors) {
+        synchronized (connection) {
+            try {
+                writeSensors(sensors);
+                commit(sensors.size());
+                cacheSensors(sensors);
+            } catch (SQLException e) {
+                throw rollback("Unable to write " + sensors.size() + " sensors", e);
+            }
+        }
+    }
+
+    /**
+     * Collects and writes the changes while holding the connection, so no other write can land between
+     * reading the sensors and committing. If the transaction fails, sensors deactivated by the changes
+     * are reactivated and the in-memory copy is left as it was.
+     */
+    @Override
+    public void mutate(Consumer<MutableState> changes) {
+        synchronized (connection) {
+            StateChanges state = new StateChanges(sensors.values());
+            changes.accept(state);
+            Collection<Sensor> changedSensors = state.getChangedSensors();
+            try {
+                int rows = changedSensors.size();
+                writeSensors(changedSensors);
+                if (state.getAlarmStatus() != null) {
+                    updateAlarmStatus.setString(1, state.getAlarmStatus().name());
+                    rows += updateAlarmStatus.executeUpdate();
+                }
+                if (state.getArmingStatus() != null) {
+                    updateArmingStatus.setString(1, state.getArmingStatus().name());
+                    rows += updateArmingStatus.executeUpdate();
+                }
+                commit(rows);
+            } catch (SQLException e) {
+                state.restoreDeactivatedSensors();
+                throw rollback("Unable to write changes", e);
+            }
+            cacheSensors(changedSensors);
+            if (state.getAlarmStatus() != null) {
+                this.alarmStatus = state.getAlarmStatus();
+            }
+            if (state.getArmingStatus() != null) {
+                this.armingStatus = state.getArmingStatus();
+            }
+        }
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        synchronized (connection) {
+            try {
+                updateAlarmStatus.setString(1, alarmStatus.name());
+                updateAlarmStatus.executeUpdate();
+                commit(1);
+                this.alarmStatus = alarmStatus;
+            } catch (SQLException e) {
+                throw rollback("Unable to save alarm status", e);
+            }
+        }
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        synchronized (connection) {
+            try {
+                updateArmingStatus.setString(1, armingStatus.name());
+                updateArmingStatus.executeUpdate();
+                commit(1);
+                this.armingStatus = armingStatus;
+            } catch (SQLException e) {
+                throw rollback("Unable to save arming status", e);
+            }
+        }
+    }
+
+    @Override
+    public Set<Sensor> getSensors() {
+        return sensorView;
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    @Override
+    public boolean areSensorsArmed() {
+        for (Sensor sensor : sensors.values()) {
+            if (!sensor.getActive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Deactivates every sensor with a single UPDATE statement, whatever the number of sensors.
+     */
+    @Override
+    public void setAllSensorsInactive() {
+        synchronized (connection) {
+            try (Statement statement = connection.createStatement()) {
+                int rows = statement.executeUpdate(DEACTIVATE_SENSORS);
+                commit(rows);
+            } catch (SQLException e) {
+                throw rollback("Unable to deactivate sensors", e);
+            }
+            for (Sensor sensor : sensors.values()) {
+                sensor.setActive(false);
+            }
+        }
+    }
+
+    /**
+     * Closes the database connection. Safe to call more than once.
+     */
+    @Override
+    public void close() {
+        synchronized (connection) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                throw new IllegalStateException("Unable to close database", e);
+            }
+        }
+    }
+
+    /**
+     * Number of transactions committed since the repository was opened.
+     */
+    public long getTransactionCount() {
+        return transactionCount.get();
+    }
+
+    /**
+     * Number of rows inserted, updated or deleted since the repository was opened.
+     */
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
+    private void createTables() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(CREATE_SENSOR_TABLE);
+            statement.executeUpdate(CREATE_STATUS_TABLE);
+        }
+        connection.commit();
+    }
+
+    private void load() throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(SELECT_SENSORS)) {
+            select.setFetchSize(MAX_BATCH_SIZE);
+            try (ResultSet rows = select.executeQuery()) {
+                while (rows.next()) {
+                    UUID id = UUID.fromString(rows.getString(1).trim());
+                    sensors.put(id, new Sensor(id, rows.getString(2), SensorType.valueOf(rows.getString(3)), rows.getBoolean(4)));
+                }
+            }
+        }
+
+        boolean found = false;
+        try (PreparedStatement select = connection.prepareStatement(SELECT_STATUS);
+             ResultSet row = select.executeQuery()) {
+            if (row.next()) {
+                alarmStatus = AlarmStatus.valueOf(row.getString(1));
+                armingStatus = ArmingStatus.valueOf(row.getString(2));
+                found = true;
+            }
+        }
+        if (!found) {
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_STATUS)) {
+                insert.setString(1, alarmStatus.name());
+                insert.setString(2, armingStatus.name());
+                insert.executeUpdate();
+            }
+        }
+        connection.commit();
+    }
+
+    /**
+     * Binds the sensor to an INSERT_SENSOR or UPDATE_SENSOR statement, which share their parameter order.
+     */
+    private static void bindSensor(PreparedStatement statement, Sensor sensor) throws SQLException {
+        statement.setString(1, sensor.getName());
+        statement.setString(2, sensor.getSensorType().name());
+        statement.setBoolean(3, sensor.getActive());
+        statement.setString(4, sensor.getSensorId().toString());
+    }
+
+    /**
+     * Sends the sensors as batches of updates and inserts, without committing.
+     */
+    private void writeSensors(Collection<Sensor> sensors) throws SQLException {
+        List<Sensor> batch = new ArrayList<>(Math.min(sensors.size(), MAX_BATCH_SIZE));
+        for (Sensor sensor : sensors) {
+            bindSensor(updateSensor, sensor);
+            updateSensor.addBatch();
+            batch.add(sensor);
+            if (batch.size() == MAX_BATCH_SIZE) {
+                writeBatch(batch);
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+    }
+
+    /**
+     * Runs the queued updates, then inserts the sensors whose update matched no row. Drivers that report
+     * SUCCESS_NO_INFO instead of a row count cost one extra query per sensor to find the missing rows.
+     * @param batch Sensors queued on the update statement, in order. Cleared on return.
+     */
+    private void writeBatch(List<Sensor> batch) throws SQLException {
+        int[] updated = updateSensor.executeBatch();
+        boolean inserts = false;
+        for (int i = 0; i < updated.length; i++) {
+            boolean missing = updated[i] == Statement.SUCCESS_NO_INFO ? !exists(batch.get(i)) : updated[i] == 0;
+            if (missing) {
+                bindSensor(insertSensor, batch.get(i));
+                insertSensor.addBatch();
+                inserts = true;
+            }
+        }
+        if (inserts) {
+            insertSensor.executeBatch();
+        }
+        batch.clear();
+    }
+
+    private boolean exists(Sensor sensor) throws SQLException {
+        sensorExists.setString(1, sensor.getSensorId().toString());
+        try (ResultSet row = sensorExists.executeQuery()) {
+            return row.next();
+        }
+    }
+
+    private void cacheSensors(Collection<Sensor> sensors) {
+        for (Sensor sensor : sensors) {
+            this.sensors.put(sensor.getSensorId(), sensor);
+        }
+    }
+
+    private void commit(int rows) throws SQLException {
+        connection.commit();
+        transactionCount.incrementAndGet();
+        rowsWritten.addAndGet(rows);
+    }
+
+    private IllegalStateException rollback(String message, SQLException e) {
+        try {
+            updateSensor.clearBatch();
+            insertSensor.clearBatch();
+            connection.rollback();
+        } catch (SQLException rollbackFailure) {
+            e.addSuppressed(rollbackFailure);
+        }
+        return new IllegalStateException(message, e);
+    }
+}
@@ -0,0 +1,21 @@
+package com.udacity.security.data;
+
+/**
+ * Changes collected by SecurityRepository.mutate. Sensor changes take effect on the sensor objects as
+ * they are made; the repository persists everything together once the mutation returns.
+ */
+public interface MutableState {
+    /**
+     * Records a change to a sensor, or a sensor to add. The sensor's current fields are what gets stored.
+     */
+    void updateSensor(Sensor sensor);
+
+    /**
+     * Deactivates every sensor in the repository and records them all as changed.
+     */
+    void setAllSensorsInactive();
+
+    void setAlarmStatus(AlarmStatus alarmStatus);
+
+    void setArmingStatus(ArmingStatus armingStatus);
+}
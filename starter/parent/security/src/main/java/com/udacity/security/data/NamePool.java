@@ -0,0 +1,69 @@
+package com.udacity.security.data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interned sensor names addressed by int id. Sensors with the same name share one entry, and an
+ * entry is recycled once no sensor uses it. Not thread safe.
+ */
+final class NamePool {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] names = new String[16];
+    private int[] references = new int[16];
+    private int[] freeIds = new int[16];
+    private int freeCount;
+    private int nextId;
+
+    /**
+     * Returns the id of the name, adding it if needed, and counts one more reference to it.
+     */
+    int acquire(String name) {
+        Integer existing = ids.get(name);
+        if (existing != null) {
+            references[existing]++;
+            return existing;
+        }
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            id = nextId++;
+            if (id == names.length) {
+                names = Arrays.copyOf(names, id * 2);
+                references = Arrays.copyOf(references, id * 2);
+            }
+        }
+        names[id] = name;
+        references[id] = 1;
+        ids.put(name, id);
+        return id;
+    }
+
+    /**
+     * Drops one reference to the name, recycling its id when it was the last.
+     */
+    void release(int id) {
+        if (--references[id] > 0) {
+            return;
+        }
+        ids.remove(names[id]);
+        names[id] = null;
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        }
+        freeIds[freeCount++] = id;
+    }
+
+    String get(int id) {
+        return names[id];
+    }
+
+    /**
+     * Number of distinct names in use.
+     */
+    int size() {
+        return ids.size();
+    }
+}
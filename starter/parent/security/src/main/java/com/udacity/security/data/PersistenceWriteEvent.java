@@ -0,0 +1,32 @@
+package com.udacity.security.data;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for writes of the system state. The repository emits one per sensor snapshot
+ * it hands to its store, and the preferences store emits one per value it puts, nested inside it.
+ */
+@Name("com.udacity.security.PersistenceWrite")
+@Label("Persistence Write")
+@Category({"Catpoint", "Persistence"})
+@Description("Write of sensors or system status to a SecurityStateStore")
+final class PersistenceWriteEvent extends jdk.jfr.Event {
+    @Label("Store")
+    String store;
+
+    @Label("Key")
+    @Description("What was written: SENSORS, ALARM_STATUS, ARMING_STATUS or STATE for all of them")
+    String key;
+
+    @Label("Size")
+    @DataAmount
+    long bytes;
+
+    @Label("Sensor Changes")
+    @Description("Sensor changes covered by this write, more than one when write-behind coalesced them")
+    int changes;
+}
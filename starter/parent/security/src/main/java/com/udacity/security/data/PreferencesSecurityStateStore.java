@@ -0,0 +1,112 @@
+package com.udacity.security.data;
+
+import com.google.common.reflect.TypeToken;
+import com.google.gson.Gson;
+import com.udacity.metrics.DistributionSummary;
+import com.udacity.metrics.MetricsRegistry;
+import com.udacity.metrics.Timer;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+/**
+ * Stores the system state in the user preferences, with the sensors serialized as a single JSON
+ * string. Preferences values are limited to 8 KB, so this only works for a few dozen sensors.
+ * Preferences are cleared when the state is loaded, so every app start begins with an empty system.
+ * Each store writes to its own preferences node, so several installations can share a process as
+ * long as they are given different nodes.
+ */
+public class PreferencesSecurityStateStore implements SecurityStateStore {
+
+    //preference keys
+    private static final String SENSORS = "SENSORS";
+    private static final String ALARM_STATUS = "ALARM_STATUS";
+    private static final String ARMING_STATUS = "ARMING_STATUS";
+    private static final Gson gson = new Gson(); //used to serialize objects into JSON
+    private static final Timer WRITE_TIMER = MetricsRegistry.global().timer("security.repository.write", "store", "preferences");
+    private static final DistributionSummary WRITE_BYTES = MetricsRegistry.global().summary("security.repository.write.bytes", "store", "preferences");
+    private final Preferences prefs;
+
+    /**
+     * Creates a store backed by the preferences node of this package.
+     */
+    public PreferencesSecurityStateStore() {
+        this(Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class));
+    }
+
+    /**
+     * Creates a store backed by the provided preferences node.
+     * @param prefs Node holding this installation's state
+     */
+    public PreferencesSecurityStateStore(Preferences prefs) {
+        this.prefs = prefs;
+    }
+
+    @Override
+    public SecurityState load() {
+        // Clear preferences on startup and handle exceptions
+        try {
+            prefs.clear();
+        } catch (BackingStoreException e) {
+            e.printStackTrace();
+        }
+
+        //load system state from prefs, or else default
+        AlarmStatus alarmStatus = AlarmStatus.valueOf(prefs.get(ALARM_STATUS, AlarmStatus.NO_ALARM.toString()));
+        ArmingStatus armingStatus = ArmingStatus.valueOf(prefs.get(ARMING_STATUS, ArmingStatus.DISARMED.toString()));
+
+        //we've serialized our sensor objects for storage, which should be a good warning sign that
+        // this is likely an impractical solution for a real system
+        String sensorString = prefs.get(SENSORS, null);
+        List<Sensor> sensors = new ArrayList<>();
+
+        if (sensorString != null) {
+            Type type = new TypeToken<Set<Sensor>>() {
+            }.getType();
+
+            Set<Sensor> storedSensors = gson.fromJson(sensorString, type);
+            sensors.addAll(storedSensors);
+        }
+        return new SecurityState(sensors, alarmStatus, armingStatus);
+    }
+
+    @Override
+    public void saveSensors(Collection<Sensor> sensors) {
+        long start = System.nanoTime();
+        String json = gson.toJson(sensors);
+        put(SENSORS, json);
+        WRITE_TIMER.recordSince(start);
+        //UTF-16 length, close enough to the stored size for the mostly ASCII sensor JSON
+        WRITE_BYTES.record(json.length());
+    }
+
+    @Override
+    public void saveAlarmStatus(AlarmStatus alarmStatus) {
+        put(ALARM_STATUS, alarmStatus.toString());
+    }
+
+    @Override
+    public void saveArmingStatus(ArmingStatus armingStatus) {
+        put(ARMING_STATUS, armingStatus.toString());
+    }
+
+    /**
+     * Stores a preference value, recording the write as a flight recorder event.
+     */
+    private void put(String key, String value) {
+        PersistenceWriteEvent event = new PersistenceWriteEvent();
+        event.begin();
+        prefs.put(key, value);
+        if (event.shouldCommit()) {
+            event.store = getClass().getSimpleName();
+            event.key = key;
+            event.bytes = value.length();
+            event.commit();
+        }
+    }
+}
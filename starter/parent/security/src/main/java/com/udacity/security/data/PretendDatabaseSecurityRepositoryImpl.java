@@ -1,77 +1,195 @@
 package com.udacity.security.data;
 
-import com.google.common.reflect.TypeToken;
-import com.google.gson.Gson;
-
-import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.prefs.BackingStoreException;
-import java.util.prefs.Preferences;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Fake repository implementation for demo purposes. Stores state information in local
- * memory and writes it to user preferences between app loads. This implementation is
- * intentionally a little hard to use in unit tests, so watch out!
+ * memory and writes it to a SecurityStateStore between app loads, the user preferences
+ * unless another store is provided. This implementation is intentionally a little hard
+ * to use in unit tests, so watch out!
+ *
+ * By default every sensor change is written straight through to the store. The
+ * write-behind constructor instead marks the sensor state dirty and lets a background
+ * thread write a single snapshot once enough changes have piled up or the flush interval
+ * has passed. Call {@link #close()} to write any pending changes before the app exits.
+ *
+ * Sensors are kept in a concurrent map keyed by sensorId, so many threads can add, update and
+ * read sensors at the same time without a global lock, and lookups never compare names. The
+ * sorted list used for display is built on demand and kept until a sensor is added, removed,
+ * replaced by a different instance or updated with a different name or type; toggling a sensor's
+ * activation does not invalidate it. A sensor renamed in place is re-sorted once it is passed to
+ * updateSensor.
+ *
+ * {@link #mutate(Consumer)} and setAllSensorsInactive write one sensor snapshot however many sensors
+ * they change. When a mutation also changes the alarm or arming status while writing straight through,
+ * the sensors and statuses go to the store together through SecurityStateStore.saveState.
  */
-public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository {
-
-    private final Set<Sensor> sensors;
-    private AlarmStatus alarmStatus;
-    private ArmingStatus armingStatus;
-    //preference keys
-    private static final String SENSORS = "SENSORS";
-    private static final String ALARM_STATUS = "ALARM_STATUS";
-    private static final String ARMING_STATUS = "ARMING_STATUS";
-    private static final Preferences prefs = Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class);
-    private static final Gson gson = new Gson(); //used to serialize objects into JSON
+public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository, AutoCloseable {
+
+    private final Map<UUID, Sensor> sensors = new ConcurrentHashMap<>();
+    private final Set<Sensor> sensorView = new SensorSetView(sensors);
+    //name and type each sensor was sorted by, to spot a sensor renamed in place
+    private final Map<UUID, SortKey> sortKeys = new ConcurrentHashMap<>();
+    private final AtomicLong sensorListVersion = new AtomicLong();
+    private volatile SortedSensors sortedSensors;
+    private volatile AlarmStatus alarmStatus;
+    private volatile ArmingStatus armingStatus;
+    private final SecurityStateStore store;
+
+    //write-behind state, unused when writing straight through
+    private final boolean writeBehind;
+    private final int flushThreshold;
+    private final ScheduledExecutorService flushExecutor;
+    private final Thread shutdownHook;
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    private final AtomicLong coalescedWrites = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private volatile long lastFlushNanos;
+    private volatile boolean closed;
 
+    /**
+     * Creates a repository that writes every sensor change straight through to the preferences.
+     */
     public PretendDatabaseSecurityRepositoryImpl() {
-        // Clear preferences on startup and handle exceptions
-        try {
-            prefs.clear();
-        } catch (BackingStoreException e) {
-            e.printStackTrace();
-        }
+        this(new PreferencesSecurityStateStore());
+    }
 
-        //load system state from prefs, or else default
-        alarmStatus = AlarmStatus.valueOf(prefs.get(ALARM_STATUS, AlarmStatus.NO_ALARM.toString()));
-        armingStatus = ArmingStatus.valueOf(prefs.get(ARMING_STATUS, ArmingStatus.DISARMED.toString()));
+    /**
+     * Creates a repository that writes every sensor change straight through to the provided store.
+     * @param store Where the state is loaded from and saved to
+     */
+    public PretendDatabaseSecurityRepositoryImpl(SecurityStateStore store) {
+        this(store, false, 1, 0L);
+    }
 
-        //we've serialized our sensor objects for storage, which should be a good warning sign that
-        // this is likely an impractical solution for a real system
-        String sensorString = prefs.get(SENSORS, null);
+    /**
+     * Creates a write-behind repository. Sensor changes only mark the state dirty, and a background
+     * thread writes one snapshot when flushThreshold changes are pending or every flushIntervalMillis,
+     * whichever happens first.
+     * @param flushThreshold Number of pending sensor changes that triggers an immediate flush
+     * @param flushIntervalMillis Longest time a change may wait before it is written
+     */
+    public PretendDatabaseSecurityRepositoryImpl(int flushThreshold, long flushIntervalMillis) {
+        this(new PreferencesSecurityStateStore(), flushThreshold, flushIntervalMillis);
+    }
 
-        if (sensorString == null) {
-            sensors = new TreeSet<>();
-        } else {
-            Type type = new TypeToken<Set<Sensor>>() {
-            }.getType();
+    /**
+     * Creates a write-behind repository that flushes to the provided store.
+     * @param store Where the state is loaded from and saved to
+     * @param flushThreshold Number of pending sensor changes that triggers an immediate flush
+     * @param flushIntervalMillis Longest time a change may wait before it is written
+     */
+    public PretendDatabaseSecurityRepositoryImpl(SecurityStateStore store, int flushThreshold, long flushIntervalMillis) {
+        this(store, true, flushThreshold, flushIntervalMillis);
+    }
 
-            sensors = gson.fromJson(sensorString, type);
+    private PretendDatabaseSecurityRepositoryImpl(SecurityStateStore store, boolean writeBehind, int flushThreshold, long flushIntervalMillis) {
+        if (writeBehind && (flushThreshold < 1 || flushIntervalMillis < 1)) {
+            throw new IllegalArgumentException("flushThreshold and flushIntervalMillis must be positive");
+        }
+        this.store = store;
+        this.writeBehind = writeBehind;
+        this.flushThreshold = flushThreshold;
+
+        //load system state from the store, which falls back to defaults when nothing was saved
+        SecurityState state = store.load();
+        alarmStatus = state.getAlarmStatus();
+        armingStatus = state.getArmingStatus();
+        state.getSensors().forEach(this::putSensor);
+
+        if (writeBehind) {
+            flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "sensor-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flushExecutor.scheduleWithFixedDelay(this::flushIfDirty, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+            shutdownHook = new Thread(this::close, "sensor-write-behind-shutdown");
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        } else {
+            flushExecutor = null;
+            shutdownHook = null;
         }
     }
 
     @Override
     public void addSensor(Sensor sensor) {
-        sensors.add(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+        putSensor(sensor);
+        invalidateSortedSensors();
+        persistSensors();
     }
 
     @Override
     public void removeSensor(Sensor sensor) {
-        sensors.remove(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+        if (sensors.remove(sensor.getSensorId()) != null) {
+            sortKeys.remove(sensor.getSensorId());
+            invalidateSortedSensors();
+        }
+        persistSensors();
     }
 
     @Override
     public void updateSensor(Sensor sensor) {
-        sensors.remove(sensor);
-        sensors.add(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+        putSensor(sensor);
+        persistSensors();
+    }
+
+    @Override
+    public void updateSensors(Collection<Sensor> sensors) {
+        for (Sensor sensor : sensors) {
+            putSensor(sensor);
+        }
+        persistSensors();
+    }
+
+    @Override
+    public void mutate(Consumer<MutableState> changes) {
+        StateChanges state = new StateChanges(sensors.values());
+        changes.accept(state);
+        Collection<Sensor> changedSensors = state.getChangedSensors();
+        for (Sensor sensor : changedSensors) {
+            putSensor(sensor);
+        }
+        if (state.getAlarmStatus() != null) {
+            this.alarmStatus = state.getAlarmStatus();
+        }
+        if (state.getArmingStatus() != null) {
+            this.armingStatus = state.getArmingStatus();
+        }
+
+        boolean statusChanged = state.getAlarmStatus() != null || state.getArmingStatus() != null;
+        if (!changedSensors.isEmpty() && statusChanged && (!writeBehind || closed)) {
+            writeSensors(changedSensors.size(), true);
+            return;
+        }
+        if (!changedSensors.isEmpty()) {
+            persistSensors();
+        }
+        if (state.getAlarmStatus() != null) {
+            store.saveAlarmStatus(this.alarmStatus);
+        }
+        if (state.getArmingStatus() != null) {
+            store.saveArmingStatus(this.armingStatus);
+        }
     }
 
     @Override
@@ -79,18 +197,30 @@ public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository
 
         // no-op
         this.alarmStatus = alarmStatus;
-        prefs.put(ALARM_STATUS, this.alarmStatus.toString());
+        store.saveAlarmStatus(this.alarmStatus);
     }
 
     @Override
     public void setArmingStatus(ArmingStatus armingStatus) {
         this.armingStatus = armingStatus;
-        prefs.put(ARMING_STATUS, this.armingStatus.toString());
+        store.saveArmingStatus(this.armingStatus);
     }
 
     @Override
     public Set<Sensor> getSensors() {
-        return sensors;
+        return sensorView;
+    }
+
+    @Override
+    public List<Sensor> getSortedSensors() {
+        long version = sensorListVersion.get();
+        SortedSensors sorted = sortedSensors;
+        if (sorted == null || sorted.version != version) {
+            //a concurrent change bumps the version, so a list built from stale contents is never reused
+            sorted = new SortedSensors(version, List.copyOf(new TreeSet<>(sensors.values())));
+            sortedSensors = sorted;
+        }
+        return sorted.sensors;
     }
 
     @Override
@@ -113,16 +243,175 @@ public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository
         return true;
     }
 
+    /**
+     * Deactivates every sensor and persists them with a single snapshot.
+     */
     @Override
     public void setAllSensorsInactive() {
-        List<Sensor> sensors = new CopyOnWriteArrayList<>(this.getSensors());
-        Iterator<Sensor> iterator = sensors.iterator();
+        //iteration over the concurrent map is weakly consistent, so updating while iterating is safe
+        Iterator<Sensor> iterator = sensors.values().iterator();
 
         while (iterator.hasNext()) {
-            Sensor sensor = iterator.next();
+            iterator.next().setActive(false);
+        }
+        persistSensors();
+    }
+
+    /**
+     * Writes any pending sensor changes, stops the background flush thread and drops the shutdown hook,
+     * so a closed repository can be garbage collected. Safe to call more than once.
+     */
+    @Override
+    public void close() {
+        if (!writeBehind || closed) {
+            return;
+        }
+        closed = true;
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                //the JVM is already shutting down and the hook will run anyway
+            }
+        }
+        flushExecutor.shutdown();
+        try {
+            flushExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushIfDirty();
+    }
+
+    /**
+     * Time taken by the most recent sensor snapshot write, in nanoseconds.
+     */
+    public long getLastFlushNanos() {
+        return lastFlushNanos;
+    }
+
+    /**
+     * Number of sensor snapshots written to the store.
+     */
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    /**
+     * Number of sensor changes that were folded into another change's snapshot instead of being written on their own.
+     */
+    public long getCoalescedWriteCount() {
+        return coalescedWrites.get();
+    }
+
+    /**
+     * Writes the sensors straight away, or in write-behind mode marks them dirty and requests an early
+     * flush once enough changes are pending.
+     */
+    private void persistSensors() {
+        if (!writeBehind || closed) {
+            writeSensors(1, false);
+            return;
+        }
+        dirty.set(true);
+        if (pendingWrites.incrementAndGet() >= flushThreshold && flushScheduled.compareAndSet(false, true)) {
+            try {
+                flushExecutor.execute(() -> {
+                    flushScheduled.set(false);
+                    flushIfDirty();
+                });
+            } catch (RejectedExecutionException e) {
+                //closed since the check above, so the change is written here instead of being lost
+                flushScheduled.set(false);
+                flushIfDirty();
+            }
+        }
+        if (closed) {
+            //close may have taken its final flush before this change was marked dirty
+            flushIfDirty();
+        }
+    }
+
+    private void flushIfDirty() {
+        if (dirty.getAndSet(false)) {
+            //an exception here would cancel the scheduled flush task, so report it and carry on
+            try {
+                writeSensors(pendingWrites.getAndSet(0), false);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Hands a copy of the sensors to the store.
+     * @param changes Number of sensor changes covered by this snapshot
+     * @param withStatus True to save the alarm and arming status in the same store write
+     */
+    private void writeSensors(int changes, boolean withStatus) {
+        PersistenceWriteEvent event = new PersistenceWriteEvent();
+        event.begin();
+        long start = System.nanoTime();
+        List<Sensor> snapshot = new ArrayList<>(sensors.values());
+        if (withStatus) {
+            store.saveState(new SecurityState(snapshot, alarmStatus, armingStatus));
+        } else {
+            store.saveSensors(snapshot);
+        }
+        lastFlushNanos = System.nanoTime() - start;
+        if (event.shouldCommit()) {
+            event.store = store.getClass().getSimpleName();
+            event.key = withStatus ? "STATE" : "SENSORS";
+            event.changes = changes;
+            event.commit();
+        }
+        flushCount.incrementAndGet();
+        if (changes > 1) {
+            coalescedWrites.addAndGet(changes - 1);
+        }
+    }
+
+    /**
+     * Stores the sensor, invalidating the sorted list if it is a different instance or its name or type
+     * has changed since it was last stored.
+     */
+    private void putSensor(Sensor sensor) {
+        UUID sensorId = sensor.getSensorId();
+        SortKey sortKey = sortKeys.get(sensorId);
+        boolean moved = sortKey == null || !sortKey.matches(sensor);
+        if (moved) {
+            sortKeys.put(sensorId, new SortKey(sensor));
+        }
+        if (sensors.put(sensorId, sensor) != sensor || moved) {
+            invalidateSortedSensors();
+        }
+    }
+
+    private void invalidateSortedSensors() {
+        sensorListVersion.incrementAndGet();
+    }
+
+    private static final class SortKey {
+        private final String name;
+        private final SensorType sensorType;
+
+        private SortKey(Sensor sensor) {
+            this.name = sensor.getName();
+            this.sensorType = sensor.getSensorType();
+        }
+
+        private boolean matches(Sensor sensor) {
+            return Objects.equals(name, sensor.getName()) && sensorType == sensor.getSensorType();
+        }
+    }
+
+    private static final class SortedSensors {
+        private final long version;
+        private final List<Sensor> sensors;
 
-            sensor.setActive(false);
-            this.updateSensor(sensor);
+        private SortedSensors(long version, List<Sensor> sensors) {
+            this.version = version;
+            this.sensors = sensors;
         }
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,10 @@
 package com.udacity.security.data;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Interface showing the methods our security repository will need to support
@@ -9,9 +13,50 @@ public interface SecurityRepository {
     void addSensor(Sensor sensor);
     void removeSensor(Sensor sensor);
     void updateSensor(Sensor sensor);
+
+    /**
+     * Updates several sensors at once. Implementations that persist their state should override
+     * this to write all changes together instead of once per sensor.
+     */
+    default void updateSensors(Collection<Sensor> sensors) {
+        for (Sensor sensor : sensors) {
+            updateSensor(sensor);
+        }
+    }
+
+    /**
+     * Makes several changes as one unit. The changes are collected while the consumer runs and then
+     * persisted together, so an operation that touches every sensor costs one write instead of one per
+     * sensor. Implementations that persist their state should override this to write the whole unit
+     * atomically; this default passes the sensors to updateSensors in one call, then the statuses.
+     * @param changes Makes the changes through the provided MutableState
+     */
+    default void mutate(Consumer<MutableState> changes) {
+        StateChanges state = new StateChanges(getSensors());
+        changes.accept(state);
+        if (!state.getChangedSensors().isEmpty()) {
+            updateSensors(state.getChangedSensors());
+        }
+        if (state.getArmingStatus() != null) {
+            setArmingStatus(state.getArmingStatus());
+        }
+        if (state.getAlarmStatus() != null) {
+            setAlarmStatus(state.getAlarmStatus());
+        }
+    }
+
     void setAlarmStatus(AlarmStatus alarmStatus);
     void setArmingStatus(ArmingStatus armingStatus);
     Set<Sensor> getSensors();
+
+    /**
+     * Returns the sensors in display order (see Sensor.compareTo). Implementations may cache this
+     * list, so it must not be modified.
+     */
+    default List<Sensor> getSortedSensors() {
+        return getSensors().stream().sorted().collect(Collectors.toUnmodifiableList());
+    }
+
     AlarmStatus getAlarmStatus();
     ArmingStatus getArmingStatus();
     boolean areSensorsArmed();
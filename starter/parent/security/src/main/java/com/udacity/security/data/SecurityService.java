@@ -1,31 +1,139 @@
 package com.udacity.security.data;
 
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Striped;
 import com.udacity.image.service.ImageService;
+import com.udacity.metrics.Counter;
+import com.udacity.metrics.MetricsRegistry;
+import com.udacity.metrics.Timer;
 import com.udacity.security.application.StatusListener;
+import jdk.jfr.EventType;
 
 import java.awt.image.BufferedImage;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
 
 /**
  * Service that receives information about changes to the security system. Responsible for
  * forwarding updates to the repository and making any decisions about changing the system state.
  * This is the class that should contain most of the business logic for our system, and it is the
  * class you will be writing unit tests for.
+ *
+ * Safe to call from many threads at once; the locking rules are given next to the locks.
  */
 public final class SecurityService {
+    private static final float CAT_CONFIDENCE_THRESHOLD = 50.0f;
+    private static final int SENSOR_LOCK_STRIPES = 64;
+    private static final Counter SENSOR_EVENTS = MetricsRegistry.global().counter("security.sensor.events");
+    private static final Timer ALARM_TRANSITIONS = MetricsRegistry.global().timer("security.alarm.transition");
+    //flight recorder events are only created while a recording has them enabled, so the hot paths do not
+    // allocate one per call otherwise
+    private static final EventType SENSOR_ACTIVATION_EVENT = EventType.getEventType(SensorActivationEvent.class);
+    private static final EventType ALARM_TRANSITION_EVENT = EventType.getEventType(AlarmTransitionEvent.class);
+    private static final EventType ARMING_TRANSITION_EVENT = EventType.getEventType(ArmingTransitionEvent.class);
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+    private static final ArmingStatus[] ARMING_STATUSES = ArmingStatus.values();
+    private static final long UNLOADED = -1;
     private final ImageService imageService;
     private final SecurityRepository securityRepository;
-    private final Set<StatusListener> statusListeners;
-    private boolean isCatDetected = false;
+    private final ImageAnalysisExecutor imageAnalysisExecutor;
+    private final Executor imageResultExecutor;
+    private final StatusListenerBus statusListeners = new StatusListenerBus();
+    //locks are always taken in the order arming, bulk, sensor stripe
+    //guards changes to one sensor, striped by sensor id so different sensors do not contend
+    private final Striped<Lock> sensorLocks = Striped.lock(SENSOR_LOCK_STRIPES);
+    //shared by single sensor updates, exclusive for changes that touch every sensor. Not reentrant.
+    //a StampedLock keeps no per-thread hold counts, so taking the shared side allocates nothing
+    private final ReadWriteLock bulkLock = new StampedLock().asReadWriteLock();
+    //arming changes run one at a time
+    private final Lock armingLock = new ReentrantLock();
+    private final Lock aggregateInitLock = new ReentrantLock();
+    //alarm status, arming status and a version stamp packed into one word, see pack. Loaded from the
+    // repository the first time it is needed, the service's copy is the truth after that. Every alarm
+    // transition is a compare-and-set against the state it was decided from, so no lock is held deciding.
+    private final AtomicLong systemStatus = new AtomicLong(UNLOADED);
+    //number of alarm status writes requested while one is running, see writeAlarmStatus
+    private final AtomicInteger alarmStatusWrites = new AtomicInteger();
+    private volatile SensorAggregate sensorAggregate;
+    private final Timer imageAnalysisTimer;
+    //runs the entry delay, exit delay and arming windows, whose tasks only hand work to imageResultExecutor
+    private final TimingWheel timingWheel;
+    private final Clock clock;
+    private final Runnable entryDelayTask;
+    private volatile boolean detached;
+    private volatile long entryDelayMillis;
+    private volatile long exitDelayMillis;
+    //timers, guarded by timerLock, which is never held while taking another lock or writing the repository
+    private final Lock timerLock = new ReentrantLock();
+    private TimingWheel.Timeout entryDelayTimeout;
+    private TimingWheel.Timeout exitDelayTimeout;
+    private final Map<ArmingWindow, TimingWheel.Timeout> armingWindows = new LinkedHashMap<>();
 
+    /**
+     * Creates a service that applies scan results and timer expiries one at a time on the common
+     * fork-join pool, so services created this way do not queue behind each other.
+     */
     public SecurityService(SecurityRepository securityRepository, ImageService imageService) {
-        statusListeners = new HashSet<>();
+        this(securityRepository, imageService, ImageAnalysisExecutor.shared(),
+                MoreExecutors.newSequentialExecutor(ForkJoinPool.commonPool()));
+    }
+
+    /**
+     * Creates a service whose asynchronous image scans run on the provided executor.
+     * @param imageAnalysisExecutor Bounded pool that runs the ImageService calls
+     * @param imageResultExecutor Executor that applies scan results to the system state, for example the Swing event thread.
+     *                            Entry and exit delays and arming windows also expire on it, so it should hand tasks to
+     *                            another thread rather than run them inline on the timing wheel's thread.
+     */
+    public SecurityService(SecurityRepository securityRepository, ImageService imageService,
+                           ImageAnalysisExecutor imageAnalysisExecutor, Executor imageResultExecutor) {
+        this(securityRepository, imageService, imageAnalysisExecutor, imageResultExecutor, TimingWheel.shared());
+    }
+
+    /**
+     * Creates a service whose delays and arming windows run on the provided timing wheel.
+     * @param timingWheel Wheel that runs the timers. It is not closed with the service.
+     */
+    public SecurityService(SecurityRepository securityRepository, ImageService imageService,
+                           ImageAnalysisExecutor imageAnalysisExecutor, Executor imageResultExecutor,
+                           TimingWheel timingWheel) {
+        this(securityRepository, imageService, imageAnalysisExecutor, imageResultExecutor, timingWheel, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Creates a service that reads the time of day for arming windows from the provided clock.
+     */
+    SecurityService(SecurityRepository securityRepository, ImageService imageService,
+                    ImageAnalysisExecutor imageAnalysisExecutor, Executor imageResultExecutor,
+                    TimingWheel timingWheel, Clock clock) {
+        this.timingWheel = Objects.requireNonNull(timingWheel);
+        this.clock = Objects.requireNonNull(clock);
         this.securityRepository = securityRepository;
         this.imageService = imageService;
+        this.imageAnalysisExecutor = imageAnalysisExecutor;
+        this.imageResultExecutor = imageResultExecutor;
+        this.entryDelayTask = () -> imageResultExecutor.execute(this::entryDelayExpired);
+        this.imageAnalysisTimer = MetricsRegistry.global().timer("image.analysis",
+                "impl", imageService == null ? "none" : imageService.getClass().getSimpleName());
     }
 
     /**
@@ -34,49 +142,57 @@ public final class SecurityService {
      * @param armingStatus
      */
     public void setArmingStatus(ArmingStatus armingStatus) {
-
-        // GOOD
-        if (armingStatus == ArmingStatus.DISARMED) {
-            this.setAlarmStatus(AlarmStatus.NO_ALARM);
+        ArmingTransitionEvent event = ARMING_TRANSITION_EVENT.isEnabled() ? new ArmingTransitionEvent() : null;
+        if (event != null) {
+            event.begin();
         }
-
-        // When ARMED
-        else if (armingStatus == ArmingStatus.ARMED_HOME) {
-
-            // if already armed, do nothing
-            if (this.securityRepository.getArmingStatus() == ArmingStatus.ARMED_HOME) {
-                // set all sensors to inactive
-                this.securityRepository.setAllSensorsInactive();
-                this.setAlarmStatus(AlarmStatus.NO_ALARM);
+        long start = System.nanoTime();
+        this.armingLock.lock();
+        long lockWait = System.nanoTime() - start;
+        ArmingStatus previousStatus;
+        try {
+            previousStatus = this.getArmingStatus();
+            this.cancelExitDelay();
+            // GOOD
+            if (armingStatus == ArmingStatus.DISARMED) {
+                //cleared in the same step, so no sensor event can raise the alarm against the old arming status
+                this.changeSystemStatus(AlarmStatus.NO_ALARM, ArmingStatus.DISARMED);
             }
-        }
 
-        // GOOD
-        // if the system is armed-home while a cat is detected, the alarm should be set to alarm
-        else {
-            // Prevents the systems to hit a ConcurrentModificationException when two sensors are modified on the same thread.
-            // Implemented using a fail-safe iterator.
-            List<Sensor> sensors = new CopyOnWriteArrayList<>(this.getSensors());
-            Iterator<Sensor> iterator = sensors.iterator();
+            // When ARMED
+            else if (armingStatus == ArmingStatus.ARMED_HOME) {
 
-            while (iterator.hasNext()) {
-                Sensor sensor = iterator.next();
-
-                if (sensor.getActive()) {
-                    this.changeSensorActivationStatus(sensor, sensor.getActive());
+                // if already armed, do nothing
+                if (previousStatus == ArmingStatus.ARMED_HOME) {
+                    // set all sensors to inactive
+                    this.setAllSensorsInactive();
+                    this.changeSystemStatus(AlarmStatus.NO_ALARM, ArmingStatus.ARMED_HOME);
+                } else {
+                    this.changeSystemStatus(null, ArmingStatus.ARMED_HOME);
                 }
             }
-        }
 
-        // if system is armed, reset all sensors to inactive
-        if (armingStatus == ArmingStatus.ARMED_AWAY) {
-            for (Sensor sensor : securityRepository.getSensors()) {
-                sensor.setActive(false);
+            // GOOD
+            // if the system is armed-home while a cat is detected, the alarm should be set to alarm
+            else {
+                // if system is armed, reset all sensors to inactive, stored together with the arming status
+                this.armAway(previousStatus);
             }
-        }
 
-        securityRepository.setArmingStatus(armingStatus);
-        statusListeners.forEach(StatusListener::sensorStatusChanged);
+            if (armingStatus != ArmingStatus.ARMED_AWAY) {
+                securityRepository.setArmingStatus(armingStatus);
+            }
+        } finally {
+            this.armingLock.unlock();
+        }
+        statusListeners.publishSensorStatusChanged();
+        if (event != null && event.shouldCommit()) {
+            event.oldStatus = previousStatus.toString();
+            event.newStatus = armingStatus.toString();
+            event.sensorCount = this.securityRepository.getSensors().size();
+            event.lockWait = lockWait;
+            event.commit();
+        }
     }
 
     /**
@@ -84,15 +200,25 @@ public final class SecurityService {
      * the camera currently shows a cat.
      * @param cat True if a cat is detected, otherwise false.
      */
-    private void catDetected(Boolean cat) {
-        this.isCatDetected = cat;
-
-        if (cat && getArmingStatus() == ArmingStatus.ARMED_HOME) {
-            this.setAlarmStatus(AlarmStatus.ALARM);
-        } else if (!cat && this.getAllSensorsFromState(false)) {
-            this.setAlarmStatus(AlarmStatus.NO_ALARM);
+    private void catDetected(boolean cat) {
+        long start = System.nanoTime();
+        long current;
+        AlarmStatus status;
+        do {
+            current = this.loadSystemStatus();
+            if (cat && armingStatusOf(current) == ArmingStatus.ARMED_HOME) {
+                status = AlarmStatus.ALARM;
+            } else if (!cat && this.getSensorAggregate().allInactive()) {
+                status = AlarmStatus.NO_ALARM;
+            } else {
+                status = null;
+                break;
+            }
+        } while (!this.compareAndSetAlarmStatus(current, status));
+        if (status != null) {
+            this.alarmStatusChanged(alarmStatusOf(current), status, start);
         }
-        this.statusListeners.forEach(sl -> sl.catDetected(cat));
+        this.statusListeners.publishCatDetected(cat);
     }
 
     /**
@@ -100,11 +226,28 @@ public final class SecurityService {
      * @param statusListener
      */
     public void addStatusListener(StatusListener statusListener) {
-        this.statusListeners.add(statusListener);
+        this.statusListeners.subscribe(statusListener);
+    }
+
+    /**
+     * Register a StatusListener that is updated on the provided executor instead of the thread making the change.
+     * Pending updates of the same kind are coalesced, so a slow listener only receives the latest state.
+     * @param statusListener
+     * @param executor Where the listener is called, for example SwingUtilities::invokeLater
+     */
+    public void addStatusListener(StatusListener statusListener, Executor executor) {
+        this.statusListeners.subscribe(statusListener, executor);
     }
 
     public void removeStatusListener(StatusListener statusListener) {
-        this.statusListeners.remove(statusListener);
+        this.statusListeners.unsubscribe(statusListener);
+    }
+
+    /**
+     * Queue depth and dispatch lag for every registered StatusListener.
+     */
+    public List<StatusListenerBus.DispatchStats> getListenerDispatchStats() {
+        return this.statusListeners.getDispatchStats();
     }
 
     /**
@@ -112,55 +255,117 @@ public final class SecurityService {
      * @param status
      */
     public void setAlarmStatus(AlarmStatus status) {
-        this.securityRepository.setAlarmStatus(status);
-        this.statusListeners.forEach(sl -> sl.notify(status));
+        long start = System.nanoTime();
+        long current;
+        do {
+            current = this.loadSystemStatus();
+        } while (!this.compareAndSetAlarmStatus(current, status));
+        this.alarmStatusChanged(alarmStatusOf(current), status, start);
     }
 
     /**
      * Internal method for updating the alarm status when a sensor has been activated.
      */
     private void handleSensorActivated() {
-        if (this.securityRepository.getArmingStatus() == ArmingStatus.DISARMED) {
-            return; //no problem if the system is disarmed
+        this.handleSensorChange(true);
+    }
+
+    /**
+     * Internal method for updating the alarm status when a sensor has been deactivated
+     */
+    private void handleSensorDeactivated() {
+        this.handleSensorChange(false);
+    }
+
+    /**
+     * Decides the alarm status from the current arming status and sensor counters and sets it, deciding
+     * again if another transition got in first.
+     */
+    private void handleSensorChange(boolean activated) {
+        long start = System.nanoTime();
+        long current;
+        AlarmStatus status;
+        do {
+            current = this.loadSystemStatus();
+            ArmingStatus armingStatus = armingStatusOf(current);
+            status = activated ? this.alarmStatusAfterActivation(armingStatus) : this.alarmStatusAfterDeactivation(armingStatus);
+            if (status == null) {
+                return;
+            }
+        } while (!this.compareAndSetAlarmStatus(current, status));
+        this.alarmStatusChanged(alarmStatusOf(current), status, start);
+    }
+
+    /**
+     * Decides the alarm status after a sensor has been activated.
+     * @return The new alarm status, or null if it should not change
+     */
+    private AlarmStatus alarmStatusAfterActivation(ArmingStatus armingStatus) {
+        if (armingStatus == ArmingStatus.DISARMED) {
+            return null; //no problem if the system is disarmed
         }
 
-        if (this.securityRepository.getArmingStatus() == ArmingStatus.ARMED_HOME) {
-            if (this.securityRepository.areSensorsArmed()) {
-                this.setAlarmStatus(AlarmStatus.ALARM);
+        if (armingStatus == ArmingStatus.ARMED_HOME) {
+            if (this.getSensorAggregate().allActive()) {
+                return AlarmStatus.ALARM;
             } else {
-                this.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+                return AlarmStatus.PENDING_ALARM;
             }
         }
+        return null;
     }
 
     /**
-     * Internal method for updating the alarm status when a sensor has been deactivated
+     * Decides the alarm status after a sensor has been deactivated.
+     * @return The new alarm status, or null if it should not change
      */
-    private void handleSensorDeactivated() {
-        if (this.securityRepository.getArmingStatus() == ArmingStatus.DISARMED) {
-            return;
+    private AlarmStatus alarmStatusAfterDeactivation(ArmingStatus armingStatus) {
+        if (armingStatus == ArmingStatus.DISARMED) {
+            return null;
         }
 
         // if all sensors are inactive
-        if (this.getAllSensorsFromState(false)) {
-            this.setAlarmStatus(AlarmStatus.NO_ALARM);
-        } else if (!this.securityRepository.areSensorsArmed()) {
-            this.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        if (this.getSensorAggregate().allInactive()) {
+            return AlarmStatus.NO_ALARM;
+        } else if (!this.getSensorAggregate().allActive()) {
+            return AlarmStatus.PENDING_ALARM;
         }
+        return null;
     }
 
     /**
      * Change the activation status for the specified sensor and update alarm status if necessary.
+     * With a repository that does not allocate on update, such as ColumnarSecurityRepositoryImpl, no flight
+     * recording running and listeners that do not allocate, this allocates nothing per event once warmed up.
      * @param sensor
      * @param active
      */
     public void changeSensorActivationStatus(Sensor sensor, boolean active) {
 //        AlarmStatus actualAlarmStatus = this.securityRepository.getAlarmStatus();
 
+        SENSOR_EVENTS.increment();
+        SensorActivationEvent event = SENSOR_ACTIVATION_EVENT.isEnabled() ? new SensorActivationEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+
         // update sensor to opposite of current status
-        boolean previousState = sensor.getActive();
-        sensor.setActive(!active);
-        this.securityRepository.updateSensor(sensor);
+        SensorAggregate aggregate = this.getSensorAggregate();
+        boolean previousState;
+        Lock sensorLock = this.sensorLocks.get(sensor.getSensorId());
+        long start = System.nanoTime();
+        this.bulkLock.readLock().lock();
+        sensorLock.lock();
+        long lockWait = System.nanoTime() - start;
+        try {
+            previousState = sensor.getActive();
+            sensor.setActive(!active);
+            this.securityRepository.updateSensor(sensor);
+            aggregate.changeState(sensor.getSensorType(), previousState, !active);
+        } finally {
+            sensorLock.unlock();
+            this.bulkLock.readLock().unlock();
+        }
 
         if (!active) {
             this.handleSensorActivated();
@@ -168,6 +373,79 @@ public final class SecurityService {
             this.handleSensorDeactivated();
         }
 
+        if (event != null && event.shouldCommit()) {
+            event.sensorId = sensor.getSensorId().toString();
+            event.sensorType = sensor.getSensorType().toString();
+            event.oldActive = previousState;
+            event.newActive = !active;
+            event.lockWait = lockWait;
+            event.commit();
+        }
+    }
+
+    /**
+     * Applies a burst of sensor updates. Each event changes its sensor and is evaluated exactly as
+     * changeSensorActivationStatus would, but the changed sensors are persisted in one repository call,
+     * only the final alarm status is stored and sent to listeners, and listeners receive a single
+     * sensorStatusChanged notification for the whole batch. If another transition changes the system
+     * status while the batch is applied, the final alarm status is decided again from the batch's last
+     * deciding event against the new status.
+     * @param events Sensor updates in the order they were received
+     */
+    public void applySensorEvents(Collection<SensorEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        SENSOR_EVENTS.add(events.size());
+
+        long start = System.nanoTime();
+        SensorAggregate aggregate = this.getSensorAggregate();
+        long current = this.loadSystemStatus();
+        ArmingStatus armingStatus = armingStatusOf(current);
+        Set<Sensor> changedSensors = new LinkedHashSet<>();
+        AlarmStatus alarmStatus = null;
+        boolean decidedByActivation = false;
+
+        for (SensorEvent event : events) {
+            Sensor sensor = event.getSensor();
+            boolean previousState;
+            Lock sensorLock = this.sensorLocks.get(sensor.getSensorId());
+            this.bulkLock.readLock().lock();
+            sensorLock.lock();
+            try {
+                previousState = sensor.getActive();
+                sensor.setActive(!event.getActive());
+                aggregate.changeState(sensor.getSensorType(), previousState, !event.getActive());
+            } finally {
+                sensorLock.unlock();
+                this.bulkLock.readLock().unlock();
+            }
+            changedSensors.add(sensor);
+
+            AlarmStatus status = null;
+            if (!event.getActive()) {
+                status = this.alarmStatusAfterActivation(armingStatus);
+            } else if (previousState) {
+                status = this.alarmStatusAfterDeactivation(armingStatus);
+            }
+            if (status != null) {
+                alarmStatus = status;
+                decidedByActivation = !event.getActive();
+            }
+        }
+
+        this.securityRepository.updateSensors(changedSensors);
+        while (alarmStatus != null && !this.compareAndSetAlarmStatus(current, alarmStatus)) {
+            //another transition got in during the batch, so decide again as its last deciding event would now
+            current = this.loadSystemStatus();
+            alarmStatus = decidedByActivation
+                    ? this.alarmStatusAfterActivation(armingStatusOf(current))
+                    : this.alarmStatusAfterDeactivation(armingStatusOf(current));
+        }
+        if (alarmStatus != null) {
+            this.alarmStatusChanged(alarmStatusOf(current), alarmStatus, start);
+        }
+        this.statusListeners.publishSensorStatusChanged();
     }
 
     /**
@@ -176,26 +454,85 @@ public final class SecurityService {
      * @param currentCameraImage
      */
     public void processImage(BufferedImage currentCameraImage) {
-        catDetected(imageService.imageContainsCat(currentCameraImage, 50.0f));
+        catDetected(analyzeImage(currentCameraImage));
+    }
+
+    /**
+     * Asynchronous version of processImage. The image is analyzed on the image analysis executor and the
+     * result is applied on the image result executor, so the caller never waits on the ImageService.
+     * @param currentCameraImage
+     * @return Future that completes with the scan result once the alarm status has been updated. It is
+     * cancelled if a newer image displaced this one from the queue, and fails if the queue was full.
+     */
+    public CompletableFuture<Boolean> processImageAsync(BufferedImage currentCameraImage) {
+        return imageAnalysisExecutor
+                .submit(() -> analyzeImage(currentCameraImage))
+                .thenApplyAsync(cat -> {
+                    if (!detached) {
+                        catDetected(cat);
+                    }
+                    return cat;
+                }, imageResultExecutor);
+    }
+
+    /**
+     * Asks the ImageService about the image, recording how long it took.
+     */
+    private boolean analyzeImage(BufferedImage image) {
+        long start = System.nanoTime();
+        try {
+            return imageService.imageContainsCat(image, CAT_CONFIDENCE_THRESHOLD);
+        } finally {
+            imageAnalysisTimer.recordSince(start);
+        }
     }
 
     public AlarmStatus getAlarmStatus() {
-        return securityRepository.getAlarmStatus();
+        return alarmStatusOf(this.loadSystemStatus());
     }
 
     public Set<Sensor> getSensors() {
         return securityRepository.getSensors();
     }
 
+    /**
+     * Returns the sensors in display order. The list must not be modified.
+     */
+    public List<Sensor> getSortedSensors() {
+        return securityRepository.getSortedSensors();
+    }
+
     public void addSensor(Sensor sensor) {
-        if (this.securityRepository.getSensors().size() > 0 && this.securityRepository.getAlarmStatus() == AlarmStatus.ALARM) {
-            this.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        SensorAggregate aggregate = this.getSensorAggregate();
+        if (!aggregate.isEmpty()) {
+            long start = System.nanoTime();
+            long current = this.loadSystemStatus();
+            while (alarmStatusOf(current) == AlarmStatus.ALARM) {
+                if (this.compareAndSetAlarmStatus(current, AlarmStatus.PENDING_ALARM)) {
+                    this.alarmStatusChanged(AlarmStatus.ALARM, AlarmStatus.PENDING_ALARM, start);
+                    break;
+                }
+                current = this.loadSystemStatus();
+            }
+        }
+        this.bulkLock.readLock().lock();
+        try {
+            securityRepository.addSensor(sensor);
+            aggregate.add(sensor);
+        } finally {
+            this.bulkLock.readLock().unlock();
         }
-        securityRepository.addSensor(sensor);
     }
 
     public void removeSensor(Sensor sensor) {
-        securityRepository.removeSensor(sensor);
+        SensorAggregate aggregate = this.getSensorAggregate();
+        this.bulkLock.readLock().lock();
+        try {
+            securityRepository.removeSensor(sensor);
+            aggregate.remove(sensor);
+        } finally {
+            this.bulkLock.readLock().unlock();
+        }
 
         // Case 1
         // List Sensors:
@@ -250,24 +587,517 @@ public final class SecurityService {
         // Remove(1)
         // System Status: NO_ALARM
 
-       if (this.securityRepository.getSensors().isEmpty()) {
+        if (aggregate.isEmpty()) {
             this.setAlarmStatus(AlarmStatus.NO_ALARM);
-       }
-       else if (this.securityRepository.areSensorsArmed()) {
-           this.setAlarmStatus(AlarmStatus.ALARM);
+        }
+        else if (aggregate.allActive()) {
+            this.setAlarmStatus(AlarmStatus.ALARM);
 
-       } else if (!this.securityRepository.areSensorsArmed() && this.securityRepository.getSensors().size() == 1) {
-           this.setAlarmStatus(AlarmStatus.NO_ALARM);
-       }
+        } else if (!aggregate.allActive() && aggregate.size() == 1) {
+            this.setAlarmStatus(AlarmStatus.NO_ALARM);
+        }
     }
 
     public ArmingStatus getArmingStatus() {
-        return securityRepository.getArmingStatus();
+        return armingStatusOf(this.loadSystemStatus());
+    }
+
+    /**
+     * Sets how long the system may stay in PENDING_ALARM before it escalates to ALARM. Disarming or
+     * deactivating the sensors within that time cancels the escalation. Takes effect the next time the
+     * system goes pending. The timer starts when the system first goes pending and is only cancelled when
+     * it leaves PENDING_ALARM, so repeated sensor events do not restart it.
+     * @param entryDelay Delay, or zero to stay pending until something else changes the alarm status
+     */
+    public void setEntryDelay(Duration entryDelay) {
+        this.entryDelayMillis = nonNegativeMillis(entryDelay);
+    }
+
+    public Duration getEntryDelay() {
+        return Duration.ofMillis(entryDelayMillis);
+    }
+
+    /**
+     * Sets how long armWithExitDelay waits before arming the system.
+     * @param exitDelay Delay, or zero to arm straight away
+     */
+    public void setExitDelay(Duration exitDelay) {
+        this.exitDelayMillis = nonNegativeMillis(exitDelay);
+    }
+
+    public Duration getExitDelay() {
+        return Duration.ofMillis(exitDelayMillis);
+    }
+
+    /**
+     * Arms the system once the exit delay has passed, giving the occupants time to leave. Any call to
+     * setArmingStatus before then, including another armWithExitDelay, cancels the pending arming.
+     * @param armingStatus ARMED_HOME or ARMED_AWAY
+     */
+    public void armWithExitDelay(ArmingStatus armingStatus) {
+        if (armingStatus == ArmingStatus.DISARMED) {
+            throw new IllegalArgumentException("The exit delay only applies to arming");
+        }
+        //holding the arming lock keeps the timer from acting before it has been recorded
+        this.armingLock.lock();
+        try {
+            this.cancelExitDelay();
+            long delay = exitDelayMillis;
+            if (delay == 0) {
+                this.setArmingStatus(armingStatus);
+                return;
+            }
+            TimeoutHolder holder = new TimeoutHolder();
+            holder.timeout = timingWheel.schedule(
+                    () -> imageResultExecutor.execute(() -> this.exitDelayExpired(armingStatus, holder)), delay, TimeUnit.MILLISECONDS);
+            this.timerLock.lock();
+            try {
+                exitDelayTimeout = holder.timeout;
+            } finally {
+                this.timerLock.unlock();
+            }
+        } finally {
+            this.armingLock.unlock();
+        }
+    }
+
+    /**
+     * True while an armWithExitDelay call is waiting for its exit delay to pass.
+     */
+    public boolean isExitDelayPending() {
+        this.timerLock.lock();
+        try {
+            return exitDelayTimeout != null;
+        } finally {
+            this.timerLock.unlock();
+        }
+    }
+
+    /**
+     * True while the system is pending and counting down its entry delay.
+     */
+    public boolean isEntryDelayPending() {
+        this.timerLock.lock();
+        try {
+            return entryDelayTimeout != null;
+        } finally {
+            this.timerLock.unlock();
+        }
+    }
+
+    /**
+     * Arms the system every day for the duration of the window. If the window is already open it arms
+     * straight away. When the window closes the system is disarmed, unless its arming status has been
+     * changed by hand in the meantime.
+     * @return False if the window had already been added
+     */
+    public boolean addArmingWindow(ArmingWindow window) {
+        Objects.requireNonNull(window);
+        this.timerLock.lock();
+        try {
+            if (armingWindows.containsKey(window)) {
+                return false;
+            }
+            Instant now = clock.instant();
+            Instant nextStart = window.nextStart(now);
+            boolean open = window.nextEnd(now).isBefore(nextStart);
+            armingWindows.put(window, this.scheduleWindow(window, open ? now : nextStart, now));
+            return true;
+        } finally {
+            this.timerLock.unlock();
+        }
+    }
+
+    /**
+     * Stops the window from arming or disarming the system. The current arming status is left as it is.
+     * @return False if the window had not been added
+     */
+    public boolean removeArmingWindow(ArmingWindow window) {
+        this.timerLock.lock();
+        try {
+            TimingWheel.Timeout timeout = armingWindows.remove(window);
+            if (timeout == null) {
+                return false;
+            }
+            timeout.cancel();
+            return true;
+        } finally {
+            this.timerLock.unlock();
+        }
+    }
+
+    public List<ArmingWindow> getArmingWindows() {
+        this.timerLock.lock();
+        try {
+            return new ArrayList<>(armingWindows.keySet());
+        } finally {
+            this.timerLock.unlock();
+        }
+    }
+
+    /**
+     * Cancels the timers and stops applying scan results that are still in flight, for when the repository
+     * is about to be closed. Calls made on the service directly are still applied.
+     */
+    public void detach() {
+        this.detached = true;
+        this.cancelTimers();
+    }
+
+    /**
+     * Cancels the entry delay, the exit delay and every arming window, for example when the service is
+     * dropped. The alarm and arming status are left as they are.
+     */
+    public void cancelTimers() {
+        this.timerLock.lock();
+        try {
+            this.cancelEntryDelay();
+            this.cancelExitDelay();
+            armingWindows.values().forEach(TimingWheel.Timeout::cancel);
+            armingWindows.clear();
+        } finally {
+            this.timerLock.unlock();
+        }
+    }
+
+    /**
+     * Starts the entry delay when the system goes pending and stops it when it leaves PENDING_ALARM.
+     * Called by the alarm status writer after every alarm status change.
+     */
+    private void updateEntryDelay(AlarmStatus status) {
+        this.timerLock.lock();
+        try {
+            if (status != AlarmStatus.PENDING_ALARM) {
+                this.cancelEntryDelay();
+            } else if (entryDelayTimeout == null) {
+                long delay = entryDelayMillis;
+                if (delay > 0) {
+                    entryDelayTimeout = timingWheel.schedule(entryDelayTask, delay, TimeUnit.MILLISECONDS);
+                }
+            }
+        } finally {
+            this.timerLock.unlock();
+        }
+    }
+
+    /**
+     * Escalates to ALARM if the system is still pending on the entry delay that has just expired.
+     * A timeout that expired while another thread was moving the system out of PENDING_ALARM has
+     * already been cleared and does nothing.
+     */
+    private void entryDelayExpired() {
+        this.timerLock.lock();
+        try {
+            TimingWheel.Timeout timeout = entryDelayTimeout;
+            if (timeout == null || !timeout.isExpired()) {
+                return;
+            }
+            entryDelayTimeout = null;
+        } finally {
+            this.timerLock.unlock();
+        }
+        long start = System.nanoTime();
+        long current;
+        do {
+            current = this.loadSystemStatus();
+            if (alarmStatusOf(current) != AlarmStatus.PENDING_ALARM || armingStatusOf(current) == ArmingStatus.DISARMED) {
+                return;
+            }
+        } while (!this.compareAndSetAlarmStatus(current, AlarmStatus.ALARM));
+        this.alarmStatusChanged(AlarmStatus.PENDING_ALARM, AlarmStatus.ALARM, start);
+    }
+
+    private void exitDelayExpired(ArmingStatus armingStatus, TimeoutHolder holder) {
+        this.armingLock.lock();
+        try {
+            this.timerLock.lock();
+            try {
+                if (exitDelayTimeout != holder.timeout) {
+                    return;
+                }
+                exitDelayTimeout = null;
+            } finally {
+                this.timerLock.unlock();
+            }
+            this.setArmingStatus(armingStatus);
+        } finally {
+            this.armingLock.unlock();
+        }
+    }
+
+    /**
+     * Called with the timer lock held.
+     */
+    private void cancelEntryDelay() {
+        if (entryDelayTimeout != null) {
+            entryDelayTimeout.cancel();
+            entryDelayTimeout = null;
+        }
+    }
+
+    private void cancelExitDelay() {
+        this.timerLock.lock();
+        try {
+            if (exitDelayTimeout != null) {
+                exitDelayTimeout.cancel();
+                exitDelayTimeout = null;
+            }
+        } finally {
+            this.timerLock.unlock();
+        }
+    }
+
+    /**
+     * Schedules the window to fire at the given time. Each firing works out from the clock whether the
+     * window is open and when it next opens or closes, so it keeps to local time across daylight saving changes.
+     * Called with the timer lock held.
+     */
+    private TimingWheel.Timeout scheduleWindow(ArmingWindow window, Instant at, Instant now) {
+        long delay = Math.max(0, Duration.between(now, at).toMillis());
+        TimeoutHolder holder = new TimeoutHolder();
+        holder.timeout = timingWheel.schedule(
+                () -> imageResultExecutor.execute(() -> this.armingWindowFired(window, holder)), delay, TimeUnit.MILLISECONDS);
+        return holder.timeout;
+    }
+
+    private void armingWindowFired(ArmingWindow window, TimeoutHolder holder) {
+        this.armingLock.lock();
+        try {
+            if (!this.isCurrentWindowTimeout(window, holder)) {
+                return; //removed or rescheduled since
+            }
+            Instant now = clock.instant();
+            Instant nextStart = window.nextStart(now);
+            Instant nextEnd = window.nextEnd(now);
+            ArmingStatus armingStatus = this.getArmingStatus();
+            boolean open = nextEnd.isBefore(nextStart);
+            if (open && armingStatus != window.getArmingStatus()) {
+                this.setArmingStatus(window.getArmingStatus());
+            } else if (!open && armingStatus == window.getArmingStatus()) {
+                this.setArmingStatus(ArmingStatus.DISARMED);
+            }
+            this.timerLock.lock();
+            try {
+                if (armingWindows.get(window) == holder.timeout) {
+                    armingWindows.put(window, this.scheduleWindow(window, open ? nextEnd : nextStart, now));
+                }
+            } finally {
+                this.timerLock.unlock();
+            }
+        } finally {
+            this.armingLock.unlock();
+        }
+    }
+
+    private boolean isCurrentWindowTimeout(ArmingWindow window, TimeoutHolder holder) {
+        this.timerLock.lock();
+        try {
+            return armingWindows.get(window) == holder.timeout;
+        } finally {
+            this.timerLock.unlock();
+        }
+    }
+
+    private static long nonNegativeMillis(Duration duration) {
+        if (duration.isNegative()) {
+            throw new IllegalArgumentException("Delay must not be negative");
+        }
+        return duration.toMillis();
     }
 
-    private boolean getAllSensorsFromState(boolean state) {
-        return getSensors()
-                .stream()
-                .allMatch(sensor -> sensor.getActive() == state);
+    /**
+     * Number of sensors of the given type that are currently active.
+     * @param sensorType
+     */
+    public int getActiveSensorCount(SensorType sensorType) {
+        return getSensorAggregate().getActiveCount(sensorType);
+    }
+
+    /**
+     * Number of sensors of the given type that are currently inactive.
+     * @param sensorType
+     */
+    public int getInactiveSensorCount(SensorType sensorType) {
+        return getSensorAggregate().getInactiveCount(sensorType);
+    }
+
+    /**
+     * Returns the running sensor counters, counting the repository contents the first time they are needed.
+     * After that the counters are kept up to date by every method that changes a sensor, so alarm decisions
+     * take the same time no matter how many sensors are installed.
+     */
+    private SensorAggregate getSensorAggregate() {
+        SensorAggregate aggregate = sensorAggregate;
+        if (aggregate == null) {
+            aggregateInitLock.lock();
+            try {
+                aggregate = sensorAggregate;
+                if (aggregate == null) {
+                    aggregate = new SensorAggregate();
+                    aggregate.rebuild(securityRepository.getSensors());
+                    sensorAggregate = aggregate;
+                }
+            } finally {
+                aggregateInitLock.unlock();
+            }
+        }
+        return aggregate;
+    }
+
+    /**
+     * Deactivates every active sensor and stores the ARMED_AWAY status as a single repository change,
+     * then updates the alarm status as deactivating those sensors one by one would have.
+     * @param previousStatus Arming status before this change
+     */
+    private void armAway(ArmingStatus previousStatus) {
+        SensorAggregate aggregate = this.getSensorAggregate();
+        List<Sensor> deactivated = new ArrayList<>();
+        this.bulkLock.writeLock().lock();
+        try {
+            this.securityRepository.mutate(state -> {
+                for (Sensor sensor : this.securityRepository.getSensors()) {
+                    if (sensor.getActive()) {
+                        sensor.setActive(false);
+                        state.updateSensor(sensor);
+                        deactivated.add(sensor);
+                    }
+                }
+                state.setArmingStatus(ArmingStatus.ARMED_AWAY);
+            });
+            for (Sensor sensor : deactivated) {
+                aggregate.changeState(sensor.getSensorType(), true, false);
+            }
+        } finally {
+            this.bulkLock.writeLock().unlock();
+        }
+        this.changeSystemStatus(null, ArmingStatus.ARMED_AWAY);
+
+        if (!deactivated.isEmpty()) {
+            AlarmStatus status = this.alarmStatusAfterDeactivation(previousStatus);
+            if (status != null) {
+                this.setAlarmStatus(status);
+            }
+        }
+    }
+
+    /**
+     * Marks every sensor inactive, persisting the change through the repository, while no single sensor update can run.
+     */
+    private void setAllSensorsInactive() {
+        SensorAggregate aggregate = this.getSensorAggregate();
+        this.bulkLock.writeLock().lock();
+        try {
+            this.securityRepository.setAllSensorsInactive();
+            aggregate.setAllInactive();
+        } finally {
+            this.bulkLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the packed alarm and arming status, reading them from the repository the first time.
+     */
+    private long loadSystemStatus() {
+        long current = systemStatus.get();
+        if (current == UNLOADED) {
+            AlarmStatus alarmStatus = securityRepository.getAlarmStatus();
+            ArmingStatus armingStatus = securityRepository.getArmingStatus();
+            systemStatus.compareAndSet(UNLOADED, pack(UNLOADED,
+                    alarmStatus == null ? AlarmStatus.NO_ALARM : alarmStatus,
+                    armingStatus == null ? ArmingStatus.DISARMED : armingStatus));
+            current = systemStatus.get();
+        }
+        return current;
+    }
+
+    /**
+     * Sets the alarm status if nothing else has changed the system status since expected was read.
+     * The version stamp makes a change and its reversal count as a change.
+     */
+    private boolean compareAndSetAlarmStatus(long expected, AlarmStatus alarmStatus) {
+        return systemStatus.compareAndSet(expected, pack(expected, alarmStatus, armingStatusOf(expected)));
+    }
+
+    /**
+     * Sets the arming status, and the alarm status with it unless that is null, in one step.
+     */
+    private void changeSystemStatus(AlarmStatus alarmStatus, ArmingStatus armingStatus) {
+        long start = System.nanoTime();
+        long current;
+        do {
+            current = this.loadSystemStatus();
+        } while (!systemStatus.compareAndSet(current,
+                pack(current, alarmStatus == null ? alarmStatusOf(current) : alarmStatus, armingStatus)));
+        if (alarmStatus != null) {
+            this.alarmStatusChanged(alarmStatusOf(current), alarmStatus, start);
+        }
+    }
+
+    /**
+     * Stores and publishes an alarm transition that has just been made, and records it.
+     * @param start When the caller started deciding the transition, from System.nanoTime
+     */
+    private void alarmStatusChanged(AlarmStatus previousStatus, AlarmStatus status, long start) {
+        AlarmTransitionEvent event = ALARM_TRANSITION_EVENT.isEnabled() ? new AlarmTransitionEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        this.writeAlarmStatus();
+        ALARM_TRANSITIONS.recordSince(start);
+        if (event != null && event.shouldCommit()) {
+            event.oldStatus = previousStatus.toString();
+            event.newStatus = status.toString();
+            event.commit();
+        }
+    }
+
+    /**
+     * Writes the latest alarm status to the repository, the entry delay and the listeners. Only one thread
+     * writes at a time; a thread that finds a write running leaves its change to that writer, which goes
+     * round again, so the repository always ends up with the latest status and writes are never reordered.
+     * A listener that changes the alarm status from inside its callback is handled the same way.
+     */
+    private void writeAlarmStatus() {
+        if (alarmStatusWrites.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        try {
+            do {
+                AlarmStatus status = alarmStatusOf(systemStatus.get());
+                this.securityRepository.setAlarmStatus(status);
+                this.updateEntryDelay(status);
+                this.statusListeners.publishAlarmStatus(status);
+                missed = alarmStatusWrites.addAndGet(-missed);
+            } while (missed != 0);
+        } catch (RuntimeException | Error e) {
+            //let the next change start a fresh writer rather than wait for this one forever
+            alarmStatusWrites.set(0);
+            throw e;
+        }
+    }
+
+    /**
+     * Packs the statuses with a version one above the previous value's, so no two states compare equal.
+     */
+    private static long pack(long previous, AlarmStatus alarmStatus, ArmingStatus armingStatus) {
+        long version = previous == UNLOADED ? 0 : (previous >>> 4) + 1;
+        return version << 4 | alarmStatus.ordinal() << 2 | armingStatus.ordinal();
+    }
+
+    private static AlarmStatus alarmStatusOf(long systemStatus) {
+        return ALARM_STATUSES[(int) (systemStatus >>> 2) & 3];
+    }
+
+    private static ArmingStatus armingStatusOf(long systemStatus) {
+        return ARMING_STATUSES[(int) systemStatus & 3];
+    }
+
+    /**
+     * Lets a timer task find its own Timeout, which only exists once the task has been scheduled. It is
+     * set while holding the lock the task takes before reading it.
+     */
+    private static final class TimeoutHolder {
+        private TimingWheel.Timeout timeout;
     }
 }
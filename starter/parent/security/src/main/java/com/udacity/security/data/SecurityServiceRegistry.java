@@ -0,0 +1,321 @@
+package com.udacity.security.data;
+
+import com.udacity.image.service.ImageService;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Hosts many independent installations ("tenants") in one process, each with its own SecurityService
+ * and SecurityRepository. Tenants are spread over a fixed number of shards by tenant id. Each shard is a
+ * single thread that owns its tenants outright, so all work for one tenant runs in order on the same
+ * thread and tenants on different shards never contend.
+ *
+ * A tenant is loaded from the repository factory the first time work is submitted for it, and evicted
+ * once it has been idle for the configured time. Eviction closes the repository when it is AutoCloseable,
+ * so write-behind repositories flush before they are dropped. Status listeners added to an evicted
+ * tenant's service are dropped with it, its entry delay and arming window timers are cancelled, and
+ * scan results still in flight for it are ignored.
+ * All tenants share one ImageAnalysisExecutor and the shared TimingWheel, and scan results and timer
+ * expiries are applied back on the tenant's shard.
+ */
+public class SecurityServiceRegistry implements AutoCloseable {
+
+    private static final Pattern TENANT_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    //rough object sizes for footprint estimates: service, repository, lock stripes and counters per
+    // tenant, and sensor, UUID, name string and map entry per sensor
+    private static final long TENANT_OVERHEAD_BYTES = 4096;
+    private static final long SENSOR_OVERHEAD_BYTES = 136;
+
+    private final Function<String, SecurityRepository> repositoryFactory;
+    private final ImageService imageService;
+    private final ImageAnalysisExecutor imageAnalysisExecutor;
+    private final boolean ownsImageAnalysisExecutor;
+    private final long idleNanos;
+    private final Shard[] shards;
+    private final AtomicInteger loadedCount = new AtomicInteger();
+    private final AtomicLong loadCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * Creates a registry with its own image analysis pool of one thread per shard.
+     * @param repositoryFactory Creates the repository for a tenant id. Each tenant must get isolated storage.
+     * @param imageService Image analysis shared by every tenant
+     * @param shardCount Number of worker threads tenants are spread over
+     * @param idleEvictMillis Time a tenant may go unused before it is evicted, or 0 to keep tenants loaded
+     */
+    public SecurityServiceRegistry(Function<String, SecurityRepository> repositoryFactory, ImageService imageService,
+                                   int shardCount, long idleEvictMillis) {
+        this(repositoryFactory, imageService,
+                new ImageAnalysisExecutor(Math.max(1, shardCount), 64, ImageAnalysisExecutor.OverflowPolicy.DROP_OLDEST),
+                true, shardCount, idleEvictMillis);
+    }
+
+    /**
+     * Creates a registry whose tenants run image analysis on the provided pool. The pool is not closed with the registry.
+     * @param repositoryFactory Creates the repository for a tenant id. Each tenant must get isolated storage.
+     * @param imageService Image analysis shared by every tenant
+     * @param imageAnalysisExecutor Pool that runs image analysis for every tenant
+     * @param shardCount Number of worker threads tenants are spread over
+     * @param idleEvictMillis Time a tenant may go unused before it is evicted, or 0 to keep tenants loaded
+     */
+    public SecurityServiceRegistry(Function<String, SecurityRepository> repositoryFactory, ImageService imageService,
+                                   ImageAnalysisExecutor imageAnalysisExecutor, int shardCount, long idleEvictMillis) {
+        this(repositoryFactory, imageService, imageAnalysisExecutor, false, shardCount, idleEvictMillis);
+    }
+
+    private SecurityServiceRegistry(Function<String, SecurityRepository> repositoryFactory, ImageService imageService,
+                                    ImageAnalysisExecutor imageAnalysisExecutor, boolean ownsImageAnalysisExecutor,
+                                    int shardCount, long idleEvictMillis) {
+        if (shardCount < 1 || idleEvictMillis < 0) {
+            throw new IllegalArgumentException("shardCount must be positive and idleEvictMillis must not be negative");
+        }
+        this.repositoryFactory = repositoryFactory;
+        this.imageService = imageService;
+        this.imageAnalysisExecutor = imageAnalysisExecutor;
+        this.ownsImageAnalysisExecutor = ownsImageAnalysisExecutor;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleEvictMillis);
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+            if (idleEvictMillis > 0) {
+                long sweepMillis = Math.max(1, idleEvictMillis / 2);
+                Shard shard = shards[i];
+                shard.executor.scheduleWithFixedDelay(() -> shard.evictIdle(System.nanoTime()),
+                        sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Repository factory that gives each tenant its own binary snapshot file under the provided directory.
+     * @param directory Directory holding one file per tenant
+     */
+    public static Function<String, SecurityRepository> fileBackedRepositories(Path directory) {
+        return tenantId -> new PretendDatabaseSecurityRepositoryImpl(
+                new BinaryFileSecurityStateStore(directory.resolve(tenantId + ".bin")));
+    }
+
+    /**
+     * Runs an action against a tenant's SecurityService on the tenant's shard, loading the tenant first if needed.
+     * Actions for the same tenant run one at a time in submission order. The action must not block on other
+     * work submitted to this registry.
+     * @param tenantId Letters, digits, '-' and '_', at most 64 characters
+     * @param action Work to run against the tenant's service
+     * @return Future holding the action's result, failed if the action or loading the tenant threw
+     */
+    public <T> CompletableFuture<T> submit(String tenantId, Function<SecurityService, T> action) {
+        checkTenantId(tenantId);
+        Shard shard = shardFor(tenantId);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            shard.executor.execute(() -> {
+                try {
+                    result.complete(action.apply(shard.acquire(tenantId).service));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Evicts a tenant now if it is loaded.
+     * @param tenantId Letters, digits, '-' and '_', at most 64 characters
+     * @return Future completing with true if the tenant was loaded and has been evicted
+     */
+    public CompletableFuture<Boolean> evict(String tenantId) {
+        checkTenantId(tenantId);
+        Shard shard = shardFor(tenantId);
+        return CompletableFuture.supplyAsync(() -> shard.evict(tenantId), shard.executor);
+    }
+
+    /**
+     * Collects size figures for every loaded tenant. Each shard reports its own tenants on its own thread.
+     */
+    public CompletableFuture<List<TenantFootprint>> getFootprints() {
+        List<CompletableFuture<List<TenantFootprint>>> perShard = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            perShard.add(CompletableFuture.supplyAsync(() -> shard.footprints(System.nanoTime()), shard.executor));
+        }
+        return CompletableFuture.allOf(perShard.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            List<TenantFootprint> footprints = new ArrayList<>();
+            perShard.forEach(future -> footprints.addAll(future.join()));
+            return footprints;
+        });
+    }
+
+    /**
+     * Number of tenants currently loaded.
+     */
+    public int getLoadedCount() {
+        return loadedCount.get();
+    }
+
+    /**
+     * Number of times a tenant has been loaded, including reloads after eviction.
+     */
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Finishes the work already submitted, evicts every tenant and stops the shard threads.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Shard shard : shards) {
+            shard.executor.execute(shard::evictAll);
+            shard.executor.shutdown();
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.executor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (ownsImageAnalysisExecutor) {
+            imageAnalysisExecutor.close();
+        }
+    }
+
+    private static void checkTenantId(String tenantId) {
+        if (tenantId == null || !TENANT_ID.matcher(tenantId).matches()) {
+            throw new IllegalArgumentException("Invalid tenant id: " + tenantId);
+        }
+    }
+
+    private Shard shardFor(String tenantId) {
+        return shards[Math.floorMod(tenantId.hashCode(), shards.length)];
+    }
+
+    private static final class Tenant {
+        private final String id;
+        private final SecurityRepository repository;
+        private final SecurityService service;
+        private long lastAccessNanos;
+
+        private Tenant(String id, SecurityRepository repository, SecurityService service) {
+            this.id = id;
+            this.repository = repository;
+            this.service = service;
+        }
+    }
+
+    /**
+     * One worker thread and the tenants it owns. The tenant map is only touched from that thread.
+     */
+    private final class Shard {
+        private final ScheduledExecutorService executor;
+        private final Map<String, Tenant> tenants = new HashMap<>();
+
+        private Shard(int index) {
+            this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "tenant-shard-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        private Tenant acquire(String tenantId) {
+            Tenant tenant = tenants.get(tenantId);
+            if (tenant == null) {
+                SecurityRepository repository = repositoryFactory.apply(tenantId);
+                SecurityService service = new SecurityService(repository, imageService, imageAnalysisExecutor, executor);
+                tenant = new Tenant(tenantId, repository, service);
+                tenants.put(tenantId, tenant);
+                loadedCount.incrementAndGet();
+                loadCount.incrementAndGet();
+            }
+            tenant.lastAccessNanos = System.nanoTime();
+            return tenant;
+        }
+
+        private boolean evict(String tenantId) {
+            Tenant tenant = tenants.remove(tenantId);
+            if (tenant == null) {
+                return false;
+            }
+            unload(tenant);
+            return true;
+        }
+
+        private void evictIdle(long nowNanos) {
+            Iterator<Tenant> iterator = tenants.values().iterator();
+            while (iterator.hasNext()) {
+                Tenant tenant = iterator.next();
+                if (nowNanos - tenant.lastAccessNanos >= idleNanos) {
+                    iterator.remove();
+                    unload(tenant);
+                }
+            }
+        }
+
+        private void evictAll() {
+            tenants.values().forEach(this::unload);
+            tenants.clear();
+        }
+
+        private void unload(Tenant tenant) {
+            loadedCount.decrementAndGet();
+            evictionCount.incrementAndGet();
+            //an evicted tenant must not keep timers on the shared wheel, and scans still in flight must not
+            // write to the repository once it is closed
+            tenant.service.detach();
+            if (tenant.repository instanceof AutoCloseable) {
+                //a failing close must not stop the sweep or kill the shard thread
+                try {
+                    ((AutoCloseable) tenant.repository).close();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        private List<TenantFootprint> footprints(long nowNanos) {
+            List<TenantFootprint> footprints = new ArrayList<>(tenants.size());
+            for (Tenant tenant : tenants.values()) {
+                int sensorCount = 0;
+                long bytes = TENANT_OVERHEAD_BYTES;
+                for (Sensor sensor : tenant.repository.getSensors()) {
+                    sensorCount++;
+                    bytes += SENSOR_OVERHEAD_BYTES + (sensor.getName() == null ? 0 : sensor.getName().length());
+                }
+                footprints.add(new TenantFootprint(tenant.id, sensorCount, bytes,
+                        TimeUnit.NANOSECONDS.toMillis(nowNanos - tenant.lastAccessNanos)));
+            }
+            return footprints;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.udacity.security.data;
+
+import java.util.List;
+
+/**
+ * Immutable snapshot of everything a SecurityStateStore persists: the sensors and the
+ * alarm and arming status.
+ */
+public final class SecurityState {
+    private final List<Sensor> sensors;
+    private final AlarmStatus alarmStatus;
+    private final ArmingStatus armingStatus;
+
+    public SecurityState(List<Sensor> sensors, AlarmStatus alarmStatus, ArmingStatus armingStatus) {
+        this.sensors = List.copyOf(sensors);
+        this.alarmStatus = alarmStatus;
+        this.armingStatus = armingStatus;
+    }
+
+    /**
+     * State of a system that has never been saved: no sensors, no alarm and disarmed.
+     */
+    public static SecurityState empty() {
+        return new SecurityState(List.of(), AlarmStatus.NO_ALARM, ArmingStatus.DISARMED);
+    }
+
+    public List<Sensor> getSensors() {
+        return sensors;
+    }
+
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+}
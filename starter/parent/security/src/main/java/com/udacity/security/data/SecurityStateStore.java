@@ -0,0 +1,28 @@
+package com.udacity.security.data;
+
+import java.util.Collection;
+
+/**
+ * Persistence backend for PretendDatabaseSecurityRepositoryImpl. The repository keeps the live state
+ * in memory and hands it to the store whenever something changes; the store decides how and where
+ * that state is written.
+ */
+public interface SecurityStateStore {
+    /**
+     * Reads the state saved by a previous run, or SecurityState.empty() if there is none.
+     */
+    SecurityState load();
+    void saveSensors(Collection<Sensor> sensors);
+    void saveAlarmStatus(AlarmStatus alarmStatus);
+    void saveArmingStatus(ArmingStatus armingStatus);
+
+    /**
+     * Replaces everything stored with the provided state. Stores that can should override this to
+     * write it in a single atomic operation; this default saves the parts one after the other.
+     */
+    default void saveState(SecurityState state) {
+        saveSensors(state.getSensors());
+        saveAlarmStatus(state.getAlarmStatus());
+        saveArmingStatus(state.getArmingStatus());
+    }
+}
@@ -12,14 +12,24 @@ import java.util.UUID;
 public class Sensor implements Comparable<Sensor> {
     private UUID sensorId;
     private String name;
-    private Boolean active;
+    private boolean active;
     private SensorType sensorType;
 
     public Sensor(String name, SensorType sensorType) {
         this.name = name;
         this.sensorType = sensorType;
         this.sensorId = UUID.randomUUID();
-        this.active = Boolean.FALSE;
+        this.active = false;
+    }
+
+    /**
+     * Recreates a stored sensor without generating a new random id.
+     */
+    public Sensor(UUID sensorId, String name, SensorType sensorType, boolean active) {
+        this.name = name;
+        this.sensorType = sensorType;
+        this.sensorId = sensorId;
+        this.active = active;
     }
 
     @Override
@@ -43,11 +53,11 @@ public class Sensor implements Comparable<Sensor> {
         this.name = name;
     }
 
-    public Boolean getActive() {
+    public boolean getActive() {
         return active;
     }
 
-    public void setActive(Boolean active) {
+    public void setActive(boolean active) {
         this.active = active;
     }
 
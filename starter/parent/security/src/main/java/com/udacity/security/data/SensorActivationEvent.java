@@ -0,0 +1,33 @@
+package com.udacity.security.data;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for SecurityService.changeSensorActivationStatus. The duration includes any
+ * alarm transition the change causes.
+ */
+@Name("com.udacity.security.SensorActivation")
+@Label("Sensor Activation")
+@Category({"Catpoint", "Security"})
+@Description("Sensor activation change, including the time spent waiting for the sensor locks")
+final class SensorActivationEvent extends jdk.jfr.Event {
+    @Label("Sensor Id")
+    String sensorId;
+
+    @Label("Sensor Type")
+    String sensorType;
+
+    @Label("Was Active")
+    boolean oldActive;
+
+    @Label("Is Active")
+    boolean newActive;
+
+    @Label("Lock Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    long lockWait;
+}
@@ -0,0 +1,106 @@
+package com.udacity.security.data;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Running totals of active and inactive sensors, kept per SensorType. The SecurityService
+ * updates these counters as sensors change so alarm decisions never need to walk the
+ * full sensor list.
+ *
+ * Counters are atomic so updates from different threads are never lost. A state change
+ * always removes the sensor from its old state before adding it to the new one, so a
+ * concurrent reader can never see every sensor as active (or inactive) before that is true.
+ */
+final class SensorAggregate {
+    private static final SensorType[] TYPES = SensorType.values();
+
+    private final AtomicIntegerArray activeCounts = new AtomicIntegerArray(TYPES.length);
+    private final AtomicIntegerArray inactiveCounts = new AtomicIntegerArray(TYPES.length);
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger inactive = new AtomicInteger();
+
+    /**
+     * Discards the current totals and recounts them from the provided sensors.
+     * @param sensors The sensors the counters should describe
+     */
+    void rebuild(Collection<Sensor> sensors) {
+        clear();
+        for (Sensor sensor : sensors) {
+            add(sensor);
+        }
+    }
+
+    void clear() {
+        for (int i = 0; i < TYPES.length; i++) {
+            activeCounts.set(i, 0);
+            inactiveCounts.set(i, 0);
+        }
+        active.set(0);
+        inactive.set(0);
+    }
+
+    void add(Sensor sensor) {
+        adjust(sensor.getSensorType(), sensor.getActive(), 1);
+    }
+
+    void remove(Sensor sensor) {
+        adjust(sensor.getSensorType(), sensor.getActive(), -1);
+    }
+
+    /**
+     * Moves a sensor from one activation state to the other. Does nothing if the state is unchanged.
+     */
+    void changeState(SensorType sensorType, boolean previousState, boolean newState) {
+        if (previousState == newState) {
+            return;
+        }
+        adjust(sensorType, previousState, -1);
+        adjust(sensorType, newState, 1);
+    }
+
+    /**
+     * Marks every counted sensor as inactive. Callers must make sure no sensor changes run at the same time.
+     */
+    void setAllInactive() {
+        for (int i = 0; i < TYPES.length; i++) {
+            inactiveCounts.addAndGet(i, activeCounts.getAndSet(i, 0));
+        }
+        inactive.addAndGet(active.getAndSet(0));
+    }
+
+    boolean allActive() {
+        return inactive.get() == 0;
+    }
+
+    boolean allInactive() {
+        return active.get() == 0;
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    int size() {
+        return active.get() + inactive.get();
+    }
+
+    int getActiveCount(SensorType sensorType) {
+        return activeCounts.get(sensorType.ordinal());
+    }
+
+    int getInactiveCount(SensorType sensorType) {
+        return inactiveCounts.get(sensorType.ordinal());
+    }
+
+    private void adjust(SensorType sensorType, boolean state, int delta) {
+        if (state) {
+            activeCounts.addAndGet(sensorType.ordinal(), delta);
+            active.addAndGet(delta);
+        } else {
+            inactiveCounts.addAndGet(sensorType.ordinal(), delta);
+            inactive.addAndGet(delta);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.udacity.security.data;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Sensors stored column by column instead of as objects. Row i of the store is made of
+ * <ul>
+ *   <li>the two halves of the sensor id in two long arrays,</li>
+ *   <li>bit i of a BitSet for the activation state,</li>
+ *   <li>the SensorType ordinal in a byte array, and</li>
+ *   <li>the id of the sensor name in a NamePool.</li>
+ * </ul>
+ * Rows are looked up by id through an open-addressing hash table of row numbers, so no UUID or boxed
+ * key is kept per sensor. Removing a sensor moves the last row into its place, keeping the columns
+ * dense, and whole-estate checks such as "are all sensors active" scan the BitSet a word at a time.
+ * A sensor costs about 30 bytes plus its share of the name pool. Not thread safe.
+ */
+final class SensorColumns {
+    private static final SensorType[] SENSOR_TYPES = SensorType.values();
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] mostSigBits = new long[INITIAL_CAPACITY];
+    private long[] leastSigBits = new long[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private int[] names = new int[INITIAL_CAPACITY];
+    private final BitSet active = new BitSet();
+    private final NamePool namePool = new NamePool();
+    private int size;
+
+    //slot -> row + 1, 0 for an empty slot; linear probing, kept at most half full
+    private int[] index = new int[INITIAL_CAPACITY * 2];
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Row holding the sensor with this id, or -1 if there is none.
+     */
+    int find(UUID sensorId) {
+        return find(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+    }
+
+    /**
+     * Stores the sensor's current fields, adding a row if the id is new.
+     * @return The sensor's row
+     */
+    int put(Sensor sensor) {
+        long most = sensor.getSensorId().getMostSignificantBits();
+        long least = sensor.getSensorId().getLeastSignificantBits();
+        int row = find(most, least);
+        if (row < 0) {
+            row = size++;
+            ensureCapacity(size);
+            mostSigBits[row] = most;
+            leastSigBits[row] = least;
+            names[row] = namePool.acquire(sensor.getName());
+            insertIndex(row);
+        } else if (!Objects.equals(namePool.get(names[row]), sensor.getName())) {
+            int name = namePool.acquire(sensor.getName());
+            namePool.release(names[row]);
+            names[row] = name;
+        }
+        types[row] = (byte) sensor.getSensorType().ordinal();
+        active.set(row, sensor.getActive());
+        return row;
+    }
+
+    /**
+     * Removes the sensor with this id, moving the last row into its place.
+     * @return True if the sensor was stored
+     */
+    boolean remove(UUID sensorId) {
+        int row = find(sensorId);
+        if (row < 0) {
+            return false;
+        }
+        removeIndex(slotOf(row));
+        namePool.release(names[row]);
+
+        int last = --size;
+        if (row != last) {
+            int lastSlot = slotOf(last);
+            mostSigBits[row] = mostSigBits[last];
+            leastSigBits[row] = leastSigBits[last];
+            types[row] = types[last];
+            names[row] = names[last];
+            active.set(row, active.get(last));
+            index[lastSlot] = row + 1;
+        }
+        active.clear(last);
+        return true;
+    }
+
+    boolean isActive(int row) {
+        return active.get(row);
+    }
+
+    void setActive(int row, boolean isActive) {
+        active.set(row, isActive);
+    }
+
+    void setAllInactive() {
+        active.clear();
+    }
+
+    /**
+     * True if there is no inactive sensor, found by scanning for the first clear bit.
+     */
+    boolean allActive() {
+        return active.nextClearBit(0) >= size;
+    }
+
+    boolean anyActive() {
+        return !active.isEmpty();
+    }
+
+    int activeCount() {
+        return active.cardinality();
+    }
+
+    int activeCount(SensorType sensorType) {
+        byte type = (byte) sensorType.ordinal();
+        int count = 0;
+        for (int row = active.nextSetBit(0); row >= 0; row = active.nextSetBit(row + 1)) {
+            if (types[row] == type) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Number of distinct names stored, each kept once however many sensors share it.
+     */
+    int distinctNameCount() {
+        return namePool.size();
+    }
+
+    /**
+     * Builds a Sensor object holding the row's current fields. Changing it does not change the store.
+     */
+    Sensor materialize(int row) {
+        return new Sensor(new UUID(mostSigBits[row], leastSigBits[row]), namePool.get(names[row]),
+                SENSOR_TYPES[types[row]], active.get(row));
+    }
+
+    private int find(long most, long least) {
+        int mask = index.length - 1;
+        for (int slot = hash(most, least) & mask; ; slot = (slot + 1) & mask) {
+            int entry = index[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            int row = entry - 1;
+            if (mostSigBits[row] == most && leastSigBits[row] == least) {
+                return row;
+            }
+        }
+    }
+
+    private int slotOf(int row) {
+        int mask = index.length - 1;
+        int slot = hash(mostSigBits[row], leastSigBits[row]) & mask;
+        while (index[slot] != row + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insertIndex(int row) {
+        if (size * 2 > index.length) {
+            rebuildIndex(index.length * 2);
+            return;
+        }
+        int mask = index.length - 1;
+        int slot = hash(mostSigBits[row], leastSigBits[row]) & mask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = row + 1;
+    }
+
+    /**
+     * Empties a slot and shifts later entries of the same probe run back, so lookups never stop early.
+     */
+    private void removeIndex(int slot) {
+        int mask = index.length - 1;
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            int entry = index[next];
+            if (entry == 0) {
+                index[hole] = 0;
+                return;
+            }
+            int home = hash(mostSigBits[entry - 1], leastSigBits[entry - 1]) & mask;
+            //the entry can move into the hole unless its home slot lies cyclically after the hole
+            boolean homeAfterHole = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!homeAfterHole) {
+                index[hole] = entry;
+                hole = next;
+            }
+        }
+    }
+
+    private void rebuildIndex(int capacity) {
+        index = new int[capacity];
+        int mask = capacity - 1;
+        for (int row = 0; row < size; row++) {
+            int slot = hash(mostSigBits[row], leastSigBits[row]) & mask;
+            while (index[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            index[slot] = row + 1;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > mostSigBits.length) {
+            int length = Math.max(capacity, mostSigBits.length * 2);
+            mostSigBits = Arrays.copyOf(mostSigBits, length);
+            leastSigBits = Arrays.copyOf(leastSigBits, length);
+            types = Arrays.copyOf(types, length);
+            names = Arrays.copyOf(names, length);
+        }
+    }
+
+    private static int hash(long most, long least) {
+        long h = most ^ least;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
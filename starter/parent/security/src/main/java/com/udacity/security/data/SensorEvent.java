@@ -0,0 +1,38 @@
+package com.udacity.security.data;
+
+import java.util.Objects;
+
+/**
+ * A single sensor update received from the field. Carries the same arguments as
+ * SecurityService.changeSensorActivationStatus, so a batch of events behaves exactly
+ * like the equivalent sequence of individual calls.
+ */
+public final class SensorEvent {
+    private final Sensor sensor;
+    private final boolean active;
+
+    /**
+     * @param sensor The sensor that reported the update
+     * @param active The sensor's activation status as passed to changeSensorActivationStatus
+     */
+    public SensorEvent(Sensor sensor, boolean active) {
+        this.sensor = Objects.requireNonNull(sensor);
+        this.active = active;
+    }
+
+    public Sensor getSensor() {
+        return sensor;
+    }
+
+    public boolean getActive() {
+        return active;
+    }
+
+    @Override
+    public String toString() {
+        return "SensorEvent {" +
+                "sensor=" + sensor +
+                ", active=" + active +
+                '}';
+    }
+}
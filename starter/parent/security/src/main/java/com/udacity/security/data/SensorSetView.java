@@ -0,0 +1,44 @@
+package com.udacity.security.data;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Read-only Set view over a sensor map keyed by sensorId. Lookups go straight to the map,
+ * so they never compare names.
+ */
+final class SensorSetView extends AbstractSet<Sensor> {
+    private final Map<UUID, Sensor> sensors;
+
+    SensorSetView(Map<UUID, Sensor> sensors) {
+        this.sensors = sensors;
+    }
+
+    @Override
+    public Iterator<Sensor> iterator() {
+        Iterator<Sensor> values = sensors.values().iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return values.hasNext();
+            }
+
+            @Override
+            public Sensor next() {
+                return values.next();
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return sensors.size();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Sensor && sensors.containsKey(((Sensor) o).getSensorId());
+    }
+}
@@ -0,0 +1,80 @@
+package com.udacity.security.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * MutableState that records what changed so a repository can persist it in one go. Each sensor is
+ * recorded once however often it changes, and only the last alarm and arming status are kept.
+ */
+final class StateChanges implements MutableState {
+    private final Collection<Sensor> currentSensors;
+    private final Map<UUID, Sensor> changedSensors = new LinkedHashMap<>();
+    private final List<Sensor> deactivatedSensors = new ArrayList<>();
+    private AlarmStatus alarmStatus;
+    private ArmingStatus armingStatus;
+
+    /**
+     * @param currentSensors The repository's sensors, deactivated by setAllSensorsInactive
+     */
+    StateChanges(Collection<Sensor> currentSensors) {
+        this.currentSensors = currentSensors;
+    }
+
+    @Override
+    public void updateSensor(Sensor sensor) {
+        changedSensors.put(sensor.getSensorId(), sensor);
+    }
+
+    @Override
+    public void setAllSensorsInactive() {
+        for (Sensor sensor : currentSensors) {
+            if (sensor.getActive()) {
+                deactivatedSensors.add(sensor);
+            }
+            sensor.setActive(false);
+            changedSensors.put(sensor.getSensorId(), sensor);
+        }
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+    }
+
+    /**
+     * Reactivates the sensors setAllSensorsInactive deactivated, for when the changes could not be stored.
+     */
+    void restoreDeactivatedSensors() {
+        for (Sensor sensor : deactivatedSensors) {
+            sensor.setActive(true);
+        }
+    }
+
+    Collection<Sensor> getChangedSensors() {
+        return changedSensors.values();
+    }
+
+    /**
+     * New alarm status, or null if it was not changed.
+     */
+    AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    /**
+     * New arming status, or null if it was not changed.
+     */
+    ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+}
@@ -0,0 +1,308 @@
+package com.udacity.security.data;
+
+import com.udacity.security.application.StatusListener;
+import com.udacity.metrics.MetricsRegistry;
+import com.udacity.metrics.Timer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers status changes from the SecurityService to its StatusListeners.
+ *
+ * A listener registered without an executor is called inline on the publishing thread, exactly as
+ * before. A listener registered with an executor gets its own mailbox with one slot per kind of
+ * change (alarm status, cat detection, sensor list), so it can never hold more than three pending
+ * deliveries. Publishing only fills a slot and schedules a drain on the listener's executor; a change
+ * published while an older one of the same kind is still waiting replaces it, so a slow listener only
+ * ever sees the latest state and never holds up the publisher. Changes of different kinds are
+ * delivered in the order alarm status, cat detection, sensor list within one drain.
+ *
+ * The time spent inside listeners is recorded to the global MetricsRegistry, separately for inline
+ * and executor deliveries.
+ */
+public class StatusListenerBus {
+
+    private static final int ALARM_STATUS = 1;
+    private static final int CAT_DETECTED = 2;
+    private static final int SENSORS_CHANGED = 4;
+
+    private static final Timer INLINE_DISPATCH = MetricsRegistry.global().timer("security.listener.dispatch", "mode", "inline");
+    private static final Timer ASYNC_DISPATCH = MetricsRegistry.global().timer("security.listener.dispatch", "mode", "executor");
+
+    private static final ExecutorService BACKGROUND = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "status-listener");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+
+    //copied on every change under this, and read without locking so publishing never allocates an iterator
+    private volatile Subscription[] subscriptions = NO_SUBSCRIPTIONS;
+
+    /**
+     * Shared pool of daemon threads for listeners that should not run on the publishing thread or the
+     * Swing event thread.
+     */
+    public static Executor backgroundExecutor() {
+        return BACKGROUND;
+    }
+
+    /**
+     * Registers a listener that is called inline on the thread that publishes each change.
+     */
+    public void subscribe(StatusListener listener) {
+        add(new Subscription(listener, null));
+    }
+
+    /**
+     * Registers a listener whose changes are coalesced and delivered on the provided executor.
+     * @param executor Where deliveries run, for example SwingUtilities::invokeLater or backgroundExecutor()
+     */
+    public void subscribe(StatusListener listener, Executor executor) {
+        add(new Subscription(listener, executor));
+    }
+
+    public synchronized void unsubscribe(StatusListener listener) {
+        Subscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].listener.equals(listener)) {
+                Subscription[] remaining = new Subscription[current.length - 1];
+                System.arraycopy(current, 0, remaining, 0, i);
+                System.arraycopy(current, i + 1, remaining, i, current.length - i - 1);
+                subscriptions = remaining;
+                return;
+            }
+        }
+    }
+
+    public void publishAlarmStatus(AlarmStatus status) {
+        Subscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            current[i].post(ALARM_STATUS, status, false);
+        }
+    }
+
+    public void publishCatDetected(boolean catDetected) {
+        Subscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            current[i].post(CAT_DETECTED, null, catDetected);
+        }
+    }
+
+    public void publishSensorStatusChanged() {
+        Subscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            current[i].post(SENSORS_CHANGED, null, false);
+        }
+    }
+
+    /**
+     * Current queue depth and dispatch figures for every registered listener.
+     */
+    public List<DispatchStats> getDispatchStats() {
+        Subscription[] current = subscriptions;
+        List<DispatchStats> stats = new ArrayList<>(current.length);
+        for (Subscription subscription : current) {
+            stats.add(subscription.stats());
+        }
+        return stats;
+    }
+
+    //a listener can only be registered once, however it is delivered to
+    private synchronized void add(Subscription subscription) {
+        Subscription[] current = subscriptions;
+        for (Subscription existing : current) {
+            if (existing.listener.equals(subscription.listener)) {
+                return;
+            }
+        }
+        Subscription[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = subscription;
+        subscriptions = grown;
+    }
+
+    /**
+     * Dispatch figures for one listener. Inline listeners never queue, so their depth and lag are always zero.
+     */
+    public static final class DispatchStats {
+        private final StatusListener listener;
+        private final int queueDepth;
+        private final long deliveredCount;
+        private final long coalescedCount;
+        private final long lastLagNanos;
+        private final long maxLagNanos;
+
+        private DispatchStats(StatusListener listener, int queueDepth, long deliveredCount, long coalescedCount,
+                              long lastLagNanos, long maxLagNanos) {
+            this.listener = listener;
+            this.queueDepth = queueDepth;
+            this.deliveredCount = deliveredCount;
+            this.coalescedCount = coalescedCount;
+            this.lastLagNanos = lastLagNanos;
+            this.maxLagNanos = maxLagNanos;
+        }
+
+        public StatusListener getListener() {
+            return listener;
+        }
+
+        /**
+         * Number of changes waiting to be delivered, at most one per kind.
+         */
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public long getDeliveredCount() {
+            return deliveredCount;
+        }
+
+        /**
+         * Number of changes replaced by a newer change of the same kind before they were delivered.
+         */
+        public long getCoalescedCount() {
+            return coalescedCount;
+        }
+
+        /**
+         * Time between the oldest pending change being published and the latest drain starting, in nanoseconds.
+         */
+        public long getLastLagNanos() {
+            return lastLagNanos;
+        }
+
+        public long getMaxLagNanos() {
+            return maxLagNanos;
+        }
+    }
+
+    private static final class Subscription {
+        private final StatusListener listener;
+        private final Executor executor;
+        //created once, so scheduling a drain does not allocate a new task each time
+        private final Runnable drainTask = this::drain;
+        //inline deliveries are counted without taking the mailbox lock, which they never otherwise need
+        private final AtomicLong inlineDeliveredCount = new AtomicLong();
+
+        //mailbox, guarded by this
+        private int pending;
+        private AlarmStatus alarmStatus;
+        private boolean catDetected;
+        private boolean scheduled;
+        private long oldestPendingNanos;
+        private long deliveredCount;
+        private long coalescedCount;
+        private long lastLagNanos;
+        private long maxLagNanos;
+
+        private Subscription(StatusListener listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+
+        private void post(int kind, AlarmStatus status, boolean cat) {
+            if (executor == null) {
+                inlineDeliveredCount.incrementAndGet();
+                long start = System.nanoTime();
+                try {
+                    deliver(kind, status, cat);
+                } finally {
+                    INLINE_DISPATCH.recordSince(start);
+                }
+                return;
+            }
+
+            synchronized (this) {
+                if ((pending & kind) != 0) {
+                    coalescedCount++;
+                } else if (pending == 0) {
+                    oldestPendingNanos = System.nanoTime();
+                }
+                pending |= kind;
+                if (kind == ALARM_STATUS) {
+                    alarmStatus = status;
+                } else if (kind == CAT_DETECTED) {
+                    catDetected = cat;
+                }
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+
+            try {
+                executor.execute(drainTask);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    scheduled = false;
+                }
+                e.printStackTrace();
+            }
+        }
+
+        private void drain() {
+            int kinds;
+            AlarmStatus status;
+            boolean cat;
+            synchronized (this) {
+                kinds = pending;
+                status = alarmStatus;
+                cat = catDetected;
+                pending = 0;
+                alarmStatus = null;
+                scheduled = false;
+                if (kinds == 0) {
+                    return;
+                }
+                lastLagNanos = System.nanoTime() - oldestPendingNanos;
+                maxLagNanos = Math.max(maxLagNanos, lastLagNanos);
+                deliveredCount += Integer.bitCount(kinds);
+            }
+
+            if ((kinds & ALARM_STATUS) != 0) {
+                deliverQuietly(ALARM_STATUS, status, false);
+            }
+            if ((kinds & CAT_DETECTED) != 0) {
+                deliverQuietly(CAT_DETECTED, null, cat);
+            }
+            if ((kinds & SENSORS_CHANGED) != 0) {
+                deliverQuietly(SENSORS_CHANGED, null, false);
+            }
+        }
+
+        private void deliver(int kind, AlarmStatus status, boolean cat) {
+            if (kind == ALARM_STATUS) {
+                listener.notify(status);
+            } else if (kind == CAT_DETECTED) {
+                listener.catDetected(cat);
+            } else {
+                listener.sensorStatusChanged();
+            }
+        }
+
+        private void deliverQuietly(int kind, AlarmStatus status, boolean cat) {
+            //the executor's thread is shared, so a failing listener is reported instead of thrown
+            long start = System.nanoTime();
+            try {
+                deliver(kind, status, cat);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            } finally {
+                ASYNC_DISPATCH.recordSince(start);
+            }
+        }
+
+        private synchronized DispatchStats stats() {
+            return new DispatchStats(listener, Integer.bitCount(pending), deliveredCount + inlineDeliveredCount.get(),
+                    coalescedCount, lastLagNanos, maxLagNanos);
+        }
+    }
+}
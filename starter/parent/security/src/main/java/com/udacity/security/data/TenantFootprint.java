@@ -0,0 +1,49 @@
+package com.udacity.security.data;
+
+/**
+ * Point-in-time size figures for one loaded tenant of a SecurityServiceRegistry. The byte count is
+ * an estimate built from typical 64-bit object layouts with compressed references, meant for
+ * comparing tenants and spotting growth rather than exact accounting.
+ */
+public final class TenantFootprint {
+    private final String tenantId;
+    private final int sensorCount;
+    private final long estimatedBytes;
+    private final long idleMillis;
+
+    public TenantFootprint(String tenantId, int sensorCount, long estimatedBytes, long idleMillis) {
+        this.tenantId = tenantId;
+        this.sensorCount = sensorCount;
+        this.estimatedBytes = estimatedBytes;
+        this.idleMillis = idleMillis;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public int getSensorCount() {
+        return sensorCount;
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * Time since the tenant was last used, in milliseconds.
+     */
+    public long getIdleMillis() {
+        return idleMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "TenantFootprint{" +
+                "tenantId='" + tenantId + '\'' +
+                ", sensorCount=" + sensorCount +
+                ", estimatedBytes=" + estimatedBytes +
+                ", idleMillis=" + idleMillis +
+                '}';
+    }
+}
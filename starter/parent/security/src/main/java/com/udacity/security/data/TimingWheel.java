@@ -0,0 +1,350 @@
+package com.udacity.security.data;
+
+import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs delayed tasks for any number of SecurityServices from a single thread. Timers are kept in a
+ * hierarchical hashed timing wheel (Varghese and Lauck): eight levels of 256 slots, each level's slot
+ * spanning a full turn of the level below. A timer is linked into the slot for its deadline, so scheduling
+ * and cancelling are O(1) no matter how many timers are pending, and each tick only looks at one slot.
+ * Timers in the upper levels move down a level each time the level below completes a turn.
+ *
+ * Deadlines are rounded up to whole ticks, so a task runs at the earliest on the tick after its delay has
+ * passed and never early. Tasks run on the wheel's thread and must be short; anything slow should be
+ * handed to an executor. The thread starts with the first timer and sleeps while no timer is pending.
+ */
+public class TimingWheel implements AutoCloseable {
+
+    public static final long DEFAULT_TICK_MILLIS = 10;
+
+    private static final int LEVEL_BITS = 8;
+    private static final int SLOTS = 1 << LEVEL_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = Long.SIZE / LEVEL_BITS;
+    //keeps deadline arithmetic far away from overflow, about 70 million years at 1ms ticks
+    private static final long MAX_DELAY_MILLIS = Long.MAX_VALUE >>> 8;
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final long tickMillis;
+    private final LongSupplier clock;
+    private final long startMillis;
+    private final boolean ownsThread;
+
+    //wheel state, guarded by this
+    private final Timeout[] slots = new Timeout[LEVELS * SLOTS];
+    private long currentTick;
+    private int pending;
+    private Thread worker;
+    private boolean closed;
+
+    private final AtomicLong scheduledCount = new AtomicLong();
+    private final AtomicLong cancelledCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+
+    /**
+     * Creates a wheel with 10ms ticks.
+     */
+    public TimingWheel() {
+        this(DEFAULT_TICK_MILLIS);
+    }
+
+    /**
+     * @param tickMillis Resolution of the wheel. Timers fire up to one tick after their deadline.
+     */
+    public TimingWheel(long tickMillis) {
+        this(tickMillis, () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()), true);
+    }
+
+    /**
+     * Creates a wheel read from the provided clock. Without its own thread the wheel only moves when
+     * advanceTo is called, which lets tests step through time.
+     */
+    TimingWheel(long tickMillis, LongSupplier clock, boolean ownsThread) {
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.clock = clock;
+        this.startMillis = clock.getAsLong();
+        this.ownsThread = ownsThread;
+    }
+
+    /**
+     * Wheel shared by every SecurityService that is not given its own.
+     */
+    public static TimingWheel shared() {
+        return SharedHolder.WHEEL;
+    }
+
+    /**
+     * Runs a task once the delay has passed.
+     * @param task Work to run on the wheel's thread
+     * @param delay Time to wait, zero or less to run on the next tick
+     * @return Handle that can cancel the task until it runs
+     * @throws RejectedExecutionException if the wheel has been closed
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        Objects.requireNonNull(task);
+        long delayMillis = Math.min(MAX_DELAY_MILLIS, Math.max(0, unit.toMillis(delay)));
+        Timeout timeout = new Timeout(this, task);
+        synchronized (this) {
+            if (closed) {
+                throw new RejectedExecutionException("Timing wheel is closed");
+            }
+            long nowMillis = clock.getAsLong() - startMillis;
+            if (pending == 0 && nowMillis / tickMillis > currentTick) {
+                //nothing is linked in, so the wheel can skip the ticks it slept through
+                currentTick = nowMillis / tickMillis;
+            }
+            long deadlineMillis = nowMillis + delayMillis;
+            long deadlineTick = (deadlineMillis + tickMillis - 1) / tickMillis;
+            timeout.deadlineTick = Math.max(deadlineTick, currentTick + 1);
+            link(timeout);
+            pending++;
+            if (ownsThread) {
+                startOrWakeWorker();
+            }
+        }
+        scheduledCount.incrementAndGet();
+        return timeout;
+    }
+
+    /**
+     * Number of timers waiting to fire.
+     */
+    public synchronized int getPendingCount() {
+        return pending;
+    }
+
+    public long getScheduledCount() {
+        return scheduledCount.get();
+    }
+
+    public long getCancelledCount() {
+        return cancelledCount.get();
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * Stops the wheel's thread. Pending timers never fire and new ones are refused.
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            closed = true;
+            thread = worker;
+            notifyAll();
+        }
+        if (thread != null && thread != Thread.currentThread()) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Moves the wheel forward to the given time on its clock and runs every timer that has become due,
+     * on the calling thread, in deadline order.
+     */
+    void advanceTo(long nowMillis) {
+        Timeout due = null;
+        Timeout last = null;
+        synchronized (this) {
+            long targetTick = (nowMillis - startMillis) / tickMillis;
+            while (currentTick < targetTick && pending > 0) {
+                currentTick++;
+                cascade();
+                int slot = (int) (currentTick & SLOT_MASK);
+                Timeout expired = slots[slot];
+                slots[slot] = null;
+                //the due timers are chained through their own links, so collecting them allocates nothing
+                for (Timeout timeout = expired; timeout != null; timeout = timeout.next) {
+                    timeout.state = EXPIRED;
+                    timeout.slot = -1;
+                    timeout.prev = last;
+                    pending--;
+                    last = timeout;
+                }
+                if (expired != null) {
+                    if (due == null) {
+                        due = expired;
+                    } else {
+                        expired.prev.next = expired;
+                    }
+                }
+            }
+            if (pending == 0 && currentTick < targetTick) {
+                currentTick = targetTick;
+            }
+        }
+
+        while (due != null) {
+            Timeout next = due.next;
+            due.next = null;
+            due.prev = null;
+            expiredCount.incrementAndGet();
+            try {
+                due.task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+            due = next;
+        }
+    }
+
+    private synchronized boolean cancel(Timeout timeout) {
+        if (timeout.state != PENDING) {
+            return false;
+        }
+        unlink(timeout);
+        timeout.state = CANCELLED;
+        pending--;
+        cancelledCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Moves the timers of every upper level slot whose turn has come down to the levels below. Called
+     * under the lock after currentTick has moved.
+     */
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            if (((currentTick >>> (LEVEL_BITS * (level - 1))) & SLOT_MASK) != 0) {
+                return;
+            }
+            int slot = level * SLOTS + (int) ((currentTick >>> (LEVEL_BITS * level)) & SLOT_MASK);
+            Timeout timeout = slots[slot];
+            slots[slot] = null;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                link(timeout);
+                timeout = next;
+            }
+        }
+    }
+
+    /**
+     * Links a timer into the slot for its deadline, at the lowest level whose turn reaches it.
+     */
+    private void link(Timeout timeout) {
+        long delta = timeout.deadlineTick - currentTick;
+        int level = delta <= 0 ? 0 : (Long.SIZE - 1 - Long.numberOfLeadingZeros(delta)) / LEVEL_BITS;
+        int slot = level * SLOTS + (int) ((timeout.deadlineTick >>> (LEVEL_BITS * level)) & SLOT_MASK);
+        Timeout head = slots[slot];
+        timeout.slot = slot;
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        slots[slot] = timeout;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev == null) {
+            slots[timeout.slot] = timeout.next;
+        } else {
+            timeout.prev.next = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.slot = -1;
+    }
+
+    private void startOrWakeWorker() {
+        if (worker == null) {
+            worker = new Thread(this::work, "timing-wheel");
+            worker.setDaemon(true);
+            worker.start();
+        } else if (pending == 1) {
+            notifyAll();
+        }
+    }
+
+    private void work() {
+        try {
+            while (true) {
+                synchronized (this) {
+                    while (!closed && pending == 0) {
+                        wait();
+                    }
+                    if (closed) {
+                        return;
+                    }
+                    long untilNextTick = startMillis + (currentTick + 1) * tickMillis - clock.getAsLong();
+                    if (untilNextTick > 0) {
+                        wait(untilNextTick);
+                        continue;
+                    }
+                }
+                advanceTo(clock.getAsLong());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A scheduled task. Cancelling it unlinks it from the wheel straight away.
+     */
+    public static final class Timeout {
+        private final TimingWheel wheel;
+        private final Runnable task;
+
+        //position in the wheel, guarded by the wheel
+        private long deadlineTick;
+        private int slot = -1;
+        private Timeout prev;
+        private Timeout next;
+        private volatile int state = PENDING;
+
+        private Timeout(TimingWheel wheel, Runnable task) {
+            this.wheel = wheel;
+            this.task = task;
+        }
+
+        /**
+         * Stops the task from running.
+         * @return True if the task had not run or been cancelled yet
+         */
+        public boolean cancel() {
+            return wheel.cancel(this);
+        }
+
+        public boolean isPending() {
+            return state == PENDING;
+        }
+
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+    }
+
+    private static final class SharedHolder {
+        private static final TimingWheel WHEEL = new TimingWheel();
+    }
+}
@@ -0,0 +1,14 @@
+package com.udacity.security.headless;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Camera stream that delivers frames one at a time.
+ */
+public interface CameraFeed {
+    /**
+     * Blocks until the camera has a new frame.
+     * @return The next frame, or null once the stream has ended
+     */
+    BufferedImage nextFrame() throws InterruptedException;
+}
@@ -0,0 +1,135 @@
+package com.udacity.security.headless;
+
+import com.udacity.security.data.SecurityService;
+import com.udacity.security.data.SensorEvent;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the security system without the Swing interface. Every sensor connection and camera stream is
+ * a session that loops on its own thread: it blocks on its feed, then applies what it read to the
+ * SecurityService with the ordinary blocking calls. Camera frames go through processImage, so the
+ * ImageService call blocks the session, not a shared pool.
+ *
+ * With the default executor these are virtual threads on Java 21 and later, so tens of thousands of
+ * mostly idle sessions cost little more than their stacks. The SecurityService never calls the
+ * ImageService while holding a lock, and its own locks are java.util.concurrent locks rather than
+ * monitors, so waiting on image analysis or on another session does not pin a carrier. Repositories
+ * that write inside synchronized blocks, such as the JDBC and binary file stores, still pin the
+ * carrier for the length of each write.
+ */
+public class HeadlessRuntime implements AutoCloseable {
+
+    private final SecurityService securityService;
+    private final ExecutorService sessionExecutor;
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final AtomicLong sensorEventCount = new AtomicLong();
+    private final AtomicLong frameCount = new AtomicLong();
+    private final AtomicLong failedSessionCount = new AtomicLong();
+
+    /**
+     * Creates a runtime that runs each session on its own thread, virtual when the JVM supports it.
+     */
+    public HeadlessRuntime(SecurityService securityService) {
+        this(securityService, SessionExecutors.newSessionExecutor());
+    }
+
+    /**
+     * Creates a runtime that runs sessions on the provided executor. The executor is shut down with the runtime.
+     * @param sessionExecutor Runs one long-lived task per session
+     */
+    public HeadlessRuntime(SecurityService securityService, ExecutorService sessionExecutor) {
+        this.securityService = securityService;
+        this.sessionExecutor = sessionExecutor;
+    }
+
+    /**
+     * Starts applying sensor changes from the feed until it reports the end of the connection.
+     * @return Future that completes when the session ends
+     */
+    public Future<?> startSensorSession(SensorFeed feed) {
+        return sessionExecutor.submit(() -> runSession(() -> {
+            SensorEvent event;
+            while ((event = feed.take()) != null) {
+                securityService.changeSensorActivationStatus(event.getSensor(), event.getActive());
+                sensorEventCount.incrementAndGet();
+            }
+        }));
+    }
+
+    /**
+     * Starts scanning frames from the camera until the stream ends.
+     * @return Future that completes when the session ends
+     */
+    public Future<?> startCameraSession(CameraFeed feed) {
+        return sessionExecutor.submit(() -> runSession(() -> {
+            BufferedImage frame;
+            while ((frame = feed.nextFrame()) != null) {
+                securityService.processImage(frame);
+                frameCount.incrementAndGet();
+            }
+        }));
+    }
+
+    public SecurityService getSecurityService() {
+        return securityService;
+    }
+
+    /**
+     * Number of sessions currently running.
+     */
+    public int getActiveSessionCount() {
+        return activeSessions.get();
+    }
+
+    public long getSensorEventCount() {
+        return sensorEventCount.get();
+    }
+
+    public long getFrameCount() {
+        return frameCount.get();
+    }
+
+    /**
+     * Number of sessions that ended because applying an update threw.
+     */
+    public long getFailedSessionCount() {
+        return failedSessionCount.get();
+    }
+
+    /**
+     * Interrupts every running session and waits briefly for them to stop.
+     */
+    @Override
+    public void close() {
+        sessionExecutor.shutdownNow();
+        try {
+            sessionExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runSession(SessionLoop loop) {
+        activeSessions.incrementAndGet();
+        try {
+            loop.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            failedSessionCount.incrementAndGet();
+            e.printStackTrace();
+        } finally {
+            activeSessions.decrementAndGet();
+        }
+    }
+
+    private interface SessionLoop {
+        void run() throws InterruptedException;
+    }
+}
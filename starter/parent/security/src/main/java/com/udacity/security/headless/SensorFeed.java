@@ -0,0 +1,14 @@
+package com.udacity.security.headless;
+
+import com.udacity.security.data.SensorEvent;
+
+/**
+ * Connection to a sensor that delivers its state changes one at a time.
+ */
+public interface SensorFeed {
+    /**
+     * Blocks until the sensor reports a change.
+     * @return The next change, or null once the connection is closed
+     */
+    SensorEvent take() throws InterruptedException;
+}
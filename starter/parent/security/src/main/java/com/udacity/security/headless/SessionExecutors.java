@@ -0,0 +1,51 @@
+package com.udacity.security.headless;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executors for HeadlessRuntime sessions. Each session spends most of its time blocked on its feed,
+ * the ImageService or the repository, so a thread per session is the natural fit. On Java 21 and later
+ * those threads are virtual and park without holding a platform thread; on older runtimes a cached
+ * pool of daemon platform threads is used instead.
+ */
+public final class SessionExecutors {
+
+    private SessionExecutors() {
+    }
+
+    /**
+     * Runs every session on its own virtual thread when the runtime supports them, otherwise on its own
+     * platform thread.
+     */
+    public static ExecutorService newSessionExecutor() {
+        //looked up reflectively so the project still builds for its Java 14 target
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return newPlatformSessionExecutor();
+        }
+    }
+
+    /**
+     * Runs every session on its own daemon platform thread.
+     */
+    public static ExecutorService newPlatformSessionExecutor() {
+        return Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "headless-session");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static boolean isVirtualThreadAvailable() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
@@ -4,7 +4,9 @@ module security {
     requires com.google.gson;
     requires java.prefs;
     requires image;
+    requires metrics;
     requires com.miglayout.swing;
     requires java.sql;
+    requires jdk.jfr;
     opens com.udacity.security.data to com.google.gson;
 }
\ No newline at end of file
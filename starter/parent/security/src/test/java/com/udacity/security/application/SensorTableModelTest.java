@@ -0,0 +1,142 @@
+package com.udacity.security.application;
+
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.event.TableModelEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+class SensorTableModelTest {
+
+    private final SensorTableModel model = new SensorTableModel();
+    private final List<TableModelEvent> events = new ArrayList<>();
+
+    private final Sensor door = new Sensor("Door", SensorType.DOOR);
+    private final Sensor motion = new Sensor("Hall", SensorType.MOTION);
+    private final Sensor window = new Sensor("Kitchen", SensorType.WINDOW);
+
+    @BeforeEach
+    void init() {
+        model.refresh(List.of(door, window));
+        model.addTableModelListener(events::add);
+    }
+
+    private static void assertEvent(TableModelEvent event, int type, int firstRow, int lastRow) {
+        Assertions.assertEquals(type, event.getType());
+        Assertions.assertEquals(firstRow, event.getFirstRow());
+        Assertions.assertEquals(lastRow, event.getLastRow());
+        Assertions.assertEquals(TableModelEvent.ALL_COLUMNS, event.getColumn());
+    }
+
+    /**
+     * A sensor added between two others is reported as one inserted row.
+     */
+    @Test
+    void addedSensorInsertsOneRow() {
+        // When
+        model.refresh(List.of(door, motion, window));
+
+        // Then
+        Assertions.assertEquals(1, events.size());
+        assertEvent(events.get(0), TableModelEvent.INSERT, 1, 1);
+        Assertions.assertEquals(3, model.getRowCount());
+        Assertions.assertSame(motion, model.getSensorAt(1));
+        Assertions.assertEquals("Hall(MOTION): Inactive", model.getValueAt(1, SensorTableModel.SENSOR_COLUMN));
+    }
+
+    /**
+     * A removed sensor is reported as one deleted row.
+     */
+    @Test
+    void removedSensorDeletesOneRow() {
+        // When
+        model.refresh(List.of(window));
+
+        // Then
+        Assertions.assertEquals(1, events.size());
+        assertEvent(events.get(0), TableModelEvent.DELETE, 0, 0);
+        Assertions.assertEquals(1, model.getRowCount());
+        Assertions.assertSame(window, model.getSensorAt(0));
+    }
+
+    /**
+     * Removing the last sensor deletes every row, and adding sensors to an empty table inserts them all.
+     */
+    @Test
+    void emptyingAndRefillingTheTable() {
+        // When
+        model.refresh(List.of());
+        model.refresh(List.of(door, motion));
+
+        // Then
+        Assertions.assertEquals(2, events.size());
+        assertEvent(events.get(0), TableModelEvent.DELETE, 0, 1);
+        assertEvent(events.get(1), TableModelEvent.INSERT, 0, 1);
+    }
+
+    /**
+     * Toggling a sensor repaints only its row, and the toggle cell then offers the opposite action.
+     */
+    @Test
+    void toggledSensorUpdatesOnlyItsRow() {
+        // Given
+        Assertions.assertEquals("Activate", model.getValueAt(1, SensorTableModel.TOGGLE_COLUMN));
+
+        // When - The same list comes back with the window active
+        window.setActive(true);
+        model.refresh(List.of(door, window));
+
+        // Then
+        Assertions.assertEquals(1, events.size());
+        assertEvent(events.get(0), TableModelEvent.UPDATE, 1, 1);
+        Assertions.assertEquals("Deactivate", model.getValueAt(1, SensorTableModel.TOGGLE_COLUMN));
+        Assertions.assertEquals("Kitchen(WINDOW): Active", model.getValueAt(1, SensorTableModel.SENSOR_COLUMN));
+        Assertions.assertEquals("Activate", model.getValueAt(0, SensorTableModel.TOGGLE_COLUMN));
+    }
+
+    /**
+     * A refresh with nothing changed fires no events.
+     */
+    @Test
+    void unchangedSensorsFireNothing() {
+        // When
+        model.refresh(new ArrayList<>(List.of(door, window)));
+
+        // Then
+        Assertions.assertTrue(events.isEmpty());
+    }
+
+    /**
+     * A sensor that toggles in the same refresh that adds another still has its row repainted.
+     */
+    @Test
+    void keptRowThatToggledIsUpdatedAlongsideAnInsert() {
+        // When
+        door.setActive(true);
+        model.refresh(List.of(door, motion, window));
+
+        // Then
+        Assertions.assertEquals(2, events.size());
+        assertEvent(events.get(0), TableModelEvent.INSERT, 1, 1);
+        assertEvent(events.get(1), TableModelEvent.UPDATE, 0, 0);
+        Assertions.assertEquals("Deactivate", model.getValueAt(0, SensorTableModel.TOGGLE_COLUMN));
+    }
+
+    /**
+     * A list that differs in a way that is not a single insert, delete or replacement is reported as a full change.
+     */
+    @Test
+    void reorderedRowsAreAFullChange() {
+        // When
+        model.refresh(List.of(window, motion, door));
+
+        // Then
+        Assertions.assertEquals(1, events.size());
+        assertEvent(events.get(0), TableModelEvent.UPDATE, 0, Integer.MAX_VALUE);
+        Assertions.assertEquals(3, model.getRowCount());
+    }
+}
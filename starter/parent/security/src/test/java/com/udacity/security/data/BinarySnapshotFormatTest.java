@@ -0,0 +1,79 @@
+package com.udacity.security.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+class BinarySnapshotFormatTest {
+
+    private List<Sensor> generateSensors(int count) {
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Sensor sensor = new Sensor("Sensor " + i, SensorType.values()[i % SensorType.values().length]);
+            sensor.setActive(i % 3 == 0);
+            sensors.add(sensor);
+        }
+        return sensors;
+    }
+
+    private void assertSameSensors(List<Sensor> expected, List<Sensor> actual) {
+        Assertions.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assertions.assertEquals(expected.get(i).toString(), actual.get(i).toString());
+        }
+    }
+
+    /**
+     * Every sensor field and both statuses survive an encode and read.
+     */
+    @Test
+    void encodedStateIsReadBackUnchanged() throws IOException {
+        // Given - Eleven sensors, so the active flags span more than one byte
+        List<Sensor> sensors = generateSensors(11);
+        SecurityState state = new SecurityState(sensors, AlarmStatus.PENDING_ALARM, ArmingStatus.ARMED_AWAY);
+
+        // When
+        SecurityState read = BinarySnapshotFormat.read(new ByteArrayInputStream(BinarySnapshotFormat.encode(state)));
+
+        // Then
+        Assertions.assertEquals(AlarmStatus.PENDING_ALARM, read.getAlarmStatus());
+        Assertions.assertEquals(ArmingStatus.ARMED_AWAY, read.getArmingStatus());
+        assertSameSensors(sensors, read.getSensors());
+    }
+
+    /**
+     * Data that does not start with the snapshot header is refused.
+     */
+    @Test
+    void dataWithoutHeaderIsRejected() {
+        Assertions.assertThrows(IOException.class,
+                () -> BinarySnapshotFormat.read(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8})));
+    }
+
+    /**
+     * The file store keeps the latest sensors when only the statuses change afterwards.
+     */
+    @Test
+    void fileStoreReloadsSensorsAndStatuses(@TempDir Path directory) {
+        // Given
+        List<Sensor> sensors = generateSensors(3);
+        BinaryFileSecurityStateStore store = new BinaryFileSecurityStateStore(directory.resolve("sensors.bin"));
+
+        // When - Sensors are saved before the statuses
+        store.saveSensors(sensors);
+        store.saveAlarmStatus(AlarmStatus.ALARM);
+        store.saveArmingStatus(ArmingStatus.ARMED_HOME);
+        SecurityState loaded = new BinaryFileSecurityStateStore(directory.resolve("sensors.bin")).load();
+
+        // Then
+        Assertions.assertEquals(AlarmStatus.ALARM, loaded.getAlarmStatus());
+        Assertions.assertEquals(ArmingStatus.ARMED_HOME, loaded.getArmingStatus());
+        assertSameSensors(sensors, loaded.getSensors());
+    }
+}
@@ -0,0 +1,87 @@
+package com.udacity.security.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class ColumnarSecurityRepositoryImplTest {
+
+    /**
+     * Removing a sensor from the middle keeps every other sensor reachable by id with its own fields.
+     */
+    @Test
+    void removingASensorKeepsTheOthersIntact() {
+        // Given - Three sensors, the last one active
+        ColumnarSecurityRepositoryImpl repository = new ColumnarSecurityRepositoryImpl();
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        Sensor window = new Sensor("Window", SensorType.WINDOW);
+        Sensor motion = new Sensor("Motion", SensorType.MOTION);
+        motion.setActive(true);
+        repository.updateSensors(List.of(door, window, motion));
+
+        // When - The first one is removed
+        repository.removeSensor(door);
+
+        // Then
+        Assertions.assertEquals(2, repository.getSensors().size());
+        Assertions.assertFalse(repository.getSensors().contains(door));
+        Assertions.assertTrue(repository.getSensors().contains(motion));
+        Sensor restored = repository.getSortedSensors().get(0);
+        Assertions.assertEquals(motion.getSensorId(), restored.getSensorId());
+        Assertions.assertEquals("Motion", restored.getName());
+        Assertions.assertTrue(restored.getActive());
+        Assertions.assertEquals(1, repository.getActiveSensorCount(SensorType.MOTION));
+    }
+
+    /**
+     * Whole-estate checks follow activation changes, and sensors sharing a name share one pool entry.
+     */
+    @Test
+    void activationChecksFollowSensorChanges() {
+        // Given - Two active sensors with the same name
+        ColumnarSecurityRepositoryImpl repository = new ColumnarSecurityRepositoryImpl();
+        Sensor first = new Sensor("Hall", SensorType.MOTION);
+        Sensor second = new Sensor("Hall", SensorType.MOTION);
+        first.setActive(true);
+        second.setActive(true);
+        repository.addSensor(first);
+        repository.addSensor(second);
+        Assertions.assertTrue(repository.areSensorsArmed());
+        Assertions.assertEquals(1, repository.getDistinctNameCount());
+
+        // When - One is deactivated, then all of them
+        second.setActive(false);
+        repository.updateSensor(second);
+        boolean armedAfterOne = repository.areSensorsArmed();
+        repository.setAllSensorsInactive();
+
+        // Then
+        Assertions.assertFalse(armedAfterOne);
+        Assertions.assertFalse(repository.anySensorActive());
+        Assertions.assertTrue(repository.getSensors().stream().noneMatch(Sensor::getActive));
+    }
+
+    /**
+     * A sensor without a name can be stored, updated and renamed like any other.
+     */
+    @Test
+    void sensorWithoutANameCanBeUpdated() {
+        // Given
+        ColumnarSecurityRepositoryImpl repository = new ColumnarSecurityRepositoryImpl();
+        Sensor sensor = new Sensor(null, SensorType.DOOR);
+        repository.addSensor(sensor);
+
+        // When
+        sensor.setActive(true);
+        repository.updateSensor(sensor);
+        sensor.setName("Door");
+        repository.updateSensor(sensor);
+
+        // Then
+        Sensor restored = repository.getSensors().iterator().next();
+        Assertions.assertEquals("Door", restored.getName());
+        Assertions.assertTrue(restored.getActive());
+        Assertions.assertEquals(1, repository.getDistinctNameCount());
+    }
+}
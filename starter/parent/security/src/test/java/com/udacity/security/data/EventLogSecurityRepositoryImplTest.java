@@ -0,0 +1,67 @@
+package com.udacity.security.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+class EventLogSecurityRepositoryImplTest {
+
+    /**
+     * Changes survive a restart, whether they were compacted into the snapshot or are still in the log.
+     */
+    @Test
+    void reopenedRepositoryRecoversSnapshotAndLogTail(@TempDir Path directory) {
+        // Given - A repository that compacts every four records
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        Sensor window = new Sensor("Window", SensorType.WINDOW);
+        try (EventLogSecurityRepositoryImpl repository = new EventLogSecurityRepositoryImpl(directory, 4, false)) {
+            // When - Enough changes are made to trigger a compaction, with more after it
+            repository.addSensor(door);
+            repository.addSensor(window);
+            repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+            window.setActive(true);
+            repository.updateSensor(window);
+            repository.removeSensor(door);
+            repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+
+            Assertions.assertEquals(1, repository.getCompactionCount());
+        }
+
+        // Then - Everything is restored
+        try (EventLogSecurityRepositoryImpl reopened = new EventLogSecurityRepositoryImpl(directory, 4, false)) {
+            Assertions.assertEquals(ArmingStatus.ARMED_HOME, reopened.getArmingStatus());
+            Assertions.assertEquals(AlarmStatus.PENDING_ALARM, reopened.getAlarmStatus());
+            Assertions.assertEquals(1, reopened.getSensors().size());
+            Sensor restored = reopened.getSensors().iterator().next();
+            Assertions.assertEquals(window.getSensorId(), restored.getSensorId());
+            Assertions.assertTrue(restored.getActive());
+        }
+    }
+
+    /**
+     * A record cut short by a crash is dropped and the log is truncated to the last complete record.
+     */
+    @Test
+    void tornRecordAtEndOfLogIsDiscarded(@TempDir Path directory) throws IOException {
+        // Given - A log with one complete record followed by a partial one
+        long completeLength;
+        try (EventLogSecurityRepositoryImpl repository = new EventLogSecurityRepositoryImpl(directory)) {
+            repository.addSensor(new Sensor("Door", SensorType.DOOR));
+            completeLength = repository.getLogSize();
+        }
+        Files.write(directory.resolve("events.log"), new byte[] {0, 0, 0, 40, 3, 1}, StandardOpenOption.APPEND);
+
+        // When
+        try (EventLogSecurityRepositoryImpl reopened = new EventLogSecurityRepositoryImpl(directory)) {
+            // Then
+            Assertions.assertEquals(1, reopened.getSensors().size());
+            Assertions.assertEquals(completeLength, reopened.getLogSize());
+            Assertions.assertEquals(completeLength, Files.size(directory.resolve("events.log")));
+        }
+    }
+}
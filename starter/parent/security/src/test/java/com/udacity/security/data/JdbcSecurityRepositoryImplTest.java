@@ -0,0 +1,107 @@
+package com.udacity.security.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+class JdbcSecurityRepositoryImplTest {
+
+    private static String url(Path directory) {
+        return "jdbc:h2:file:" + directory.resolve("catpoint").toAbsolutePath();
+    }
+
+    /**
+     * Sensors and status written through the repository are read back from the database after a restart.
+     */
+    @Test
+    void reopenedRepositoryRestoresSensorsAndStatus(@TempDir Path directory) {
+        // Given
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        Sensor window = new Sensor("Window", SensorType.WINDOW);
+        try (JdbcSecurityRepositoryImpl repository = new JdbcSecurityRepositoryImpl(url(directory))) {
+            // When
+            repository.addSensor(door);
+            repository.addSensor(window);
+            window.setActive(true);
+            repository.updateSensor(window);
+            repository.removeSensor(door);
+            repository.setArmingStatus(ArmingStatus.ARMED_AWAY);
+            repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        }
+
+        // Then
+        try (JdbcSecurityRepositoryImpl reopened = new JdbcSecurityRepositoryImpl(url(directory))) {
+            Assertions.assertEquals(ArmingStatus.ARMED_AWAY, reopened.getArmingStatus());
+            Assertions.assertEquals(AlarmStatus.PENDING_ALARM, reopened.getAlarmStatus());
+            Assertions.assertEquals(1, reopened.getSensors().size());
+            Sensor restored = reopened.getSensors().iterator().next();
+            Assertions.assertEquals(window.getSensorId(), restored.getSensorId());
+            Assertions.assertEquals("Window", restored.getName());
+            Assertions.assertTrue(restored.getActive());
+        }
+    }
+
+    /**
+     * A batch larger than one JDBC batch, including sensors not stored yet, is written in one transaction,
+     * and deactivating every sensor is persisted.
+     */
+    @Test
+    void largeBatchIsWrittenInOneTransaction(@TempDir Path directory) {
+        // Given - 2,500 sensors that were never added individually
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < 2_500; i++) {
+            Sensor sensor = new Sensor("Sensor " + i, SensorType.MOTION);
+            sensor.setActive(true);
+            sensors.add(sensor);
+        }
+        try (JdbcSecurityRepositoryImpl repository = new JdbcSecurityRepositoryImpl(url(directory))) {
+            // When
+            repository.updateSensors(sensors);
+            Assertions.assertEquals(1, repository.getTransactionCount());
+            repository.setAllSensorsInactive();
+            Assertions.assertEquals(2, repository.getTransactionCount());
+        }
+
+        // Then
+        try (JdbcSecurityRepositoryImpl reopened = new JdbcSecurityRepositoryImpl(url(directory))) {
+            Assertions.assertEquals(2_500, reopened.getSensors().size());
+            Assertions.assertTrue(reopened.getSensors().stream().noneMatch(Sensor::getActive));
+        }
+    }
+
+    /**
+     * Writes that fail to commit leave the in-memory copy and the sensors as they were.
+     */
+    @Test
+    void failedWritesLeaveTheCachedStateUnchanged(@TempDir Path directory) {
+        // Given - An armed repository whose connection has gone away
+        JdbcSecurityRepositoryImpl repository = new JdbcSecurityRepositoryImpl(url(directory));
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        door.setActive(true);
+        repository.addSensor(door);
+        repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+        repository.close();
+
+        // When
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> repository.addSensor(new Sensor("Window", SensorType.WINDOW)));
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> repository.setAlarmStatus(AlarmStatus.ALARM));
+        Assertions.assertThrows(IllegalStateException.class, repository::setAllSensorsInactive);
+        Assertions.assertThrows(IllegalStateException.class, () -> repository.mutate(state -> {
+            state.setAllSensorsInactive();
+            state.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        }));
+        Assertions.assertThrows(IllegalStateException.class, () -> repository.removeSensor(door));
+
+        // Then
+        Assertions.assertEquals(List.of(door), new ArrayList<>(repository.getSensors()));
+        Assertions.assertTrue(door.getActive());
+        Assertions.assertEquals(AlarmStatus.NO_ALARM, repository.getAlarmStatus());
+        Assertions.assertEquals(ArmingStatus.ARMED_HOME, repository.getArmingStatus());
+    }
+}
@@ -0,0 +1,125 @@
+package com.udacity.security.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+class PretendDatabaseSecurityRepositoryImplTest {
+
+    private final RecordingStore store = new RecordingStore();
+
+    /**
+     * Write-behind folds changes into one snapshot, which close writes before returning.
+     */
+    @Test
+    void writeBehindCoalescesChangesUntilClose() {
+        // Given - A threshold and interval that are never reached during the test
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(store, 100, TimeUnit.HOURS.toMillis(1));
+        Sensor sensor = new Sensor("Door", SensorType.DOOR);
+        repository.addSensor(sensor);
+
+        // When - Five changes, then close
+        for (int i = 0; i < 4; i++) {
+            sensor.setActive(i % 2 == 0);
+            repository.updateSensor(sensor);
+        }
+        Assertions.assertTrue(store.snapshots.isEmpty());
+        repository.close();
+
+        // Then - One snapshot holding the latest state
+        Assertions.assertEquals(1, store.snapshots.size());
+        Assertions.assertEquals(1, repository.getFlushCount());
+        Assertions.assertEquals(4, repository.getCoalescedWriteCount());
+        Assertions.assertFalse(store.snapshots.get(0).get(0).getActive());
+    }
+
+    /**
+     * Reaching the threshold writes a snapshot without waiting for the interval.
+     */
+    @Test
+    void writeBehindFlushesOnceThresholdIsReached() throws Exception {
+        // Given
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(store, 3, TimeUnit.HOURS.toMillis(1));
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            repository.addSensor(new Sensor("Sensor " + i, SensorType.WINDOW));
+        }
+
+        // Then
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (repository.getFlushCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(1, repository.getFlushCount());
+        Assertions.assertEquals(3, store.snapshots.get(0).size());
+        repository.close();
+    }
+
+    /**
+     * Changes made after close are written straight through instead of being queued or rejected.
+     */
+    @Test
+    void changesAfterCloseAreWrittenStraightThrough() {
+        // Given
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(store, 1, TimeUnit.HOURS.toMillis(1));
+        repository.close();
+
+        // When
+        repository.addSensor(new Sensor("Door", SensorType.DOOR));
+
+        // Then
+        Assertions.assertEquals(1, store.snapshots.size());
+        Assertions.assertEquals(1, store.snapshots.get(0).size());
+    }
+
+    /**
+     * A sensor renamed in place moves to its new position once it is updated.
+     */
+    @Test
+    void renamedSensorIsResorted() {
+        // Given
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(store);
+        Sensor door = new Sensor("A door", SensorType.DOOR);
+        Sensor window = new Sensor("B window", SensorType.WINDOW);
+        repository.addSensor(door);
+        repository.addSensor(window);
+        Assertions.assertEquals(List.of(door, window), repository.getSortedSensors());
+
+        // When
+        door.setName("C door");
+        repository.updateSensor(door);
+
+        // Then
+        Assertions.assertEquals(List.of(window, door), repository.getSortedSensors());
+    }
+
+    /**
+     * Keeps every sensor snapshot it is handed.
+     */
+    private static final class RecordingStore implements SecurityStateStore {
+        private final List<List<Sensor>> snapshots = new ArrayList<>();
+
+        @Override
+        public SecurityState load() {
+            return SecurityState.empty();
+        }
+
+        @Override
+        public synchronized void saveSensors(Collection<Sensor> sensors) {
+            snapshots.add(new ArrayList<>(sensors));
+        }
+
+        @Override
+        public void saveAlarmStatus(AlarmStatus alarmStatus) {
+        }
+
+        @Override
+        public void saveArmingStatus(ArmingStatus armingStatus) {
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.udacity.security.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+class SecurityServiceRegistryTest {
+
+    /**
+     * Tenants are loaded on first use and do not see each other's sensors or status.
+     */
+    @Test
+    void tenantsAreLoadedLazilyAndIsolated(@TempDir Path directory) {
+        try (SecurityServiceRegistry registry = new SecurityServiceRegistry(
+                SecurityServiceRegistry.fileBackedRepositories(directory), (image, threshold) -> false, 2, 0)) {
+            // Given
+            Assertions.assertEquals(0, registry.getLoadedCount());
+
+            // When
+            registry.submit("home-a", service -> {
+                service.addSensor(new Sensor("Door", SensorType.DOOR));
+                service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+                return null;
+            }).join();
+            int sensorsInB = registry.submit("home-b", service -> service.getSensors().size()).join();
+            ArmingStatus armingInB = registry.submit("home-b", SecurityService::getArmingStatus).join();
+
+            // Then
+            Assertions.assertEquals(2, registry.getLoadedCount());
+            Assertions.assertEquals(0, sensorsInB);
+            Assertions.assertEquals(ArmingStatus.DISARMED, armingInB);
+
+            List<TenantFootprint> footprints = registry.getFootprints().join();
+            Assertions.assertEquals(2, footprints.size());
+            TenantFootprint homeA = footprints.stream().filter(f -> f.getTenantId().equals("home-a")).findFirst().orElseThrow();
+            Assertions.assertEquals(1, homeA.getSensorCount());
+            Assertions.assertTrue(homeA.getEstimatedBytes() > 0);
+        }
+    }
+
+    /**
+     * An evicted tenant is reloaded from its own storage on next use.
+     */
+    @Test
+    void evictedTenantIsReloadedFromStorage(@TempDir Path directory) {
+        try (SecurityServiceRegistry registry = new SecurityServiceRegistry(
+                SecurityServiceRegistry.fileBackedRepositories(directory), (image, threshold) -> false, 2, 0)) {
+            // Given
+            registry.submit("home-a", service -> {
+                service.addSensor(new Sensor("Window", SensorType.WINDOW));
+                return null;
+            }).join();
+
+            // When
+            Assertions.assertTrue(registry.evict("home-a").join());
+            int sensors = registry.submit("home-a", service -> service.getSensors().size()).join();
+
+            // Then
+            Assertions.assertEquals(1, sensors);
+            Assertions.assertEquals(2, registry.getLoadCount());
+            Assertions.assertEquals(1, registry.getEvictionCount());
+        }
+    }
+
+    /**
+     * Tenant ids become file names, so anything outside the allowed characters is refused.
+     */
+    @Test
+    void invalidTenantIdIsRejected(@TempDir Path directory) {
+        try (SecurityServiceRegistry registry = new SecurityServiceRegistry(
+                SecurityServiceRegistry.fileBackedRepositories(directory), (image, threshold) -> false, 1, 0)) {
+            Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> registry.submit("../escape", SecurityService::getArmingStatus));
+        }
+    }
+
+    /**
+     * An action that throws an Error still completes its future, and invalid tenant ids are refused.
+     */
+    @Test
+    void failuresAreReportedThroughTheFuture(@TempDir Path directory) {
+        try (SecurityServiceRegistry registry = new SecurityServiceRegistry(
+                SecurityServiceRegistry.fileBackedRepositories(directory), (image, threshold) -> false, 1, 0)) {
+            // When
+            CompletableFuture<Object> failed = registry.submit("home-a", service -> {
+                throw new AssertionError("boom");
+            });
+
+            // Then
+            CompletionException error = Assertions.assertThrows(CompletionException.class, () -> failed.orTimeout(10, TimeUnit.SECONDS).join());
+            Assertions.assertTrue(error.getCause() instanceof AssertionError);
+            Assertions.assertThrows(IllegalArgumentException.class, () -> registry.evict(null));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> registry.evict("../home-a"));
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.udacity.security.data;
 
 import com.udacity.image.service.ImageService;
+import com.udacity.security.application.StatusListener;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
 
@@ -14,7 +15,22 @@ import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 
 import java.awt.image.BufferedImage;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static org.mockito.Mockito.*;
@@ -311,4 +327,357 @@ class SecurityServiceTest {
         verify(securityRepository, times(1))
                 .setAlarmStatus(AlarmStatus.ALARM);
     }
-}
\ No newline at end of file
+
+    /**
+     * Sensor counters follow sensors being added, toggled and removed without rescanning the repository.
+     */
+    @Test
+    void sensorCountersTrackActivationChangesPerSensorType() {
+        // Given - An empty repository
+        var window = new Sensor("Window", SensorType.WINDOW);
+
+        // When - Two sensors are added and one of them is activated
+        this.securityService.addSensor(this.sensor);
+        this.securityService.addSensor(window);
+        this.securityService.changeSensorActivationStatus(window, window.getActive());
+
+        // Then - Only the activated sensor is counted as active
+        Assertions.assertEquals(0, this.securityService.getActiveSensorCount(SensorType.DOOR));
+        Assertions.assertEquals(1, this.securityService.getInactiveSensorCount(SensorType.DOOR));
+        Assertions.assertEquals(1, this.securityService.getActiveSensorCount(SensorType.WINDOW));
+
+        // When - The active sensor is removed
+        this.securityService.removeSensor(window);
+
+        // Then - Its counter drops back to zero
+        Assertions.assertEquals(0, this.securityService.getActiveSensorCount(SensorType.WINDOW));
+        Assertions.assertEquals(0, this.securityService.getInactiveSensorCount(SensorType.WINDOW));
+    }
+
+    /**
+     * Images scanned asynchronously update the alarm status once the analysis completes.
+     */
+    @Test
+    void ifImageScannedAsynchronouslyContainsACatWhileArmedHome_setAlarmStatusToAlarm() throws Exception {
+        // Given - System is armed-home and the image is a cat
+        when(this.securityRepository.getArmingStatus())
+                .thenReturn(ArmingStatus.ARMED_HOME);
+        when(this.imageService.imageContainsCat(this.image, CONFIDENCE_THRESHOLD))
+                .thenReturn(true);
+
+        // When - The image is scanned off the calling thread
+        boolean catDetected = this.securityService.processImageAsync(this.image).get(5, TimeUnit.SECONDS);
+
+        // Then - The result is reported and the alarm is raised
+        Assertions.assertTrue(catDetected);
+        verify(this.securityRepository, times(1))
+                .setAlarmStatus(AlarmStatus.ALARM);
+    }
+
+    /**
+     * A batch of sensor events only stores and reports the alarm status reached at the end of the batch.
+     */
+    @Test
+    void ifBatchActivatesAllSensorsWhileArmedHome_setAlarmStatusToAlarmOnce() {
+        // Given - System is armed-home with three inactive sensors
+        when(this.securityRepository.getArmingStatus())
+                .thenReturn(ArmingStatus.ARMED_HOME);
+        when(this.securityRepository.getSensors())
+                .thenReturn(generateSensors(3, false));
+        doNothing().when(this.securityRepository).updateSensors(anyCollection());
+
+        // When - All three sensors are activated in one batch
+        var events = this.securityRepository.getSensors().stream()
+                .map(sensor -> new SensorEvent(sensor, sensor.getActive()))
+                .collect(Collectors.toList());
+        this.securityService.applySensorEvents(events);
+
+        // Then - The alarm goes straight to alarm without passing through pending
+        verify(this.securityRepository, times(1))
+                .updateSensors(anyCollection());
+        verify(this.securityRepository, never())
+                .setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        verify(this.securityRepository, times(1))
+                .setAlarmStatus(AlarmStatus.ALARM);
+    }
+
+    /**
+     * Arming away deactivates every sensor and stores the arming status as a single repository change.
+     */
+    @Test
+    void ifSystemIsArmedAway_deactivateSensorsInOneMutation() {
+        // Given - System is armed-home with three active sensors
+        Set<Sensor> sensors = generateSensors(3, true);
+        when(this.securityRepository.getArmingStatus())
+                .thenReturn(ArmingStatus.ARMED_HOME);
+        when(this.securityRepository.getSensors())
+                .thenReturn(sensors);
+        List<StateChanges> mutations = new ArrayList<>();
+        doAnswer(invocation -> {
+            Consumer<MutableState> changes = invocation.getArgument(0);
+            StateChanges state = new StateChanges(sensors);
+            changes.accept(state);
+            mutations.add(state);
+            return null;
+        }).when(this.securityRepository).mutate(any());
+
+        // When - The system is armed-away
+        this.securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+        // Then - One mutation covers all sensors and the arming status, and the alarm is cleared
+        Assertions.assertTrue(sensors.stream().noneMatch(Sensor::getActive));
+        verify(this.securityRepository, times(1))
+                .mutate(any());
+        Assertions.assertEquals(ArmingStatus.ARMED_AWAY, mutations.get(0).getArmingStatus());
+        Assertions.assertEquals(sensors.size(), mutations.get(0).getChangedSensors().size());
+        verify(this.securityRepository, never())
+                .updateSensor(any(Sensor.class));
+        verify(this.securityRepository, times(1))
+                .setAlarmStatus(AlarmStatus.NO_ALARM);
+        Assertions.assertEquals(0, this.securityService.getActiveSensorCount(SensorType.DOOR));
+    }
+
+    /**
+     * Sensor updates arriving on several threads at once are all counted.
+     */
+    @Test
+    void ifSensorsAreActivatedFromManyThreads_noActivationIsLost() throws Exception {
+        // Given - A disarmed system fed by several threads
+        when(this.securityRepository.getArmingStatus())
+                .thenReturn(ArmingStatus.DISARMED);
+        int threads = 8;
+        int sensorsPerThread = 250;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // When - Each thread adds and activates its own sensors
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < sensorsPerThread; i++) {
+                    var sensor = new Sensor(randomUUID, SensorType.MOTION);
+                    this.securityService.addSensor(sensor);
+                    this.securityService.changeSensorActivationStatus(sensor, sensor.getActive());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then - Every activation is reflected in the counters
+        Assertions.assertEquals(threads * sensorsPerThread, this.securityService.getActiveSensorCount(SensorType.MOTION));
+        Assertions.assertEquals(0, this.securityService.getInactiveSensorCount(SensorType.MOTION));
+    }
+
+    /**
+     * An inline listener that is still busy with one alarm transition does not hold up sensor events on other threads.
+     */
+    @Test
+    void ifAListenerIsBusy_otherSensorEventsStillChangeTheAlarmStatus() throws Exception {
+        // Given - Two sensors armed-home and a listener that blocks on its first notification
+        ColumnarSecurityRepositoryImpl repository = new ColumnarSecurityRepositoryImpl();
+        SecurityService service = new SecurityService(repository, imageService);
+        Sensor first = new Sensor("First", SensorType.DOOR);
+        Sensor second = new Sensor("Second", SensorType.WINDOW);
+        service.addSensor(first);
+        service.addSensor(second);
+        service.setArmingStatus(ArmingStatus.ARMED_HOME);
+        CountDownLatch notified = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        service.addStatusListener(new StatusListener() {
+            @Override
+            public void notify(AlarmStatus status) {
+                if (notified.getCount() > 0) {
+                    notified.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+
+            @Override
+            public void catDetected(boolean catDetected) {
+            }
+
+            @Override
+            public void sensorStatusChanged() {
+            }
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // When - One thread is stuck in the listener while another sensor goes off
+        Future<?> blocked = executor.submit(() -> service.changeSensorActivationStatus(first, false));
+        Assertions.assertTrue(notified.await(10, TimeUnit.SECONDS));
+        service.changeSensorActivationStatus(second, false);
+
+        // Then - The second event completed and the status moved on without waiting for the listener
+        Assertions.assertEquals(AlarmStatus.ALARM, service.getAlarmStatus());
+        Assertions.assertFalse(blocked.isDone());
+
+        // When - The listener is released
+        release.countDown();
+        blocked.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // Then - The writer that was busy stored the latest status
+        Assertions.assertEquals(AlarmStatus.ALARM, repository.getAlarmStatus());
+    }
+
+    /**
+     * A scan result that arrives after the service was detached is not applied.
+     */
+    @Test
+    void ifServiceIsDetached_ignoreScanResultsStillInFlight() throws Exception {
+        // Given - An armed service whose scan results wait until the test runs them
+        ColumnarSecurityRepositoryImpl repository = new ColumnarSecurityRepositoryImpl();
+        List<Runnable> results = new CopyOnWriteArrayList<>();
+        ImageAnalysisExecutor analysis = new ImageAnalysisExecutor(1, 4, ImageAnalysisExecutor.OverflowPolicy.REJECT);
+        SecurityService service = new SecurityService(repository, imageService, analysis, results::add);
+        service.setArmingStatus(ArmingStatus.ARMED_HOME);
+        when(imageService.imageContainsCat(any(), anyFloat()))
+                .thenReturn(true);
+        CompletableFuture<Boolean> scan = service.processImageAsync(image);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (results.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // When - The service is detached before the result is applied
+        service.detach();
+        results.get(0).run();
+
+        // Then
+        Assertions.assertTrue(scan.get(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(AlarmStatus.NO_ALARM, repository.getAlarmStatus());
+        analysis.close();
+    }
+
+    /**
+     * Sensors are listed for display in name order.
+     */
+    @Test
+    void sortedSensorsAreReturnedInDisplayOrder() {
+        // Given - Two sensors stored out of order
+        var sensorB = new Sensor("B", SensorType.WINDOW);
+        var sensorA = new Sensor("A", SensorType.DOOR);
+        when(this.securityRepository.getSensors())
+                .thenReturn(new LinkedHashSet<>(Arrays.asList(sensorB, sensorA)));
+        //the mock cannot run the interface's default method, so it sorts the stubbed sensors itself
+        doAnswer(invocation -> this.securityRepository.getSensors().stream().sorted().collect(Collectors.toList()))
+                .when(this.securityRepository).getSortedSensors();
+
+        // When
+        var sorted = this.securityService.getSortedSensors();
+
+        // Then
+        Assertions.assertEquals(Arrays.asList(sensorA, sensorB), sorted);
+    }
+
+    /**
+     * A pending alarm that is not cleared within the entry delay escalates to alarm, and disarming in time stops it.
+     */
+    @Test
+    void ifPendingAlarmOutlastsTheEntryDelay_setAlarmStatusToAlarm() {
+        // Given - A service on a wheel stepped by hand, with a 30 second entry delay
+        AtomicLong now = new AtomicLong();
+        TimingWheel wheel = new TimingWheel(10, now::get, false);
+        SecurityService service = new SecurityService(new ColumnarSecurityRepositoryImpl(), imageService, null, Runnable::run, wheel);
+        service.addSensor(this.sensor);
+        service.addSensor(new Sensor("second", SensorType.WINDOW));
+        service.setEntryDelay(Duration.ofSeconds(30));
+        service.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        // When - A sensor goes off and the delay has not passed yet
+        service.changeSensorActivationStatus(this.sensor, false);
+        now.set(29_000);
+        wheel.advanceTo(now.get());
+
+        // Then - Still pending
+        Assertions.assertEquals(AlarmStatus.PENDING_ALARM, service.getAlarmStatus());
+        Assertions.assertTrue(service.isEntryDelayPending());
+
+        // When - The delay passes
+        now.set(30_010);
+        wheel.advanceTo(now.get());
+
+        // Then
+        Assertions.assertEquals(AlarmStatus.ALARM, service.getAlarmStatus());
+        Assertions.assertFalse(service.isEntryDelayPending());
+
+        // When - Pending again, but disarmed within the delay
+        service.setArmingStatus(ArmingStatus.DISARMED);
+        service.changeSensorActivationStatus(this.sensor, true);
+        service.setArmingStatus(ArmingStatus.ARMED_HOME);
+        service.changeSensorActivationStatus(this.sensor, false);
+        service.setArmingStatus(ArmingStatus.DISARMED);
+        now.set(120_000);
+        wheel.advanceTo(now.get());
+
+        // Then - The timer was cancelled and never fires
+        Assertions.assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+        Assertions.assertEquals(0, wheel.getPendingCount());
+    }
+
+    /**
+     * Arming with an exit delay only arms once the delay has passed, and arming windows arm and disarm on schedule.
+     */
+    @Test
+    void exitDelayAndArmingWindowsArmTheSystemOnSchedule() {
+        // Given - A clock at 08:00 UTC driving both the wheel and the time of day
+        AtomicLong now = new AtomicLong();
+        TimingWheel wheel = new TimingWheel(10, now::get, false);
+        Instant eight = Instant.parse("2026-01-01T08:00:00Z");
+        Clock clock = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return eight.plusMillis(now.get());
+            }
+        };
+        SecurityService service = new SecurityService(new ColumnarSecurityRepositoryImpl(), imageService, null, Runnable::run, wheel, clock);
+        service.setExitDelay(Duration.ofSeconds(60));
+
+        // When - Armed with the exit delay
+        service.armWithExitDelay(ArmingStatus.ARMED_AWAY);
+
+        // Then - Armed only once the delay has passed
+        Assertions.assertEquals(ArmingStatus.DISARMED, service.getArmingStatus());
+        now.set(60_010);
+        wheel.advanceTo(now.get());
+        Assertions.assertEquals(ArmingStatus.ARMED_AWAY, service.getArmingStatus());
+        service.setArmingStatus(ArmingStatus.DISARMED);
+
+        // When - A 09:00 to 17:00 window is added
+        service.addArmingWindow(new ArmingWindow(LocalTime.of(9, 0), LocalTime.of(17, 0),
+                ArmingStatus.ARMED_HOME, ZoneOffset.UTC));
+
+        // Then - It arms at nine and disarms at five
+        now.set(Duration.ofHours(1).toMillis() - 1_000);
+        wheel.advanceTo(now.get());
+        Assertions.assertEquals(ArmingStatus.DISARMED, service.getArmingStatus());
+        now.set(Duration.ofHours(1).toMillis() + 10);
+        wheel.advanceTo(now.get());
+        Assertions.assertEquals(ArmingStatus.ARMED_HOME, service.getArmingStatus());
+        now.set(Duration.ofHours(9).toMillis() + 20);
+        wheel.advanceTo(now.get());
+        Assertions.assertEquals(ArmingStatus.DISARMED, service.getArmingStatus());
+
+        // When - The service's timers are cancelled
+        service.cancelTimers();
+
+        // Then
+        Assertions.assertEquals(0, wheel.getPendingCount());
+    }
+}
@@ -0,0 +1,106 @@
+package com.udacity.security.data;
+
+import com.udacity.security.application.StatusListener;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class StatusListenerBusTest {
+
+    private final StatusListenerBus bus = new StatusListenerBus();
+    private final List<Runnable> scheduled = new ArrayList<>();
+    private final RecordingListener listener = new RecordingListener();
+
+    /**
+     * Updates published while a listener is busy are collapsed so it only sees the latest state.
+     */
+    @Test
+    void pendingUpdatesOfTheSameKindAreCoalesced() {
+        // Given - A listener whose executor has not run yet
+        bus.subscribe(listener, scheduled::add);
+
+        // When
+        bus.publishAlarmStatus(AlarmStatus.PENDING_ALARM);
+        bus.publishAlarmStatus(AlarmStatus.ALARM);
+        bus.publishSensorStatusChanged();
+        bus.publishSensorStatusChanged();
+        bus.publishCatDetected(true);
+
+        // Then - One drain is scheduled and three updates are waiting
+        Assertions.assertEquals(1, scheduled.size());
+        StatusListenerBus.DispatchStats stats = bus.getDispatchStats().get(0);
+        Assertions.assertEquals(3, stats.getQueueDepth());
+        Assertions.assertEquals(2, stats.getCoalescedCount());
+        Assertions.assertTrue(listener.calls.isEmpty());
+
+        // When - The executor runs
+        scheduled.get(0).run();
+
+        // Then - Only the latest of each kind is delivered
+        Assertions.assertEquals(List.of("notify ALARM", "catDetected true", "sensorStatusChanged"), listener.calls);
+        stats = bus.getDispatchStats().get(0);
+        Assertions.assertEquals(0, stats.getQueueDepth());
+        Assertions.assertEquals(3, stats.getDeliveredCount());
+    }
+
+    /**
+     * Listeners registered without an executor are still called on the publishing thread.
+     */
+    @Test
+    void inlineListenerIsCalledImmediately() {
+        // Given
+        bus.subscribe(listener);
+
+        // When
+        bus.publishAlarmStatus(AlarmStatus.PENDING_ALARM);
+        bus.publishAlarmStatus(AlarmStatus.ALARM);
+
+        // Then
+        Assertions.assertEquals(List.of("notify PENDING_ALARM", "notify ALARM"), listener.calls);
+    }
+
+    /**
+     * A listener failing on a shared executor does not stop later deliveries.
+     */
+    @Test
+    void failingListenerDoesNotBlockLaterUpdates() {
+        // Given
+        listener.failOn = AlarmStatus.PENDING_ALARM;
+        bus.subscribe(listener, Runnable::run);
+
+        // When
+        bus.publishAlarmStatus(AlarmStatus.PENDING_ALARM);
+        bus.publishAlarmStatus(AlarmStatus.ALARM);
+
+        // Then
+        Assertions.assertEquals(List.of("notify PENDING_ALARM", "notify ALARM"), listener.calls);
+    }
+
+    /**
+     * Records every call it receives, optionally failing on one alarm status.
+     */
+    private static final class RecordingListener implements StatusListener {
+        private final List<String> calls = new ArrayList<>();
+        private AlarmStatus failOn;
+
+        @Override
+        public void notify(AlarmStatus status) {
+            calls.add("notify " + status);
+            if (status == failOn) {
+                throw new IllegalStateException("boom");
+            }
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+            calls.add("catDetected " + catDetected);
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+            calls.add("sensorStatusChanged");
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.udacity.security.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+class TimingWheelTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final TimingWheel wheel = new TimingWheel(10, now::get, false);
+    private final List<Long> fired = new ArrayList<>();
+
+    private void advance(long millis) {
+        now.addAndGet(millis);
+        wheel.advanceTo(now.get());
+    }
+
+    /**
+     * Timers fire in deadline order, never before their delay, including those that have to move down from upper levels.
+     */
+    @Test
+    void timersFireInDeadlineOrderAcrossLevels() {
+        // Given - Delays landing in the first, second and third level of the wheel
+        long[] delays = {700_000, 50, 3_000, 25, 40_000};
+        for (long delay : delays) {
+            wheel.schedule(() -> fired.add(delay), delay, TimeUnit.MILLISECONDS);
+        }
+
+        // When - Just short of the shortest delay
+        advance(20);
+
+        // Then
+        Assertions.assertTrue(fired.isEmpty());
+
+        // When - Past every deadline
+        advance(800_000);
+
+        // Then
+        Assertions.assertEquals(List.of(25L, 50L, 3_000L, 40_000L, 700_000L), fired);
+        Assertions.assertEquals(0, wheel.getPendingCount());
+        Assertions.assertEquals(5, wheel.getExpiredCount());
+    }
+
+    /**
+     * A cancelled timer is unlinked straight away and never runs.
+     */
+    @Test
+    void cancelledTimerNeverFires() {
+        // Given
+        TimingWheel.Timeout kept = wheel.schedule(() -> fired.add(1L), 100, TimeUnit.MILLISECONDS);
+        TimingWheel.Timeout cancelled = wheel.schedule(() -> fired.add(2L), 100, TimeUnit.MILLISECONDS);
+
+        // When
+        Assertions.assertTrue(cancelled.cancel());
+        advance(200);
+
+        // Then
+        Assertions.assertEquals(List.of(1L), fired);
+        Assertions.assertTrue(kept.isExpired());
+        Assertions.assertTrue(cancelled.isCancelled());
+        Assertions.assertFalse(cancelled.cancel());
+        Assertions.assertFalse(kept.cancel());
+        Assertions.assertEquals(1, wheel.getCancelledCount());
+    }
+
+    /**
+     * A wheel with its own thread runs timers without being stepped.
+     */
+    @Test
+    void wheelThreadRunsTimers() throws Exception {
+        // Given
+        CountDownLatch latch = new CountDownLatch(1);
+        try (TimingWheel threaded = new TimingWheel(1)) {
+            // When
+            threaded.schedule(latch::countDown, 20, TimeUnit.MILLISECONDS);
+
+            // Then
+            Assertions.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.udacity.security.headless;
+
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.security.data.SecurityService;
+import com.udacity.security.data.SecurityState;
+import com.udacity.security.data.SecurityStateStore;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorEvent;
+import com.udacity.security.data.SensorType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+class HeadlessRuntimeTest {
+
+    private final PretendDatabaseSecurityRepositoryImpl securityRepository = new PretendDatabaseSecurityRepositoryImpl(new NoOpStore());
+    private final SecurityService securityService = new SecurityService(securityRepository, (image, confidenceThreshold) -> false);
+    private final HeadlessRuntime runtime = new HeadlessRuntime(securityService, SessionExecutors.newPlatformSessionExecutor());
+
+    @AfterEach
+    void tearDown() {
+        runtime.close();
+        securityRepository.close();
+    }
+
+    /**
+     * A sensor session applies every event from its feed and ends when the feed does.
+     */
+    @Test
+    void sensorSessionAppliesEveryEventUntilTheFeedEnds() throws Exception {
+        // Given
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        Sensor window = new Sensor("Window", SensorType.WINDOW);
+        securityService.addSensor(door);
+        securityService.addSensor(window);
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        //changeSensorActivationStatus takes the sensor's current status and flips it
+        Iterator<SensorEvent> events = List.of(new SensorEvent(door, false), new SensorEvent(window, false)).iterator();
+
+        // When
+        Future<?> session = runtime.startSensorSession(() -> events.hasNext() ? events.next() : null);
+        session.get(10, TimeUnit.SECONDS);
+
+        // Then
+        Assertions.assertEquals(2, runtime.getSensorEventCount());
+        Assertions.assertEquals(0, runtime.getActiveSessionCount());
+        Assertions.assertEquals(0, runtime.getFailedSessionCount());
+        Assertions.assertTrue(window.getActive());
+        Assertions.assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+    }
+
+    /**
+     * A session whose feed throws ends and is counted as failed without affecting the runtime.
+     */
+    @Test
+    void failingSessionIsCounted() throws Exception {
+        // When - The feed fails on its first read
+        Future<?> session = runtime.startSensorSession(() -> {
+            throw new IllegalStateException("connection reset");
+        });
+        session.get(10, TimeUnit.SECONDS);
+
+        // Then
+        Assertions.assertEquals(1, runtime.getFailedSessionCount());
+        Assertions.assertEquals(0, runtime.getActiveSessionCount());
+    }
+
+    /**
+     * Closing the runtime interrupts sessions blocked on their feed.
+     */
+    @Test
+    void closeInterruptsBlockedSessions() throws Exception {
+        // Given - A camera session blocked waiting for its next frame
+        CountDownLatch waiting = new CountDownLatch(1);
+        Future<?> session = runtime.startCameraSession(() -> {
+            waiting.countDown();
+            new CountDownLatch(1).await();
+            return null;
+        });
+        Assertions.assertTrue(waiting.await(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, runtime.getActiveSessionCount());
+
+        // When
+        runtime.close();
+
+        // Then
+        Assertions.assertTrue(session.isDone());
+        Assertions.assertEquals(0, runtime.getActiveSessionCount());
+        Assertions.assertEquals(0, runtime.getFailedSessionCount());
+        Assertions.assertEquals(0, runtime.getFrameCount());
+    }
+
+    /**
+     * Stores nothing, so the tests never touch the user's preferences.
+     */
+    private static final class NoOpStore implements SecurityStateStore {
+        @Override
+        public SecurityState load() {
+            return SecurityState.empty();
+        }
+
+        @Override
+        public void saveSensors(Collection<Sensor> sensors) {
+        }
+
+        @Override
+        public void saveAlarmStatus(AlarmStatus alarmStatus) {
+        }
+
+        @Override
+        public void saveArmingStatus(ArmingStatus armingStatus) {
+        }
+    }
+}